@@ -0,0 +1,11 @@
+#!/bin/sh
+# Runs all benchmarks with the GC profiler and writes the results to results/<commit>.json,
+# so that the results of two commits can be compared. Additional JMH options are passed through,
+# e.g. ./run-benchmarks.sh RegistryBenchmark
+set -e
+cd "$(dirname "$0")"
+COMMIT=$(git rev-parse --short HEAD)
+(cd .. && mvn -B -q install -DskipTests)
+mvn -B -q package
+mkdir -p results
+java -jar target/benchmarks.jar -prof gc -rf json -rff "results/$COMMIT.json" "$@"
@@ -0,0 +1,96 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the recording of failures, while 1 to 64 threads share one CircuitBreaker.
+ *
+ * Every operation records a failure and a success, so that the CircuitBreaker stays CLOSED: the consecutive failures
+ * never reach maxFailures and the failure rate stays around 50% below the threshold of 100%.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContendedFailureBenchmark {
+
+    private static final RuntimeException FAILURE = new RuntimeException("BAM!");
+
+    @Param({"consecutive", "countWindow", "timeWindow"})
+    public String mode;
+
+    private CircuitBreaker circuitBreaker;
+
+    @Setup
+    public void setUp() {
+        CircuitBreakerConfig.Builder builder = CircuitBreakerConfig.custom().maxFailures(1_000_000);
+        if ("countWindow".equals(mode)) {
+            builder.failureRateThreshold(100).ringBufferSize(1000);
+        } else if ("timeWindow".equals(mode)) {
+            builder.failureRateThreshold(100).timeWindowSize(10);
+        }
+        circuitBreaker = CircuitBreakerRegistry.of(builder.build()).circuitBreaker(mode);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads1() {
+        recordFailureAndSuccess();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads4() {
+        recordFailureAndSuccess();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void threads16() {
+        recordFailureAndSuccess();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void threads64() {
+        recordFailureAndSuccess();
+    }
+
+    private void recordFailureAndSuccess() {
+        circuitBreaker.recordFailure(FAILURE);
+        circuitBreaker.recordSuccess();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.failsafe.FailSafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the cost of the decorators on the CLOSED path and the cost of a rejected call,
+ * which includes creating the CircuitBreakerOpenException.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoratorBenchmark {
+
+    private Supplier<String> supplier;
+    private Supplier<String> decoratedSupplier;
+    private Supplier<String> failSafeSupplier;
+    private Supplier<String> openSupplier;
+    private CircuitBreaker circuitBreaker;
+
+    @Setup
+    public void setUp() {
+        supplier = () -> "Hello world";
+        circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("closed");
+        decoratedSupplier = CircuitBreaker.decorateSupplier(supplier, circuitBreaker);
+        failSafeSupplier = FailSafe.ofSupplier(supplier)
+                .withCircuitBreaker(circuitBreaker)
+                .decorate();
+        CircuitBreaker openCircuitBreaker = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .maxFailures(1)
+                .waitInterval(3_600_000)
+                .build())
+                .circuitBreaker("open");
+        openCircuitBreaker.recordFailure(new RuntimeException());
+        openCircuitBreaker.recordFailure(new RuntimeException());
+        openSupplier = CircuitBreaker.decorateSupplier(supplier, openCircuitBreaker);
+    }
+
+    @Benchmark
+    public String undecorated() {
+        return supplier.get();
+    }
+
+    @Benchmark
+    public String decorateSupplierSuccess() {
+        return decoratedSupplier.get();
+    }
+
+    @Benchmark
+    public String failSafeSupplierSuccess() {
+        return failSafeSupplier.get();
+    }
+
+    @Benchmark
+    public Supplier<String> failSafeDecorate() {
+        return FailSafe.ofSupplier(supplier)
+                .withCircuitBreaker(circuitBreaker)
+                .decorate();
+    }
+
+    @Benchmark
+    public Object decorateSupplierRejection() {
+        try {
+            return openSupplier.get();
+        } catch (CircuitBreakerOpenException e) {
+            return e;
+        }
+    }
+}
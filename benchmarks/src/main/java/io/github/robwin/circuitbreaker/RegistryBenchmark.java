@@ -0,0 +1,76 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of existing CircuitBreakers by name in registries of 10 to 100k CircuitBreakers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int numberOfNames;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        names = new String[numberOfNames];
+        for (int i = 0; i < numberOfNames; i++) {
+            names[i] = "backend-" + i;
+            circuitBreakerRegistry.circuitBreaker(names[i]);
+        }
+    }
+
+    @Benchmark
+    public CircuitBreaker lookup(Cursor cursor) {
+        return circuitBreakerRegistry.circuitBreaker(names[cursor.next(numberOfNames)]);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        int next(int numberOfNames) {
+            index = index + 1 == numberOfNames ? 0 : index + 1;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the steady-state CLOSED path and the rejection of an OPEN CircuitBreaker.
+ * Run with the GC profiler to verify that a successful call of a healthy CircuitBreaker does not allocate:
+ *
+ * <pre>java -jar target/benchmarks.jar StateMachineBenchmark -prof gc</pre>
+ *
+ * The reported gc.alloc.rate.norm must be ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateMachineBenchmark {
+
+    private CircuitBreaker circuitBreaker;
+    private CircuitBreaker failureRateCircuitBreaker;
+    private CircuitBreaker openCircuitBreaker;
+
+    @Setup
+    public void setUp() {
+        circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("consecutiveFailures");
+        failureRateCircuitBreaker = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(50)
+                .build())
+                .circuitBreaker("failureRate");
+        openCircuitBreaker = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .maxFailures(1)
+                .waitInterval(3_600_000)
+                .build())
+                .circuitBreaker("open");
+        openCircuitBreaker.recordFailure(new RuntimeException());
+        openCircuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Benchmark
+    public boolean closedSuccess() {
+        boolean permitted = circuitBreaker.isCallPermitted();
+        circuitBreaker.recordSuccess();
+        return permitted;
+    }
+
+    @Benchmark
+    public boolean closedSuccessWithFailureRate() {
+        boolean permitted = failureRateCircuitBreaker.isCallPermitted();
+        failureRateCircuitBreaker.recordSuccess();
+        return permitted;
+    }
+
+    @Benchmark
+    public boolean openRejection() {
+        return openCircuitBreaker.isCallPermitted();
+    }
+}
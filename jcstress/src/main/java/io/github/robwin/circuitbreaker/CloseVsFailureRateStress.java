@@ -0,0 +1,74 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import java.time.Duration;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+/**
+ * HALF_CLOSED -> CLOSED with a failure rate: a failure which is recorded by a caller who already sees the new
+ * CLOSED state must not be evaluated against the failures of the last CLOSED round, which are still in the ring buffer.
+ * One failure in a ring buffer of two calls does not reach the failure rate threshold of 100%.
+ * The result is (state ordinal, epoch).
+ */
+@JCStressTest
+@Outcome(id = "0, 3", expect = ACCEPTABLE, desc = "CLOSED, the failure is recorded in the empty ring buffer or discarded")
+@Outcome(id = "1, 3", expect = ACCEPTABLE, desc = "the failure of the trial round reopens before the success closes")
+@State
+public class CloseVsFailureRateStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker;
+
+    public CloseVsFailureRateStress() {
+        VirtualClock clock = Clock.virtual();
+        circuitBreaker = new CircuitBreakerStateMachine("stress", CircuitBreakerConfig.custom()
+                .failureRateThreshold(100).ringBufferSize(2).waitInterval(1000).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.isCallPermitted();
+    }
+
+    @Actor
+    public void actor1() {
+        circuitBreaker.recordSuccess();
+    }
+
+    @Actor
+    public void actor2() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Arbiter
+    public void arbiter(II_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r1 = StateWord.state(stateWord).ordinal();
+        r.r2 = StateWord.epoch(stateWord);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+/**
+ * CLOSED -> CLOSED: a failure races with a success, which resets the consecutive failures.
+ * Neither update may be lost and the CircuitBreaker must stay CLOSED. The result is (state ordinal, epoch, failures).
+ */
+@JCStressTest
+@Outcome(id = "0, 0, 0", expect = ACCEPTABLE, desc = "failure, then success")
+@Outcome(id = "0, 0, 1", expect = ACCEPTABLE, desc = "success, then failure")
+@State
+public class ClosedFailureVsSuccessStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("stress",
+            CircuitBreakerConfig.custom().maxFailures(2).build());
+
+    public ClosedFailureVsSuccessStress() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Actor
+    public void actor1() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Actor
+    public void actor2() {
+        circuitBreaker.recordSuccess();
+    }
+
+    @Arbiter
+    public void arbiter(III_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r1 = StateWord.state(stateWord).ordinal();
+        r.r2 = StateWord.epoch(stateWord);
+        r.r3 = (int) StateWord.payload(stateWord);
+    }
+}
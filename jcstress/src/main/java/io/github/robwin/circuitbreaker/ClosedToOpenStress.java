@@ -0,0 +1,62 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+/**
+ * CLOSED -> OPEN: two failures which both exceed maxFailures must open the CircuitBreaker exactly once.
+ * The result is (state ordinal, epoch).
+ */
+@JCStressTest
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "OPEN after exactly one transition")
+@State
+public class ClosedToOpenStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("stress",
+            CircuitBreakerConfig.custom().maxFailures(1).build());
+
+    public ClosedToOpenStress() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Actor
+    public void actor1() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Actor
+    public void actor2() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Arbiter
+    public void arbiter(II_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r1 = StateWord.state(stateWord).ordinal();
+        r.r2 = StateWord.epoch(stateWord);
+    }
+}
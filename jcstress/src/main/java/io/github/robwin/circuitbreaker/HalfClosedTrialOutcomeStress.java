@@ -0,0 +1,77 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import java.time.Duration;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+
+/**
+ * HALF_CLOSED -> CLOSED vs. HALF_CLOSED -> OPEN: the successful trial call races with a failure.
+ * Whoever comes first finishes the round. An outcome which has read the HALF_CLOSED state, but loses the transition,
+ * belongs to the finished round and is discarded instead of being applied to the new state.
+ * The result is (state ordinal, epoch, consecutive failures).
+ */
+@JCStressTest
+@Outcome(id = "0, 3, 1", expect = ACCEPTABLE, desc = "success closes, then the failure is counted")
+@Outcome(id = "0, 3, 0", expect = ACCEPTABLE_INTERESTING, desc = "success closes, the failure which has read the HALF_CLOSED state is discarded, not linearizable by design")
+@Outcome(id = "1, 3, 0", expect = ACCEPTABLE, desc = "failure reopens, then the success is ignored")
+@State
+public class HalfClosedTrialOutcomeStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker;
+
+    public HalfClosedTrialOutcomeStress() {
+        VirtualClock clock = Clock.virtual();
+        circuitBreaker = new CircuitBreakerStateMachine("stress",
+                CircuitBreakerConfig.custom().maxFailures(1).waitInterval(1000).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.isCallPermitted();
+    }
+
+    @Actor
+    public void actor1() {
+        circuitBreaker.recordSuccess();
+    }
+
+    @Actor
+    public void actor2() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Arbiter
+    public void arbiter(III_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r1 = StateWord.state(stateWord).ordinal();
+        r.r2 = StateWord.epoch(stateWord);
+        r.r3 = StateWord.state(stateWord) == CircuitBreaker.State.CLOSED ? (int) StateWord.payload(stateWord) : 0;
+    }
+}
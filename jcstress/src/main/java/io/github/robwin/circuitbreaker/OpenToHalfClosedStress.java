@@ -0,0 +1,70 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IIII_Result;
+
+import java.time.Duration;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+/**
+ * OPEN -> HALF_CLOSED: two callers find the wait interval elapsed. Exactly one transition happens and exactly one
+ * of them gets the single trial call. The result is (actor1 permitted, actor2 permitted, state ordinal, epoch).
+ */
+@JCStressTest
+@Outcome(id = {"1, 0, 2, 2", "0, 1, 2, 2"}, expect = ACCEPTABLE, desc = "one trial call after exactly one transition")
+@State
+public class OpenToHalfClosedStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker;
+
+    public OpenToHalfClosedStress() {
+        VirtualClock clock = Clock.virtual();
+        circuitBreaker = new CircuitBreakerStateMachine("stress",
+                CircuitBreakerConfig.custom().maxFailures(1).waitInterval(1000).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(1000));
+    }
+
+    @Actor
+    public void actor1(IIII_Result r) {
+        r.r1 = circuitBreaker.isCallPermitted() ? 1 : 0;
+    }
+
+    @Actor
+    public void actor2(IIII_Result r) {
+        r.r2 = circuitBreaker.isCallPermitted() ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(IIII_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r3 = StateWord.state(stateWord).ordinal();
+        r.r4 = StateWord.epoch(stateWord);
+    }
+}
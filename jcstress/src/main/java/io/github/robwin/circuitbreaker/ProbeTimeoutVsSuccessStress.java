@@ -0,0 +1,73 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import java.time.Duration;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+/**
+ * HALF_CLOSED -> OPEN by the probe timeout vs. HALF_CLOSED -> CLOSED: the trial call reports its success,
+ * while a rejected caller finds the probe deadline elapsed. The result is (actor2 permitted, state ordinal, epoch).
+ */
+@JCStressTest
+@Outcome(id = "1, 0, 3", expect = ACCEPTABLE, desc = "success closes, then the call is permitted")
+@Outcome(id = "0, 1, 3", expect = ACCEPTABLE, desc = "probe timeout reopens, then the success is ignored")
+@State
+public class ProbeTimeoutVsSuccessStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker;
+
+    public ProbeTimeoutVsSuccessStress() {
+        VirtualClock clock = Clock.virtual();
+        circuitBreaker = new CircuitBreakerStateMachine("stress", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(1000).probeTimeout(1000).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.isCallPermitted();
+        clock.advance(Duration.ofMillis(1000));
+    }
+
+    @Actor
+    public void actor1() {
+        circuitBreaker.recordSuccess();
+    }
+
+    @Actor
+    public void actor2(III_Result r) {
+        r.r1 = circuitBreaker.isCallPermitted() ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(III_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r2 = StateWord.state(stateWord).ordinal();
+        r.r3 = StateWord.epoch(stateWord);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+
+/**
+ * Any state -> CLOSED by a reset of the registry vs. CLOSED -> OPEN by a failure: the CircuitBreaker must be CLOSED
+ * after the reset. The result is (state ordinal, epoch, consecutive failures).
+ */
+@JCStressTest
+@Outcome(id = "0, 2, 0", expect = ACCEPTABLE, desc = "failure opens, then reset closes")
+@Outcome(id = "0, 1, 0", expect = ACCEPTABLE_INTERESTING, desc = "reset closes, the failure which has read the last round is discarded, not linearizable by design")
+@Outcome(id = "0, 1, 1", expect = ACCEPTABLE, desc = "reset closes, then the failure is counted")
+@State
+public class ResetVsFailureStress {
+
+    private final CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("stress",
+            CircuitBreakerConfig.custom().maxFailures(1).build());
+
+    public ResetVsFailureStress() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Actor
+    public void actor1() {
+        circuitBreaker.reset();
+    }
+
+    @Actor
+    public void actor2() {
+        circuitBreaker.recordFailure(new RuntimeException());
+    }
+
+    @Arbiter
+    public void arbiter(III_Result r) {
+        long stateWord = circuitBreaker.getStateWord();
+        r.r1 = StateWord.state(stateWord).ordinal();
+        r.r2 = StateWord.epoch(stateWord);
+        r.r3 = (int) StateWord.payload(stateWord);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A Bulkhead limits the number of concurrent calls of a backend, so that a slow backend cannot occupy all threads
+ * of the caller. A call has to acquire a permit, which it releases when it has finished, regardless of its outcome.
+ */
+public interface Bulkhead {
+
+    /**
+     * Acquires a permit for a call. If the Bulkhead is full, the caller waits at most the configured maximum wait time.
+     *
+     * @return true, if a permit has been acquired. The permit must be released with {@link #releasePermission()}.
+     */
+    boolean tryAcquirePermission();
+
+    /**
+     * Releases the permit of a finished call.
+     */
+    void releasePermission();
+
+    /**
+     * Get the number of calls which can be started without waiting
+     *
+     * @return the number of available permits
+     */
+    int getAvailableConcurrentCalls();
+
+    /**
+     * Get the name of the Bulkhead
+     *
+     * @return the name of the Bulkhead
+     */
+    String getName();
+
+    /**
+     * Get the configuration of the Bulkhead
+     *
+     * @return the configuration of the Bulkhead
+     */
+    BulkheadConfig getBulkheadConfig();
+
+    /**
+     * Creates a Bulkhead.
+     *
+     * @param name the name of the Bulkhead
+     * @param bulkheadConfig the configuration
+     * @return a Bulkhead
+     */
+    static Bulkhead of(String name, BulkheadConfig bulkheadConfig) {
+        return new SemaphoreBulkhead(name, bulkheadConfig);
+    }
+
+    /**
+     * Creates a Bulkhead with the default configuration.
+     *
+     * @param name the name of the Bulkhead
+     * @return a Bulkhead
+     */
+    static Bulkhead ofDefaults(String name) {
+        return new SemaphoreBulkhead(name, BulkheadConfig.ofDefaults());
+    }
+
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, Bulkhead bulkhead){
+        return () -> {
+            BulkheadUtils.isCallPermitted(bulkhead);
+            try {
+                return supplier.get();
+            } finally {
+                bulkhead.releasePermission();
+            }
+        };
+    }
+
+    static Runnable decorateRunnable(Runnable runnable, Bulkhead bulkhead){
+        return () -> {
+            BulkheadUtils.isCallPermitted(bulkhead);
+            try {
+                runnable.run();
+            } finally {
+                bulkhead.releasePermission();
+            }
+        };
+    }
+
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, Bulkhead bulkhead){
+        return (T t) -> {
+            BulkheadUtils.isCallPermitted(bulkhead);
+            try {
+                return function.apply(t);
+            } finally {
+                bulkhead.releasePermission();
+            }
+        };
+    }
+
+    /**
+     * Decorates a supplier of a CompletionStage. The permit is released when the CompletionStage completes, so the
+     * Bulkhead limits the number of uncompleted CompletionStages. If the Bulkhead is full, the returned CompletionStage
+     * has already failed with a {@link BulkheadFullException}. Note that the caller waits for a permit, if a maximum
+     * wait time is configured.
+     *
+     * @param supplier the supplier of the CompletionStage
+     * @param bulkhead the Bulkhead
+     * @param <T> the type of the result of the CompletionStage
+     * @return a decorated supplier
+     */
+    static <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> supplier, Bulkhead bulkhead){
+        return () -> {
+            if (!bulkhead.tryAcquirePermission()) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+                future.completeExceptionally(BulkheadUtils.bulkheadFull(bulkhead));
+                return future;
+            }
+            CompletionStage<T> stage;
+            try {
+                stage = supplier.get();
+            } catch (RuntimeException | Error e) {
+                bulkhead.releasePermission();
+                throw e;
+            }
+            if (stage == null) {
+                bulkhead.releasePermission();
+                return null;
+            }
+            return stage.whenComplete((result, throwable) -> bulkhead.releasePermission());
+        };
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+public class BulkheadConfig {
+
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 25;
+
+    // The maximum number of concurrent calls
+    private final int maxConcurrentCalls;
+    // The time [ms] a call waits for a permit, if the Bulkhead is full. 0 means that the call is rejected immediately.
+    private final int maxWaitTime;
+
+    private BulkheadConfig(Builder builder) {
+        this.maxConcurrentCalls = builder.maxConcurrentCalls;
+        this.maxWaitTime = builder.maxWaitTime;
+    }
+
+    public Integer getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public Integer getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public static BulkheadConfig.Builder custom(){
+        return new Builder();
+    }
+
+    public static BulkheadConfig ofDefaults(){
+        return new Builder().build();
+    }
+
+    public static class Builder {
+        private int maxConcurrentCalls = DEFAULT_MAX_CONCURRENT_CALLS;
+        private int maxWaitTime = 0;
+
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls < 1) {
+                throw new IllegalArgumentException("maxConcurrentCalls must be greater than or equal to 1");
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        public Builder maxWaitTime(int maxWaitTime) {
+            if (maxWaitTime < 0) {
+                throw new IllegalArgumentException("maxWaitTime must not be negative");
+            }
+            this.maxWaitTime = maxWaitTime;
+            return this;
+        }
+
+        public BulkheadConfig build() {
+            return new BulkheadConfig(this);
+        }
+    }
+}
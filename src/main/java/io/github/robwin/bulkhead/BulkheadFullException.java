@@ -0,0 +1,37 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+/**
+ * A {@link Bulkhead} is full and has not permitted the call.
+ *
+ * The exception has no stack trace, so that a rejection is cheap even when a saturated backend rejects many calls.
+ * The message is created once per Bulkhead.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    /**
+     * The constructor with a message.
+     *
+     * @param message The message.
+     */
+    public BulkheadFullException(String message) {
+        super(message, null, false, false);
+    }
+}
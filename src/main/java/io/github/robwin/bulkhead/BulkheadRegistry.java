@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+/**
+ * Bulkhead manager.
+ * Manages the Bulkheads of the respective backends.
+ */
+public interface BulkheadRegistry {
+
+    /**
+     * Returns the managed {@link Bulkhead} or creates a new one with the default configuration.
+     *
+     * @param name the name of the Bulkhead
+     * @return The {@link Bulkhead}
+     */
+    Bulkhead bulkhead(String name);
+
+    /**
+     * Returns the managed {@link Bulkhead} or creates a new one with a custom configuration.
+     *
+     * @param name      the name of the Bulkhead
+     * @param bulkheadConfig  the Bulkhead configuration
+     * @return The {@link Bulkhead}
+     */
+    Bulkhead bulkhead(String name, BulkheadConfig bulkheadConfig);
+
+    static BulkheadRegistry of(BulkheadConfig defaultBulkheadConfig){
+        return new InMemoryBulkheadRegistry(defaultBulkheadConfig);
+    }
+
+    static BulkheadRegistry ofDefaults(){
+        return new InMemoryBulkheadRegistry(BulkheadConfig.ofDefaults());
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+public final class BulkheadUtils {
+
+    private BulkheadUtils(){}
+
+    static void isCallPermitted(Bulkhead bulkhead) {
+        if(!bulkhead.tryAcquirePermission()) {
+            throw bulkheadFull(bulkhead);
+        }
+    }
+
+    public static BulkheadFullException bulkheadFull(Bulkhead bulkhead) {
+        if (bulkhead instanceof SemaphoreBulkhead) {
+            return new BulkheadFullException(((SemaphoreBulkhead) bulkhead).getFullMessage());
+        }
+        return new BulkheadFullException(String.format("Bulkhead '%s' is full", bulkhead.getName()));
+    }
+}
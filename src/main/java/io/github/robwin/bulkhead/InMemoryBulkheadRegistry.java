@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bulkhead manager.
+ * Constructs the Bulkheads of the backends according to configuration values.
+ */
+final class InMemoryBulkheadRegistry implements BulkheadRegistry {
+
+    private final BulkheadConfig defaultBulkheadConfig;
+
+    /**
+     * The Bulkheads, indexed by name of the backend.
+     */
+    private final ConcurrentMap<String, Bulkhead> bulkheads;
+
+    /**
+     * The constructor with custom default Bulkhead properties.
+     *
+     * @param defaultBulkheadConfig The default Bulkhead configuration.
+     */
+    InMemoryBulkheadRegistry(BulkheadConfig defaultBulkheadConfig) {
+        this.defaultBulkheadConfig = Objects.requireNonNull(defaultBulkheadConfig, "BulkheadConfig must not be null");
+        this.bulkheads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bulkhead bulkhead(String name) {
+        return bulkhead(name, defaultBulkheadConfig);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bulkhead bulkhead(String name, BulkheadConfig bulkheadConfig) {
+        Bulkhead bulkhead = bulkheads.get(Objects.requireNonNull(name, "Name must not be null"));
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        return bulkheads.computeIfAbsent(name, (k) -> new SemaphoreBulkhead(name, bulkheadConfig));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Bulkhead based on a counter of available permits, which is changed with CAS. Acquiring and releasing a permit
+ * does not take a lock. Only a caller which has to wait for a permit synchronizes on a monitor, and a release only
+ * notifies the monitor, if someone is waiting.
+ */
+final class SemaphoreBulkhead implements Bulkhead {
+
+    private final String name;
+    private final BulkheadConfig bulkheadConfig;
+    private final long maxWaitTimeNanos;
+    private final String fullMessage;
+    private final AtomicInteger availablePermits;
+    private final AtomicInteger waitingCalls;
+    private final Object monitor = new Object();
+
+    SemaphoreBulkhead(String name, BulkheadConfig bulkheadConfig) {
+        this.name = Objects.requireNonNull(name, "Name must not be null");
+        this.bulkheadConfig = Objects.requireNonNull(bulkheadConfig, "BulkheadConfig must not be null");
+        this.maxWaitTimeNanos = TimeUnit.MILLISECONDS.toNanos(bulkheadConfig.getMaxWaitTime());
+        this.fullMessage = String.format("Bulkhead '%s' is full", name);
+        this.availablePermits = new AtomicInteger(bulkheadConfig.getMaxConcurrentCalls());
+        this.waitingCalls = new AtomicInteger();
+    }
+
+    @Override
+    public boolean tryAcquirePermission() {
+        if (tryAcquire()) {
+            return true;
+        }
+        return maxWaitTimeNanos > 0 && awaitPermission();
+    }
+
+    @Override
+    public void releasePermission() {
+        availablePermits.incrementAndGet();
+        if (waitingCalls.get() > 0) {
+            synchronized (monitor) {
+                monitor.notify();
+            }
+        }
+    }
+
+    @Override
+    public int getAvailableConcurrentCalls() {
+        return Math.max(availablePermits.get(), 0);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public BulkheadConfig getBulkheadConfig() {
+        return bulkheadConfig;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bulkhead '%s'", this.name);
+    }
+
+    String getFullMessage() {
+        return fullMessage;
+    }
+
+    private boolean tryAcquire() {
+        int permits;
+        do {
+            permits = availablePermits.get();
+            if (permits <= 0) {
+                return false;
+            }
+        } while (!availablePermits.compareAndSet(permits, permits - 1));
+        return true;
+    }
+
+    /**
+     * Waits for a permit until the maximum wait time has elapsed. The waiting call registers itself before it
+     * tries to acquire a permit while holding the monitor, so that a release cannot notify before the call waits.
+     */
+    private boolean awaitPermission() {
+        long deadline = System.nanoTime() + maxWaitTimeNanos;
+        waitingCalls.incrementAndGet();
+        try {
+            synchronized (monitor) {
+                try {
+                    while (!tryAcquire()) {
+                        long remainingNanos = deadline - System.nanoTime();
+                        if (remainingNanos <= 0) {
+                            passOnNotification();
+                            return false;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(monitor, remainingNanos);
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    passOnNotification();
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        } finally {
+            waitingCalls.decrementAndGet();
+        }
+    }
+
+    /**
+     * A call which gives up may have been notified of a release without taking the permit, so the notification
+     * is passed on to another waiting call. Must be called while holding the monitor.
+     */
+    private void passOnNotification() {
+        if (availablePermits.get() > 0) {
+            monitor.notify();
+        }
+    }
+}
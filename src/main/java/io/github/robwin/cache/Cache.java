@@ -0,0 +1,124 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.cache;
+
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the successful results of a backend. A fresh entry is served instead of calling the backend.
+ * A stale entry is only served if the call of the backend fails, e.g. because its CircuitBreaker is OPEN.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Returns the value of the key, if it has been written within the time to live.
+     *
+     * @param key the key
+     * @return the fresh value or null
+     */
+    V getIfFresh(K key);
+
+    /**
+     * Returns the value of the key, if it has been written within the time to live and the max staleness.
+     *
+     * @param key the key
+     * @return the fresh or stale value or null
+     */
+    V getIfPresent(K key);
+
+    /**
+     * Writes the value of the key. If the cache is full, an old entry is evicted.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    void put(K key, V value);
+
+    /**
+     * Get the number of entries, including stale entries which have not been evicted yet.
+     *
+     * @return the number of entries
+     */
+    int size();
+
+    /**
+     * Get the name of the Cache
+     *
+     * @return the name of the Cache
+     */
+    String getName();
+
+    /**
+     * Get the configuration of the Cache
+     *
+     * @return the configuration of the Cache
+     */
+    CacheConfig getCacheConfig();
+
+    /**
+     * Creates a Cache.
+     *
+     * @param name the name of the Cache
+     * @param cacheConfig the configuration
+     * @return a Cache
+     */
+    static <K, V> Cache<K, V> of(String name, CacheConfig cacheConfig) {
+        return new SampledEvictionCache<>(name, cacheConfig);
+    }
+
+    /**
+     * Creates a Cache with the default configuration.
+     *
+     * @param name the name of the Cache
+     * @return a Cache
+     */
+    static <K, V> Cache<K, V> ofDefaults(String name) {
+        return new SampledEvictionCache<>(name, CacheConfig.ofDefaults());
+    }
+
+    /**
+     * Decorates a function with a Cache. Decorate a function which is already decorated with a CircuitBreaker,
+     * so that the rejected calls of an OPEN or HALF_CLOSED CircuitBreaker are served with stale entries.
+     * Null results are not cached.
+     */
+    static <K, V> Function<K, V> decorateFunction(Function<K, V> function, Cache<K, V> cache){
+        return (K key) -> {
+            V value = cache.getIfFresh(key);
+            if (value != null) {
+                return value;
+            }
+            try {
+                value = function.apply(key);
+            } catch (RuntimeException exception) {
+                V staleValue = cache.getIfPresent(key);
+                if (staleValue != null) {
+                    return staleValue;
+                }
+                throw exception;
+            }
+            if (value != null) {
+                cache.put(key, value);
+            }
+            return value;
+        };
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.cache;
+
+import io.github.robwin.clock.Clock;
+
+public class CacheConfig {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+    private static final int DEFAULT_TIME_TO_LIVE = 1000;
+    private static final int DEFAULT_MAX_STALENESS = 60000;
+
+    // The maximum number of entries
+    private final int maximumSize;
+    // The time [ms] after its write in which an entry is served instead of calling the backend
+    private final int timeToLive;
+    // The time [ms] after the time to live in which an entry is served, if the call of the backend fails
+    private final int maxStaleness;
+    // The source of time for the age of the entries
+    private final Clock clock;
+
+    private CacheConfig(Builder builder) {
+        this.maximumSize = builder.maximumSize;
+        this.timeToLive = builder.timeToLive;
+        this.maxStaleness = builder.maxStaleness;
+        this.clock = builder.clock;
+    }
+
+    public Integer getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Integer getTimeToLive() {
+        return timeToLive;
+    }
+
+    public Integer getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public static CacheConfig.Builder custom(){
+        return new Builder();
+    }
+
+    public static CacheConfig ofDefaults(){
+        return new Builder().build();
+    }
+
+    public static class Builder {
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private int timeToLive = DEFAULT_TIME_TO_LIVE;
+        private int maxStaleness = DEFAULT_MAX_STALENESS;
+        private Clock clock = Clock.monotonic();
+
+        public Builder maximumSize(int maximumSize) {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("maximumSize must be greater than or equal to 1");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder timeToLive(int timeToLive) {
+            if (timeToLive < 1) {
+                throw new IllegalArgumentException("timeToLive must be at least 1[ms]");
+            }
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        public Builder maxStaleness(int maxStaleness) {
+            if (maxStaleness < 0) {
+                throw new IllegalArgumentException("maxStaleness must not be negative");
+            }
+            this.maxStaleness = maxStaleness;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("clock must not be null");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        public CacheConfig build() {
+            return new CacheConfig(this);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.cache;
+
+import io.github.robwin.clock.Clock;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A cache whose entries are immutable, so that a read is a lock-free lookup without a write.
+ * Expired and surplus entries are evicted incrementally by the writes: a write inspects a few entries of the cache,
+ * the cache is never scanned as a whole. If the cache is full, the oldest written entry among a sample is evicted.
+ */
+final class SampledEvictionCache<K, V> implements Cache<K, V> {
+
+    /**
+     * The number of entries which are inspected by a write to evict expired entries.
+     */
+    static final int SWEEP_BATCH_SIZE = 2;
+
+    /**
+     * The number of entries out of which the oldest written entry is evicted, if the cache is full.
+     */
+    static final int EVICTION_SAMPLE_SIZE = 5;
+
+    private final String name;
+    private final CacheConfig cacheConfig;
+    private final int maximumSize;
+    private final long timeToLive;
+    private final long expiry;
+    private final Clock clock;
+    private final ConcurrentMap<K, Entry<V>> entries;
+
+    /**
+     * Guards the cursor. Only one write at a time evicts, the other writes do not wait.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private Iterator<Map.Entry<K, Entry<V>>> cursor;
+
+    SampledEvictionCache(String name, CacheConfig cacheConfig) {
+        this.name = Objects.requireNonNull(name, "Name must not be null");
+        this.cacheConfig = Objects.requireNonNull(cacheConfig, "CacheConfig must not be null");
+        this.maximumSize = cacheConfig.getMaximumSize();
+        this.timeToLive = cacheConfig.getTimeToLive();
+        this.expiry = timeToLive + cacheConfig.getMaxStaleness();
+        this.clock = cacheConfig.getClock();
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public V getIfFresh(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || clock.currentTimeMillis() - entry.writeTime >= timeToLive) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.currentTimeMillis() - entry.writeTime >= expiry) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        long now = clock.currentTimeMillis();
+        entries.put(Objects.requireNonNull(key, "Key must not be null"), new Entry<>(Objects.requireNonNull(value, "Value must not be null"), now));
+        evict(now);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public CacheConfig getCacheConfig() {
+        return cacheConfig;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache '%s'", this.name);
+    }
+
+    /**
+     * Evicts expired entries and surplus entries if the cache is full, unless another write is already evicting.
+     */
+    private void evict(long now) {
+        if (evicting.get() || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sweep(now);
+            while (entries.size() > maximumSize && evictOldest()) {
+                // evict until the cache is not full
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Evicts the expired entries among the next entries of the cursor.
+     */
+    private void sweep(long now) {
+        for (int i = 0; i < SWEEP_BATCH_SIZE; i++) {
+            Map.Entry<K, Entry<V>> next = next();
+            if (next == null) {
+                return;
+            }
+            if (now - next.getValue().writeTime >= expiry) {
+                entries.remove(next.getKey(), next.getValue());
+            }
+        }
+    }
+
+    /**
+     * Evicts the oldest written entry among the next entries of the cursor.
+     *
+     * @return false, if the cache is empty
+     */
+    private boolean evictOldest() {
+        Map.Entry<K, Entry<V>> candidate = null;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+            Map.Entry<K, Entry<V>> next = next();
+            if (next == null) {
+                break;
+            }
+            if (candidate == null || next.getValue().writeTime < candidate.getValue().writeTime) {
+                candidate = next;
+            }
+        }
+        if (candidate == null) {
+            return false;
+        }
+        // the entry may have been replaced since, then another entry is evicted by the next round
+        entries.remove(candidate.getKey(), candidate.getValue());
+        return true;
+    }
+
+    /**
+     * @return the next entry of the cursor, which restarts at the end of the cache, or null if the cache is empty
+     */
+    private Map.Entry<K, Entry<V>> next() {
+        if (cursor == null || !cursor.hasNext()) {
+            cursor = entries.entrySet().iterator();
+            if (!cursor.hasNext()) {
+                return null;
+            }
+        }
+        return cursor.next();
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long writeTime;
+
+        private Entry(V value, long writeTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+}
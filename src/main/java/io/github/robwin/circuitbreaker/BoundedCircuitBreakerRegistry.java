@@ -0,0 +1,219 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Backend circuitBreaker manager with a maximum size and an idle timeout.
+ * Idle and surplus circuitBreakers are evicted incrementally by the lookups: a lookup inspects a few entries
+ * of the registry, the registry is never scanned as a whole. A circuitBreaker which is OPEN or HALF_CLOSED is never
+ * evicted, so the maximum size is exceeded while more circuitBreakers are not CLOSED.
+ */
+final class BoundedCircuitBreakerRegistry implements CircuitBreakerRegistry {
+
+    /**
+     * The number of entries which are inspected by a lookup to evict idle circuitBreakers.
+     */
+    static final int SWEEP_BATCH_SIZE = 2;
+
+    /**
+     * The number of entries out of which the least recently used CLOSED circuitBreaker is evicted, if the registry is full.
+     */
+    static final int EVICTION_SAMPLE_SIZE = 5;
+
+    private final CircuitBreakerConfig defaultCircuitBreakerConfig;
+    private final int maximumSize;
+    private final long idleTimeout;
+    private final Clock clock;
+
+    /**
+     * The circuitBreakers, indexed by name of the backend.
+     */
+    private final ConcurrentMap<String, Entry> circuitBreakers;
+
+    /**
+     * Guards the cursor. Only one lookup at a time evicts, the other lookups do not wait.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private Iterator<Map.Entry<String, Entry>> cursor;
+    private volatile long lastSweep;
+
+    /**
+     * @param defaultCircuitBreakerConfig The default CircuitBreaker configuration. Its clock measures the idle time.
+     * @param maximumSize the maximum number of CLOSED circuitBreakers
+     * @param idleTimeout the time after which a CLOSED circuitBreaker which has not been looked up is evicted
+     */
+    BoundedCircuitBreakerRegistry(CircuitBreakerConfig defaultCircuitBreakerConfig, int maximumSize, Duration idleTimeout) {
+        this.defaultCircuitBreakerConfig = Objects.requireNonNull(defaultCircuitBreakerConfig, "CircuitBreakerConfig must not be null");
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be greater than or equal to 1");
+        }
+        if (idleTimeout == null || idleTimeout.toMillis() < 1) {
+            throw new IllegalArgumentException("idleTimeout must be at least 1[ms]");
+        }
+        this.maximumSize = maximumSize;
+        this.idleTimeout = idleTimeout.toMillis();
+        this.clock = defaultCircuitBreakerConfig.getClock();
+        this.circuitBreakers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircuitBreaker circuitBreaker(String name) {
+        return circuitBreaker(name, defaultCircuitBreakerConfig);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircuitBreaker circuitBreaker(String name, CircuitBreakerConfig customCircuitBreakerConfig) {
+        Objects.requireNonNull(name, "Name must not be null");
+        long now = clock.currentTimeMillis();
+        Entry entry = circuitBreakers.get(name);
+        if (entry == null) {
+            entry = circuitBreakers.computeIfAbsent(name, (k) -> new Entry(new CircuitBreakerStateMachine(name,
+                    customCircuitBreakerConfig), now));
+        }
+        entry.touch(now);
+        evict(now);
+        return entry.circuitBreaker;
+    }
+
+    /**
+     * Reset the circuitBreaker states.
+     */
+    public void resetMonitorStates() {
+        circuitBreakers.values().forEach(entry -> entry.circuitBreaker.reset());
+    }
+
+    int size() {
+        return circuitBreakers.size();
+    }
+
+    /**
+     * Evicts idle circuitBreakers at most once per millisecond and surplus circuitBreakers if the registry is full,
+     * unless another lookup is already evicting.
+     */
+    private void evict(long now) {
+        boolean full = circuitBreakers.size() > maximumSize;
+        if ((!full && lastSweep == now) || evicting.get() || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (lastSweep != now) {
+                lastSweep = now;
+                sweep(now);
+            }
+            while (circuitBreakers.size() > maximumSize && evictLeastRecentlyUsed(now)) {
+                // evict until the registry is not full or no CLOSED circuitBreaker has been found
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Evicts the idle CLOSED circuitBreakers among the next entries of the cursor.
+     */
+    private void sweep(long now) {
+        for (int i = 0; i < SWEEP_BATCH_SIZE; i++) {
+            Map.Entry<String, Entry> next = next();
+            if (next == null) {
+                return;
+            }
+            Entry entry = next.getValue();
+            if (now - entry.lastAccess >= idleTimeout && isEvictable(entry, now)) {
+                circuitBreakers.remove(next.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used CLOSED circuitBreaker among the next entries of the cursor.
+     *
+     * @return false, if no CLOSED circuitBreaker has been found
+     */
+    private boolean evictLeastRecentlyUsed(long now) {
+        Map.Entry<String, Entry> candidate = null;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+            Map.Entry<String, Entry> next = next();
+            if (next == null) {
+                break;
+            }
+            if (isEvictable(next.getValue(), now)
+                    && (candidate == null || next.getValue().lastAccess < candidate.getValue().lastAccess)) {
+                candidate = next;
+            }
+        }
+        return candidate != null && circuitBreakers.remove(candidate.getKey(), candidate.getValue());
+    }
+
+    /**
+     * A circuitBreaker which has been looked up in the current millisecond is not evicted, so that a lookup does not
+     * evict the circuitBreaker it has just created.
+     */
+    private static boolean isEvictable(Entry entry, long now) {
+        return entry.lastAccess != now && entry.circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * @return the next entry of the cursor, which restarts at the end of the registry, or null if the registry is empty
+     */
+    private Map.Entry<String, Entry> next() {
+        if (cursor == null || !cursor.hasNext()) {
+            cursor = circuitBreakers.entrySet().iterator();
+            if (!cursor.hasNext()) {
+                return null;
+            }
+        }
+        return cursor.next();
+    }
+
+    private static final class Entry {
+
+        private final CircuitBreakerStateMachine circuitBreaker;
+        private volatile long lastAccess;
+
+        private Entry(CircuitBreakerStateMachine circuitBreaker, long lastAccess) {
+            this.circuitBreaker = circuitBreaker;
+            this.lastAccess = lastAccess;
+        }
+
+        /**
+         * Writes the access time only once per millisecond, so that frequent lookups do not contend on the entry.
+         */
+        private void touch(long now) {
+            if (lastAccess != now) {
+                lastAccess = now;
+            }
+        }
+    }
+}
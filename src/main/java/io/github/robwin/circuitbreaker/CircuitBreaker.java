@@ -18,9 +18,17 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import io.github.robwin.circuitbreaker.event.CircuitBreakerEventPublisher;
+import io.github.robwin.clock.Clock;
+
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * CircuitBreaker API.
@@ -47,12 +55,37 @@ public interface CircuitBreaker {
      */
     void recordFailure(Exception exception);
 
+    /**
+     * Records a backend failure together with the duration of the call.
+     * This must be called if a call to a backend fails.
+     * The default implementation ignores the duration.
+     *
+     * @param duration The elapsed time duration of the call
+     * @param durationUnit The time unit of the duration
+     * @param exception The exception which must be recorded
+     */
+    default void recordFailure(long duration, TimeUnit durationUnit, Exception exception) {
+        recordFailure(exception);
+    }
+
      /**
       * Records success of a call to a backend.
       * This must be called after a successful call.
       */
     void recordSuccess();
 
+    /**
+     * Records success of a call to a backend together with the duration of the call.
+     * This must be called after a successful call.
+     * The default implementation ignores the duration.
+     *
+     * @param duration The elapsed time duration of the call
+     * @param durationUnit The time unit of the duration
+     */
+    default void recordSuccess(long duration, TimeUnit durationUnit) {
+        recordSuccess();
+    }
+
     /**
      * Get the name of the CircuitBreaker
      *
@@ -67,6 +100,86 @@ public interface CircuitBreaker {
      */
     State getState();
 
+    /**
+     * Get the configuration of the CircuitBreaker.
+     * The default implementation returns the shared default configuration, whose clock is used by the decorators.
+     *
+     * @return the configuration of the CircuitBreaker
+     */
+    default CircuitBreakerConfig getCircuitBreakerConfig() {
+        return CircuitBreakerConfig.ofDefaults();
+    }
+
+    /**
+     * Get the publisher of the state transitions, rejected calls and recorded errors of the CircuitBreaker
+     *
+     * The default implementation does not publish events and returns {@link CircuitBreakerEventPublisher#noOp()}.
+     *
+     * @return the event publisher of the CircuitBreaker
+     */
+    default CircuitBreakerEventPublisher getEventPublisher() {
+        return CircuitBreakerEventPublisher.noOp();
+    }
+
+    /**
+     * Get the metrics of the CircuitBreaker
+     *
+     * The default implementation does not collect metrics and returns shared empty metrics,
+     * whose rates are -1 and whose counts are 0.
+     *
+     * @return the metrics of the CircuitBreaker
+     */
+    default Metrics getMetrics() {
+        return CircuitBreakerMetrics.EMPTY;
+    }
+
+    /**
+     * A live view of the metrics of a CircuitBreaker. Reading the metrics never blocks the calls of the CircuitBreaker.
+     *
+     * The number of calls are counted since the CircuitBreaker has been created. The failure rate, the slow call rate
+     * and the number of buffered calls refer to the calls in the ring buffer or the time window of the current or
+     * the last CLOSED state.
+     */
+    interface Metrics {
+
+        /**
+         * @return the failure rate in percentage or -1, if the failure rate is not enabled or there are not enough
+         * buffered calls yet
+         */
+        float getFailureRate();
+
+        /**
+         * @return the slow call rate in percentage or -1, if the slow call detection is not enabled or there are not
+         * enough buffered calls yet
+         */
+        float getSlowCallRate();
+
+        /**
+         * @return the number of calls in the ring buffer or the time window
+         */
+        int getNumberOfBufferedCalls();
+
+        /**
+         * @return the number of calls which have failed with a recorded exception
+         */
+        long getNumberOfFailedCalls();
+
+        /**
+         * @return the number of calls which have succeeded or failed with an ignored exception
+         */
+        long getNumberOfSuccessfulCalls();
+
+        /**
+         * @return the number of calls which have taken longer than the slow call duration threshold
+         */
+        long getNumberOfSlowCalls();
+
+        /**
+         * @return the number of calls which have not been permitted
+         */
+        long getNumberOfNotPermittedCalls();
+    }
+
     /**
      * States of the CircuitBreaker state machine.
      */
@@ -78,48 +191,265 @@ public interface CircuitBreaker {
          through. */
         OPEN,
         /** A HALF_CLOSED breaker has completed its cooldown
-         period and will allow one request */
+         period and will allow a (configurable) number of trial requests */
         HALF_CLOSED
     }
 
     static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, CircuitBreaker circuitBreaker){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
         return () -> {
             CircuitBreakerUtils.isCallPermitted(circuitBreaker);
+            long start = clock.nanoTime();
             try {
                 T returnValue = supplier.get();
-                circuitBreaker.recordSuccess();
+                circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
                 return returnValue;
             } catch (Exception exception) {
-                circuitBreaker.recordFailure(exception);
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
                 throw exception;
             }
         };
     }
 
     static Runnable decorateRunnable(Runnable runnable, CircuitBreaker circuitBreaker){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
         return () -> {
             CircuitBreakerUtils.isCallPermitted(circuitBreaker);
+            long start = clock.nanoTime();
             try{
                 runnable.run();
-                circuitBreaker.recordSuccess();
+                circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
             } catch (Exception exception){
-                circuitBreaker.recordFailure(exception);
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
                 throw exception;
             }
         };
     }
 
     static <T, R> Function<T, R> decorateFunction(Function<T, R> function, CircuitBreaker circuitBreaker){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
         return (T t) -> {
             CircuitBreakerUtils.isCallPermitted(circuitBreaker);
+            long start = clock.nanoTime();
             try{
                 R returnValue = function.apply(t);
-                circuitBreaker.recordSuccess();
+                circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
                 return returnValue;
             } catch (Exception exception){
-                circuitBreaker.recordFailure(exception);
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
                 throw exception;
             }
         };
     }
+
+    /**
+     * Decorates a supplier with a CircuitBreaker and a fallback. A rejected call goes straight to the fallback
+     * without creating an exception. A failed call is recorded and then answered by the fallback as well.
+     *
+     * @param supplier the supplier
+     * @param circuitBreaker the CircuitBreaker
+     * @param fallback the supplier of the result of a rejected or failed call
+     * @param <T> the type of the result
+     * @return a decorated supplier
+     */
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, CircuitBreaker circuitBreaker, Supplier<T> fallback){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+        return () -> {
+            if (!circuitBreaker.isCallPermitted()) {
+                return fallback.get();
+            }
+            long start = clock.nanoTime();
+            T returnValue;
+            try {
+                returnValue = supplier.get();
+            } catch (Exception exception) {
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
+                return fallback.get();
+            }
+            circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return returnValue;
+        };
+    }
+
+    /**
+     * Decorates a runnable with a CircuitBreaker and a fallback, which runs instead of a rejected or failed call.
+     *
+     * @param runnable the runnable
+     * @param circuitBreaker the CircuitBreaker
+     * @param fallback the runnable which runs instead of a rejected or failed call
+     * @return a decorated runnable
+     */
+    static Runnable decorateRunnable(Runnable runnable, CircuitBreaker circuitBreaker, Runnable fallback){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+        return () -> {
+            if (!circuitBreaker.isCallPermitted()) {
+                fallback.run();
+                return;
+            }
+            long start = clock.nanoTime();
+            try{
+                runnable.run();
+            } catch (Exception exception){
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
+                fallback.run();
+                return;
+            }
+            circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
+        };
+    }
+
+    /**
+     * Decorates a function with a CircuitBreaker and a fallback, which is applied to the argument of a rejected
+     * or failed call.
+     *
+     * @param function the function
+     * @param circuitBreaker the CircuitBreaker
+     * @param fallback the function which answers a rejected or failed call
+     * @param <T> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a decorated function
+     */
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, CircuitBreaker circuitBreaker, Function<T, R> fallback){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+        return (T t) -> {
+            if (!circuitBreaker.isCallPermitted()) {
+                return fallback.apply(t);
+            }
+            long start = clock.nanoTime();
+            R returnValue;
+            try{
+                returnValue = function.apply(t);
+            } catch (Exception exception){
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
+                return fallback.apply(t);
+            }
+            circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return returnValue;
+        };
+    }
+
+    /**
+     * Decorates a function with the CircuitBreaker of the key of its argument, e.g. the tenant of a request.
+     * The key is extracted from the argument on every call, no registry lookup and no boxing is involved.
+     *
+     * @param keyExtractor extracts the key of the CircuitBreaker from the argument
+     * @param function the function
+     * @param keyedCircuitBreaker the keyed CircuitBreaker
+     * @param <T> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a decorated function
+     */
+    static <T, R> Function<T, R> decorateKeyedFunction(ToLongFunction<T> keyExtractor, Function<T, R> function, KeyedCircuitBreaker keyedCircuitBreaker){
+        return (T t) -> {
+            long key = keyExtractor.applyAsLong(t);
+            if (!keyedCircuitBreaker.isCallPermitted(key)) {
+                throw CircuitBreakerUtils.callNotPermitted(keyedCircuitBreaker, key);
+            }
+            try{
+                R returnValue = function.apply(t);
+                keyedCircuitBreaker.recordSuccess(key);
+                return returnValue;
+            } catch (Exception exception){
+                keyedCircuitBreaker.recordFailure(key, exception);
+                throw exception;
+            }
+        };
+    }
+
+    /**
+     * Decorates a supplier of a CompletionStage. The outcome of the call is recorded when the CompletionStage completes,
+     * so no thread is blocked. If the call is not permitted, the returned CompletionStage has already failed
+     * with a {@link CircuitBreakerOpenException}. If the supplier returns null, a failure is recorded and the returned
+     * CompletionStage has already failed with a NullPointerException.
+     *
+     * @param supplier the supplier of the CompletionStage
+     * @param circuitBreaker the CircuitBreaker
+     * @param <T> the type of the result of the CompletionStage
+     * @return a decorated supplier
+     */
+    static <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> supplier, CircuitBreaker circuitBreaker){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+        return () -> {
+            if(!circuitBreaker.isCallPermitted()) {
+                CompletableFuture<T> promise = new CompletableFuture<>();
+                promise.completeExceptionally(CircuitBreakerUtils.callNotPermitted(circuitBreaker));
+                return promise;
+            }
+            long start = clock.nanoTime();
+            CompletionStage<T> stage;
+            try {
+                stage = supplier.get();
+                if (stage == null) {
+                    // the permission has been taken, so the call must be recorded like any other failed call
+                    throw new NullPointerException("The supplier returned null instead of a CompletionStage");
+                }
+            } catch (Exception exception) {
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
+                CompletableFuture<T> promise = new CompletableFuture<>();
+                promise.completeExceptionally(exception);
+                return promise;
+            }
+            return stage.whenComplete((result, throwable) -> {
+                long duration = clock.nanoTime() - start;
+                // dependent stages wrap the original exception
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                if (cause == null) {
+                    circuitBreaker.recordSuccess(duration, TimeUnit.NANOSECONDS);
+                } else if (cause instanceof Exception) {
+                    circuitBreaker.recordFailure(duration, TimeUnit.NANOSECONDS, (Exception) cause);
+                }
+            });
+        };
+    }
+
+    /**
+     * Decorates a supplier of a CompletionStage with a CircuitBreaker and a fallback. A rejected call goes straight
+     * to the fallback without creating an exception. A failed call is recorded and then answered by the fallback.
+     *
+     * @param supplier the supplier of the CompletionStage
+     * @param circuitBreaker the CircuitBreaker
+     * @param fallback the supplier of the CompletionStage of a rejected or failed call
+     * @param <T> the type of the result of the CompletionStage
+     * @return a decorated supplier
+     */
+    static <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> supplier, CircuitBreaker circuitBreaker,
+                                                                    Supplier<CompletionStage<T>> fallback){
+        Clock clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+        return () -> {
+            if(!circuitBreaker.isCallPermitted()) {
+                return fallback.get();
+            }
+            long start = clock.nanoTime();
+            CompletionStage<T> stage;
+            try {
+                stage = supplier.get();
+                if (stage == null) {
+                    // the permission has been taken, so the call must be recorded like any other failed call
+                    throw new NullPointerException("The supplier returned null instead of a CompletionStage");
+                }
+            } catch (Exception exception) {
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, exception);
+                return fallback.get();
+            }
+            return stage.<CompletionStage<T>>handle((result, throwable) -> {
+                long duration = clock.nanoTime() - start;
+                if (throwable == null) {
+                    circuitBreaker.recordSuccess(duration, TimeUnit.NANOSECONDS);
+                    return CompletableFuture.completedFuture(result);
+                }
+                // dependent stages wrap the original exception
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                if (!(cause instanceof Exception)) {
+                    // an Error is not answered by the fallback, like in the synchronous decorators
+                    CompletableFuture<T> future = new CompletableFuture<>();
+                    future.completeExceptionally(cause);
+                    return future;
+                }
+                circuitBreaker.recordFailure(duration, TimeUnit.NANOSECONDS, (Exception) cause);
+                return fallback.get();
+            }).thenCompose(Function.identity());
+        };
+    }
 }
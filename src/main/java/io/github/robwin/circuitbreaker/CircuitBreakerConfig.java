@@ -18,25 +18,84 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import io.github.robwin.circuitbreaker.event.RingBufferEventPublisher;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.exception.ExceptionClassifier;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class CircuitBreakerConfig {
 
     private static final int DEFAULT_MAX_FAILURES = 3;
     private static final int DEFAULT_WAIT_INTERVAL = 60000;
+    private static final int DEFAULT_RING_BUFFER_SIZE = 100;
+    private static final int DEFAULT_MINIMUM_NUMBER_OF_CALLS = 100;
+    private static final int DEFAULT_HALF_CLOSED_TRIAL_CALLS = 1;
+    private static final int DEFAULT_PROBE_TIMEOUT = 60000;
+    private static final int MAX_HALF_CLOSED_TRIAL_CALLS = 0xFFFF;
+    private static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+    private static final int DEFAULT_EVENT_BUFFER_SIZE = 128;
 
     // The maximum number of allowed failures
     private final int maxFailures;
     // The wait interval which specifies how long the CircuitBreaker should stay OPEN
     private final int waitInterval;
+    // Calculates the wait interval of every opening. By default, the fixed wait interval.
+    private final IntervalFunction waitIntervalFunction;
     // Exceptions which do not count as failures and thus not trigger the circuit breaker.
     private final List<Class<? extends Throwable>> ignoredExceptions;
+    // Exceptions which count as failures. If empty, all exceptions which are not ignored count as failures.
+    private final List<Class<? extends Throwable>> recordedExceptions;
+    // Decides whether an exception counts as a failure
+    private final ExceptionClassifier exceptionClassifier;
+    // The failure rate threshold in percentage. 0 means that consecutive failures are counted instead.
+    private final int failureRateThreshold;
+    // The number of most recent calls which are used to calculate the failure rate
+    private final int ringBufferSize;
+    // The number of seconds which are used to calculate the failure rate. 0 means that the ring buffer is used instead.
+    private final int timeWindowSize;
+    // The minimum number of calls in the time window before the failure rate is calculated
+    private final int minimumNumberOfCalls;
+    // The number of trial calls which are permitted while the CircuitBreaker is HALF_CLOSED
+    private final int halfClosedTrialCalls;
+    // The time after which a HALF_CLOSED CircuitBreaker goes back to OPEN, if the trial calls have not reported their outcome
+    private final int probeTimeout;
+    // The duration [ms] after which a call counts as slow. 0 means that the duration of calls is not evaluated.
+    private final int slowCallDurationThreshold;
+    // The slow call rate threshold in percentage
+    private final int slowCallRateThreshold;
+    // The source of time for the wait interval, the probe timeout, the time window and the duration of calls
+    private final Clock clock;
+    // The number of events which are buffered until they are consumed by the subscribers
+    private final int eventBufferSize;
+    // Dispatches the events to the subscribers
+    private final Executor eventExecutor;
+    // Whether a rejected call throws a new CircuitBreakerOpenException with a stack trace or a cached one without
+    private final boolean writableStackTraceEnabled;
 
-    private CircuitBreakerConfig(int maxFailures, int waitInterval, List<Class<? extends Throwable>> ignoredExceptions){
-        this.maxFailures = maxFailures;
-        this.waitInterval = waitInterval;
-        this.ignoredExceptions = ignoredExceptions;
+    private CircuitBreakerConfig(Builder builder){
+        this.maxFailures = builder.maxFailures;
+        this.waitInterval = builder.waitInterval;
+        this.waitIntervalFunction = builder.waitIntervalFunction != null ? builder.waitIntervalFunction
+                : IntervalFunction.ofFixed(builder.waitInterval);
+        this.ignoredExceptions = Collections.unmodifiableList(new ArrayList<>(builder.ignoredExceptions));
+        this.recordedExceptions = Collections.unmodifiableList(new ArrayList<>(builder.recordedExceptions));
+        this.exceptionClassifier = ExceptionClassifier.of(builder.recordedExceptions, builder.ignoredExceptions);
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.ringBufferSize = builder.ringBufferSize;
+        this.timeWindowSize = builder.timeWindowSize;
+        this.minimumNumberOfCalls = builder.minimumNumberOfCalls;
+        this.halfClosedTrialCalls = builder.halfClosedTrialCalls;
+        this.probeTimeout = builder.probeTimeout;
+        this.slowCallDurationThreshold = builder.slowCallDurationThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.clock = builder.clock;
+        this.eventBufferSize = builder.eventBufferSize;
+        this.eventExecutor = builder.eventExecutor;
+        this.writableStackTraceEnabled = builder.writableStackTraceEnabled;
     }
 
     public Integer getMaxFailures() {
@@ -47,18 +106,118 @@ public class CircuitBreakerConfig {
         return waitInterval;
     }
 
+    public IntervalFunction getWaitIntervalFunction() {
+        return waitIntervalFunction;
+    }
+
     public List<Class<? extends Throwable>> getIgnoredExceptions() {
         return ignoredExceptions;
     }
 
+    public List<Class<? extends Throwable>> getRecordedExceptions() {
+        return recordedExceptions;
+    }
+
+    public ExceptionClassifier getExceptionClassifier() {
+        return exceptionClassifier;
+    }
+
+    public Integer getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public Integer getRingBufferSize() {
+        return ringBufferSize;
+    }
+
+    public Integer getTimeWindowSize() {
+        return timeWindowSize;
+    }
+
+    public Integer getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public Integer getHalfClosedTrialCalls() {
+        return halfClosedTrialCalls;
+    }
+
+    public Integer getProbeTimeout() {
+        return probeTimeout;
+    }
+
+    public Integer getSlowCallDurationThreshold() {
+        return slowCallDurationThreshold;
+    }
+
+    public Integer getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public Integer getEventBufferSize() {
+        return eventBufferSize;
+    }
+
+    public Executor getEventExecutor() {
+        return eventExecutor;
+    }
+
+    public boolean isWritableStackTraceEnabled() {
+        return writableStackTraceEnabled;
+    }
+
+    /**
+     * @return true, if the CircuitBreaker should trip on the failure rate of the last calls
+     * instead of on the number of consecutive failures
+     */
+    public boolean isFailureRateEnabled() {
+        return failureRateThreshold > 0;
+    }
+
+    /**
+     * @return true, if the CircuitBreaker should also trip on the rate of slow calls of the last calls
+     */
+    public boolean isSlowCallDetectionEnabled() {
+        return slowCallDurationThreshold > 0;
+    }
+
     public static CircuitBreakerConfig.Builder custom(){
         return new Builder();
     }
 
+    /**
+     * @return the shared default configuration, which is immutable like every configuration
+     */
+    public static CircuitBreakerConfig ofDefaults(){
+        return DefaultConfigHolder.CONFIG;
+    }
+
+    private static final class DefaultConfigHolder {
+        private static final CircuitBreakerConfig CONFIG = new Builder().build();
+    }
+
     public static class Builder {
         private int maxFailures = DEFAULT_MAX_FAILURES;
         private int waitInterval = DEFAULT_WAIT_INTERVAL;
+        private IntervalFunction waitIntervalFunction;
         private List<Class<? extends Throwable>> ignoredExceptions = new ArrayList<>();
+        private List<Class<? extends Throwable>> recordedExceptions = new ArrayList<>();
+        private int failureRateThreshold = 0;
+        private int ringBufferSize = DEFAULT_RING_BUFFER_SIZE;
+        private int timeWindowSize = 0;
+        private int minimumNumberOfCalls = DEFAULT_MINIMUM_NUMBER_OF_CALLS;
+        private int halfClosedTrialCalls = DEFAULT_HALF_CLOSED_TRIAL_CALLS;
+        private int probeTimeout = DEFAULT_PROBE_TIMEOUT;
+        private int slowCallDurationThreshold = 0;
+        private int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+        private Clock clock = Clock.monotonic();
+        private int eventBufferSize = DEFAULT_EVENT_BUFFER_SIZE;
+        private Executor eventExecutor = RingBufferEventPublisher.defaultExecutor();
+        private boolean writableStackTraceEnabled = true;
 
         public Builder maxFailures(int maxFailures) {
             if (maxFailures < 1) {
@@ -76,6 +235,21 @@ public class CircuitBreakerConfig {
             return this;
         }
 
+        /**
+         * Configures a function which calculates the wait interval of every opening instead of the fixed
+         * {@link #waitInterval(int)}, e.g. an exponential function or a function with jitter.
+         *
+         * @param waitIntervalFunction the function which calculates the wait interval
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder waitIntervalFunction(IntervalFunction waitIntervalFunction) {
+            if (waitIntervalFunction == null) {
+                throw new IllegalArgumentException("waitIntervalFunction must not be null");
+            }
+            this.waitIntervalFunction = waitIntervalFunction;
+            return this;
+        }
+
         public Builder ignoredException(Class<? extends Throwable> ignoredException) {
             if (ignoredException == null) {
                 throw new IllegalArgumentException("ignoredException must not be null");
@@ -92,8 +266,209 @@ public class CircuitBreakerConfig {
             return this;
         }
 
+        /**
+         * Adds an exception which counts as a failure. If at least one recorded exception is configured,
+         * only recorded exceptions count as failures. Ignored exceptions take precedence over recorded exceptions.
+         *
+         * @param recordedException the exception which counts as a failure
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder recordedException(Class<? extends Throwable> recordedException) {
+            if (recordedException == null) {
+                throw new IllegalArgumentException("recordedException must not be null");
+            }
+            recordedExceptions.add(recordedException);
+            return this;
+        }
+
+        public Builder recordedExceptions(List<Class<? extends Throwable>> recordedExceptions) {
+            if (recordedExceptions == null) {
+                throw new IllegalArgumentException("recordedExceptions must not be null");
+            }
+            this.recordedExceptions = recordedExceptions;
+            return this;
+        }
+
+        /**
+         * Configures the failure rate threshold in percentage. If the failure rate of the last calls is equal to or
+         * greater than the threshold, the CircuitBreaker trips. A failure rate threshold replaces {@link #maxFailures(int)}.
+         *
+         * @param failureRateThreshold the failure rate threshold in percentage
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder failureRateThreshold(int failureRateThreshold) {
+            if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+                throw new IllegalArgumentException("failureRateThreshold must be between 1 and 100");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Configures the number of most recent calls which are used to calculate the failure rate.
+         * The failure rate is not calculated before the ring buffer is full.
+         *
+         * @param ringBufferSize the size of the ring buffer
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder ringBufferSize(int ringBufferSize) {
+            if (ringBufferSize < 1) {
+                throw new IllegalArgumentException("ringBufferSize must be greater than or equal to 1");
+            }
+            this.ringBufferSize = ringBufferSize;
+            return this;
+        }
+
+        /**
+         * Configures a time window [s] which is used to calculate the failure rate instead of the ring buffer.
+         * The failure rate is calculated from all calls of the last timeWindowSize seconds.
+         *
+         * @param timeWindowSize the size of the time window in seconds
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder timeWindowSize(int timeWindowSize) {
+            if (timeWindowSize < 1) {
+                throw new IllegalArgumentException("timeWindowSize must be at least 1[s]");
+            }
+            this.timeWindowSize = timeWindowSize;
+            return this;
+        }
+
+        /**
+         * Configures the minimum number of calls in the time window before the failure rate is calculated.
+         *
+         * @param minimumNumberOfCalls the minimum number of calls
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder minimumNumberOfCalls(int minimumNumberOfCalls) {
+            if (minimumNumberOfCalls < 1) {
+                throw new IllegalArgumentException("minimumNumberOfCalls must be greater than or equal to 1");
+            }
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+            return this;
+        }
+
+        /**
+         * Configures the number of trial calls which are permitted while the CircuitBreaker is HALF_CLOSED.
+         * All other calls are rejected. The CircuitBreaker is CLOSED again, if all trial calls have succeeded,
+         * and OPEN again, if one of them has failed.
+         *
+         * @param halfClosedTrialCalls the number of trial calls
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder halfClosedTrialCalls(int halfClosedTrialCalls) {
+            if (halfClosedTrialCalls < 1 || halfClosedTrialCalls > MAX_HALF_CLOSED_TRIAL_CALLS) {
+                throw new IllegalArgumentException("halfClosedTrialCalls must be between 1 and " + MAX_HALF_CLOSED_TRIAL_CALLS);
+            }
+            this.halfClosedTrialCalls = halfClosedTrialCalls;
+            return this;
+        }
+
+        /**
+         * Configures the probe timeout [ms]. If all trial calls have been permitted, but have not reported their outcome
+         * within the probe timeout, the CircuitBreaker goes back to OPEN.
+         *
+         * @param probeTimeout the probe timeout [ms]
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder probeTimeout(int probeTimeout) {
+            if (probeTimeout < 100) {
+                throw new IllegalArgumentException("probeTimeout must be at least 100[ms]");
+            }
+            this.probeTimeout = probeTimeout;
+            return this;
+        }
+
+        /**
+         * Configures the duration threshold [ms] above which calls are considered as slow. The slow calls of the last
+         * calls are recorded in the ring buffer or the time window, even if the CircuitBreaker counts consecutive failures.
+         *
+         * @param slowCallDurationThreshold the duration threshold [ms]
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder slowCallDurationThreshold(int slowCallDurationThreshold) {
+            if (slowCallDurationThreshold < 1) {
+                throw new IllegalArgumentException("slowCallDurationThreshold must be at least 1[ms]");
+            }
+            this.slowCallDurationThreshold = slowCallDurationThreshold;
+            return this;
+        }
+
+        /**
+         * Configures the slow call rate threshold in percentage. If the rate of slow calls of the last calls is equal to
+         * or greater than the threshold, the CircuitBreaker trips, regardless of whether the slow calls have failed.
+         * Only used, if a {@link #slowCallDurationThreshold(int)} is configured. The default is 100.
+         *
+         * @param slowCallRateThreshold the slow call rate threshold in percentage
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder slowCallRateThreshold(int slowCallRateThreshold) {
+            if (slowCallRateThreshold < 1 || slowCallRateThreshold > 100) {
+                throw new IllegalArgumentException("slowCallRateThreshold must be between 1 and 100");
+            }
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Configures the source of time of the CircuitBreaker. The default is {@link Clock#monotonic()}.
+         *
+         * @param clock the clock
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder clock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("clock must not be null");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Configures the number of events which are buffered until they are consumed by the subscribers.
+         * If the buffer is full, the latest events are dropped. The default is 128.
+         *
+         * @param eventBufferSize the size of the event buffer
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder eventBufferSize(int eventBufferSize) {
+            if (eventBufferSize < 1) {
+                throw new IllegalArgumentException("eventBufferSize must be greater than or equal to 1");
+            }
+            this.eventBufferSize = eventBufferSize;
+            return this;
+        }
+
+        /**
+         * Configures the executor which dispatches the events to the subscribers.
+         * By default, the events of all CircuitBreakers are dispatched by a single daemon thread.
+         *
+         * @param eventExecutor the executor
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder eventExecutor(Executor eventExecutor) {
+            if (eventExecutor == null) {
+                throw new IllegalArgumentException("eventExecutor must not be null");
+            }
+            this.eventExecutor = eventExecutor;
+            return this;
+        }
+
+        /**
+         * Configures whether a rejected call throws a new CircuitBreakerOpenException with a stack trace.
+         * If disabled, all rejected calls of a CircuitBreaker throw the same CircuitBreakerOpenException without
+         * a stack trace, so that rejecting calls during an outage does not allocate. The default is true.
+         *
+         * @param writableStackTraceEnabled whether the CircuitBreakerOpenException has a stack trace
+         * @return the CircuitBreakerConfig.Builder
+         */
+        public Builder writableStackTraceEnabled(boolean writableStackTraceEnabled) {
+            this.writableStackTraceEnabled = writableStackTraceEnabled;
+            return this;
+        }
+
         public CircuitBreakerConfig build() {
-            return new CircuitBreakerConfig(maxFailures, waitInterval, ignoredExceptions);
+            return new CircuitBreakerConfig(this);
         }
     }
 }
@@ -0,0 +1,95 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a CircuitBreaker. The calls are counted by striped {@link LongAdder} counters, so that concurrent
+ * callers do not contend on a single atomic variable, and a reader only sums up the cells.
+ */
+final class CircuitBreakerMetrics implements CircuitBreaker.Metrics {
+
+    // the metrics of a CircuitBreaker which does not collect metrics, nothing is ever recorded on them
+    static final CircuitBreakerMetrics EMPTY = new CircuitBreakerMetrics(null);
+
+    // null, if neither the failure rate nor the slow call detection is enabled
+    private final SlidingWindow slidingWindow;
+    private final LongAdder numberOfFailedCalls = new LongAdder();
+    private final LongAdder numberOfSuccessfulCalls = new LongAdder();
+    private final LongAdder numberOfSlowCalls = new LongAdder();
+    private final LongAdder numberOfNotPermittedCalls = new LongAdder();
+
+    CircuitBreakerMetrics(SlidingWindow slidingWindow) {
+        this.slidingWindow = slidingWindow;
+    }
+
+    void onSuccess(boolean slowCall) {
+        numberOfSuccessfulCalls.increment();
+        if (slowCall) {
+            numberOfSlowCalls.increment();
+        }
+    }
+
+    void onError(boolean slowCall) {
+        numberOfFailedCalls.increment();
+        if (slowCall) {
+            numberOfSlowCalls.increment();
+        }
+    }
+
+    void onCallNotPermitted() {
+        numberOfNotPermittedCalls.increment();
+    }
+
+    @Override
+    public float getFailureRate() {
+        return slidingWindow != null ? slidingWindow.getFailureRate() : -1;
+    }
+
+    @Override
+    public float getSlowCallRate() {
+        return slidingWindow != null ? slidingWindow.getSlowCallRate() : -1;
+    }
+
+    @Override
+    public int getNumberOfBufferedCalls() {
+        return slidingWindow != null ? slidingWindow.getNumberOfBufferedCalls() : 0;
+    }
+
+    @Override
+    public long getNumberOfFailedCalls() {
+        return numberOfFailedCalls.sum();
+    }
+
+    @Override
+    public long getNumberOfSuccessfulCalls() {
+        return numberOfSuccessfulCalls.sum();
+    }
+
+    @Override
+    public long getNumberOfSlowCalls() {
+        return numberOfSlowCalls.sum();
+    }
+
+    @Override
+    public long getNumberOfNotPermittedCalls() {
+        return numberOfNotPermittedCalls.sum();
+    }
+}
@@ -31,6 +31,17 @@ public class CircuitBreakerOpenException extends RuntimeException {
     public CircuitBreakerOpenException(String message) {
         super(message);
     }
+
+    /**
+     * The constructor of an exception which can be shared by all rejected calls, if it has no stack trace.
+     * Its suppressed exceptions are disabled as well, so that a shared instance does not collect them.
+     *
+     * @param message The message.
+     * @param writableStackTrace whether the stack trace and suppressed exceptions are enabled
+     */
+    CircuitBreakerOpenException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
 }
 
 
@@ -18,6 +18,9 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * Backend circuitBreaker manager.
@@ -46,7 +49,48 @@ public interface CircuitBreakerRegistry {
         return new InMemoryCircuitBreakerRegistry(defaultCircuitBreakerConfig);
     }
 
+    /**
+     * Creates a registry whose CircuitBreakers keep their state in a snapshot file across restarts.
+     *
+     * @param defaultCircuitBreakerConfig the default CircuitBreaker configuration
+     * @param snapshot the snapshot, see {@link CircuitBreakerSnapshot#open(java.nio.file.Path, int)}
+     * @return a CircuitBreakerRegistry which restores and persists the states of its CircuitBreakers
+     */
+    static CircuitBreakerRegistry of(CircuitBreakerConfig defaultCircuitBreakerConfig, CircuitBreakerSnapshot snapshot){
+        return new InMemoryCircuitBreakerRegistry(defaultCircuitBreakerConfig, snapshot);
+    }
+
+    /**
+     * Creates a registry whose CircuitBreakers share their state with the registries of other processes of the host
+     * which use the same file. A CircuitBreaker which is opened by one process is OPEN for all of them.
+     * The configurations must use a wall clock like {@link io.github.robwin.clock.Clock#system()}, because the deadlines
+     * in the file are compared by all processes.
+     *
+     * @param defaultCircuitBreakerConfig the default CircuitBreaker configuration
+     * @param file the shared file, which is created if it does not exist
+     * @param capacity the maximum number of shared CircuitBreakers, if the file is created
+     * @return a CircuitBreakerRegistry which shares the states of its CircuitBreakers
+     * @throws IOException if the file cannot be mapped
+     */
+    static CircuitBreakerRegistry ofSharedMemory(CircuitBreakerConfig defaultCircuitBreakerConfig, Path file, int capacity) throws IOException {
+        return new SharedMemoryCircuitBreakerRegistry(defaultCircuitBreakerConfig, SharedStateWordFile.open(file, capacity));
+    }
+
     static CircuitBreakerRegistry ofDefaults(){
         return new InMemoryCircuitBreakerRegistry();
     }
+
+    /**
+     * Creates a registry which holds at most {@code maximumSize} CLOSED CircuitBreakers and evicts a CLOSED
+     * CircuitBreaker which has not been looked up for {@code idleTimeout}. The eviction is done incrementally by the
+     * lookups. OPEN and HALF_CLOSED CircuitBreakers are never evicted.
+     *
+     * @param defaultCircuitBreakerConfig the default CircuitBreaker configuration. Its clock measures the idle time.
+     * @param maximumSize the maximum number of CLOSED CircuitBreakers
+     * @param idleTimeout the idle time after which a CLOSED CircuitBreaker is evicted
+     * @return a bounded CircuitBreakerRegistry
+     */
+    static CircuitBreakerRegistry ofBounded(CircuitBreakerConfig defaultCircuitBreakerConfig, int maximumSize, Duration idleTimeout){
+        return new BoundedCircuitBreakerRegistry(defaultCircuitBreakerConfig, maximumSize, idleTimeout);
+    }
 }
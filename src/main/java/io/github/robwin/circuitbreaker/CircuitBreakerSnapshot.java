@@ -0,0 +1,250 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A memory-mapped file which keeps the state of the CircuitBreakers of a registry across restarts, so that an OPEN
+ * CircuitBreaker stays OPEN until its retryAfter time after the application has been restarted.
+ *
+ * The snapshot is written on every state transition. A write is a store into the mapped memory, the operating system
+ * writes it back to the file. Opening the snapshot only maps the file, a slot is read when the CircuitBreaker of its
+ * name is created. Calls never touch the snapshot. Every CircuitBreaker keeps its {@link Slot}, so a transition only
+ * locks the slot of its CircuitBreaker and the hash table is only searched to find or claim a slot.
+ *
+ * <pre>
+ * header: magic (int) | version (int) | capacity (int) | reserved (int)
+ * slot:   name hash (long) | retryAfter [ms] (long) | state (int) | reserved (int)
+ * </pre>
+ *
+ * The slots are an open-addressing hash table over the 64-bit hash of the CircuitBreaker name. A slot is claimed
+ * by the first transition of a CircuitBreaker and is never released. If all slots are claimed, the state of further
+ * CircuitBreakers is not persisted, and the snapshot remembers that it is full, so that it is not searched again. A restored OPEN CircuitBreaker keeps its retryAfter time, which is only meaningful
+ * if the clock of the CircuitBreaker is based on the wall-clock time. A restored HALF_CLOSED CircuitBreaker becomes
+ * OPEN and permits a trial call immediately.
+ */
+public final class CircuitBreakerSnapshot implements Closeable {
+
+    static final int MAGIC = 0x43425331;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int SLOT_SIZE = 24;
+
+    private static final int HASH_OFFSET = 0;
+    private static final int RETRY_AFTER_OFFSET = 8;
+    private static final int STATE_OFFSET = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    // set when all slots are claimed, which is final because a slot is never released
+    private volatile boolean full;
+
+    private CircuitBreakerSnapshot(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens an existing snapshot file or creates a new one.
+     *
+     * @param file the snapshot file
+     * @param capacity the maximum number of CircuitBreakers of a new snapshot file. An existing file keeps its capacity.
+     * @return the snapshot
+     * @throws IOException if the file cannot be mapped or is not a snapshot file
+     */
+    public static CircuitBreakerSnapshot open(Path file, int capacity) throws IOException {
+        Objects.requireNonNull(file, "File must not be null");
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be greater than or equal to 1");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                return new CircuitBreakerSnapshot(channel, buffer, capacity);
+            }
+            if (size < HEADER_SIZE) {
+                throw new IOException(String.format("'%s' is not a CircuitBreaker snapshot", file));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            int existingCapacity = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || existingCapacity < 1
+                    || size < HEADER_SIZE + (long) existingCapacity * SLOT_SIZE) {
+                throw new IOException(String.format("'%s' is not a CircuitBreaker snapshot", file));
+            }
+            return new CircuitBreakerSnapshot(channel, buffer, existingCapacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the snapshot to the file. It is not necessary to flush the snapshot to survive a restart of the
+     * application, only to survive a crash of the operating system.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Flushes and closes the snapshot. The CircuitBreakers of the registry must not change their state afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Finds the slot of a CircuitBreaker, which is claimed by its first transition if the name is not in the snapshot.
+     *
+     * @param name the name of the CircuitBreaker
+     * @return the slot of the CircuitBreaker
+     */
+    synchronized Slot slot(String name) {
+        long hash = hash(name);
+        int slot = findSlot(hash);
+        return new Slot(hash, slot >= 0 && buffer.getLong(slot + HASH_OFFSET) == hash ? slot : Slot.UNCLAIMED);
+    }
+
+    /**
+     * Claims a free slot for the hash, unless the snapshot is full.
+     *
+     * @return the offset of the slot, or {@link Slot#UNCLAIMED} if all slots are claimed by other names
+     */
+    private synchronized int claimSlot(long hash) {
+        if (full) {
+            return Slot.UNCLAIMED;
+        }
+        int slot = findSlot(hash);
+        if (slot < 0) {
+            return Slot.UNCLAIMED;
+        }
+        buffer.putLong(slot + HASH_OFFSET, hash);
+        return slot;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the offset of the slot of the hash or of the first free slot, or -1 if all slots are claimed by other names
+     */
+    private int findSlot(long hash) {
+        int index = (int) ((hash & Long.MAX_VALUE) % capacity);
+        for (int i = 0; i < capacity; i++) {
+            int slot = HEADER_SIZE + index * SLOT_SIZE;
+            long slotHash = buffer.getLong(slot + HASH_OFFSET);
+            if (slotHash == hash || slotHash == 0) {
+                return slot;
+            }
+            index = index + 1 == capacity ? 0 : index + 1;
+        }
+        full = true;
+        return -1;
+    }
+
+    boolean isFull() {
+        return full;
+    }
+
+    /**
+     * The slot of a CircuitBreaker, which writes its transitions into the snapshot.
+     */
+    final class Slot implements StateTransitionListener {
+
+        static final int UNCLAIMED = -1;
+
+        private final long hash;
+        // guarded by this
+        private int offset;
+
+        private Slot(long hash, int offset) {
+            this.hash = hash;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the state word of the CircuitBreaker of the snapshot, or the initial state word if it was CLOSED
+         * or is unknown
+         */
+        synchronized long restore() {
+            if (offset == UNCLAIMED) {
+                return StateWord.INITIAL;
+            }
+            int state = buffer.getInt(offset + STATE_OFFSET);
+            if (state == CircuitBreaker.State.OPEN.ordinal()) {
+                return StateWord.transition(StateWord.INITIAL, CircuitBreaker.State.OPEN, buffer.getLong(offset + RETRY_AFTER_OFFSET));
+            }
+            if (state == CircuitBreaker.State.HALF_CLOSED.ordinal()) {
+                return StateWord.transition(StateWord.INITIAL, CircuitBreaker.State.OPEN, 0);
+            }
+            return StateWord.INITIAL;
+        }
+
+        /**
+         * Writes the current state of the CircuitBreaker. The state word is read while holding the lock of the slot,
+         * so that the last write of concurrent transitions always writes the latest state.
+         */
+        @Override
+        public synchronized void onStateTransition(CircuitBreakerStateMachine circuitBreaker) {
+            long stateWord = circuitBreaker.getStateWord();
+            CircuitBreaker.State state = StateWord.state(stateWord);
+            if (offset == UNCLAIMED) {
+                // a CLOSED CircuitBreaker without a slot has nothing to persist
+                if (state == CircuitBreaker.State.CLOSED || full) {
+                    return;
+                }
+                offset = claimSlot(hash);
+                if (offset == UNCLAIMED) {
+                    return;
+                }
+            }
+            buffer.putLong(offset + RETRY_AFTER_OFFSET, state == CircuitBreaker.State.OPEN ? StateWord.payload(stateWord) : 0);
+            buffer.putInt(offset + STATE_OFFSET, state.ordinal());
+        }
+    }
+
+    /**
+     * FNV-1a hash of the name. 0 marks a free slot and is never returned.
+     */
+    static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+}
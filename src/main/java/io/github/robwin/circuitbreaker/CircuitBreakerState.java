@@ -18,63 +18,48 @@
  */
 package io.github.robwin.circuitbreaker;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
  * States of the CircuitBreaker state machine.
+ *
+ * A CircuitBreaker creates one instance of every state upfront. The states do not hold the failure count or
+ * the retryAfter time themselves, they only interpret the state word of the state machine (see {@link StateWord})
+ * which is passed to every method. If a state cannot apply its change, because the state word has been changed
+ * concurrently, it reads the state word again. A caller who is competing for a permission is dispatched to the
+ * current state, whereas the outcome of a call is discarded, if the CircuitBreaker has left the state in the meantime.
  */
 abstract class CircuitBreakerState {
 
-    protected CircuitBreakerStateMachine stateMachine;
-    protected int maxFailures;
-    protected long waitInterval;
-
-    protected final AtomicInteger numOfFailures;
-    protected final AtomicLong retryAfter;
-
-    public CircuitBreakerState(CircuitBreakerStateMachine stateMachine, int numOfFailures, long retryAfter) {
-        this.stateMachine = stateMachine;
-        this.numOfFailures = new AtomicInteger(numOfFailures);
-        this.retryAfter = new AtomicLong(retryAfter);
-        this.maxFailures = stateMachine.getCircuitBreakerConfig().getMaxFailures();
-        this.waitInterval = stateMachine.getCircuitBreakerConfig().getWaitInterval();
-    }
+    protected final CircuitBreakerStateMachine stateMachine;
 
-    public CircuitBreakerState(CircuitBreakerStateMachine stateMachine, CircuitBreakerState currentState) {
+    CircuitBreakerState(CircuitBreakerStateMachine stateMachine) {
         this.stateMachine = stateMachine;
-        this.numOfFailures = currentState.getNumOfFailures();
-        this.retryAfter = currentState.getRetryAfter();
-        this.maxFailures = stateMachine.getCircuitBreakerConfig().getMaxFailures();
-        this.waitInterval = stateMachine.getCircuitBreakerConfig().getWaitInterval();
-    }
-
-    private AtomicInteger getNumOfFailures(){
-        return numOfFailures;
-    }
-
-    private AtomicLong getRetryAfter(){
-        return retryAfter;
     }
 
     /**
      * Requests permission to call a circuitBreaker's backend.
      *
+     * @param stateWord the state word which has been read by the caller
      * @return boolean whether a call should be permitted
      */
-    abstract boolean isCallPermitted();
+    abstract boolean isCallPermitted(long stateWord);
 
     /**
      * Records a backend failure.
      * This must be called if a call to a backend fails
+     *
+     * @param stateWord the state word which has been read by the caller
+     * @param slowCall true, if the call has taken longer than the slow call duration threshold
      */
-    abstract void recordFailure();
+    abstract void recordFailure(long stateWord, boolean slowCall);
 
     /**
      * Records success of a call to this backend.
      * This must be called after a successful call.
+     *
+     * @param stateWord the state word which has been read by the caller
+     * @param slowCall true, if the call has taken longer than the slow call duration threshold
      */
-    abstract void recordSuccess();
+    abstract void recordSuccess(long stateWord, boolean slowCall);
 
     /**
      * Get the state of the CircuitBreaker
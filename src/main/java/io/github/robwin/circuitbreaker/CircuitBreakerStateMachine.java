@@ -19,7 +19,13 @@
 package io.github.robwin.circuitbreaker;
 
 
-import java.util.concurrent.atomic.AtomicReference;
+import io.github.robwin.circuitbreaker.event.CircuitBreakerEvent;
+import io.github.robwin.circuitbreaker.event.CircuitBreakerEventPublisher;
+import io.github.robwin.circuitbreaker.event.RingBufferEventPublisher;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.exception.ExceptionClassifier;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * CircuitBreaker finite state machine.
@@ -29,12 +35,41 @@ import java.util.concurrent.atomic.AtomicReference;
  * The state of the CircuitBreaker changes from `CLOSED` to `OPEN` if a (configurable) number of call attempts have failed consecutively.
  * Then, all access to the backend is blocked for a (configurable) time interval. After that, the CircuitBreaker state changes to `HALF_CLOSED` tentatively, to see if the backend is still dead or has become available again.
  * On success or failure, the state changes back to `CLOSED` or `OPEN`, respectively.
+ *
+ * The state, the number of consecutive failures and the retryAfter time are packed into a single state word
+ * (see {@link StateWord}) which is changed with CAS. The states are created once per CircuitBreaker, so that neither
+ * a call nor a transition allocates. A successful call of a healthy CircuitBreaker only reads the state word.
+ *
+ * If the slow call detection is enabled, a call which has taken longer than the slow call duration threshold counts as
+ * slow, regardless of whether it has failed. The CircuitBreaker also changes from `CLOSED` to `OPEN`, if the
+ * slow call rate of the last calls exceeds the (configurable) slow call rate threshold.
+ *
+ * State transitions, rejected calls and recorded errors are published to the subscribers of the event publisher.
+ * The events are only created if someone has subscribed.
  */
 final class CircuitBreakerStateMachine implements CircuitBreaker {
 
     private final String name;
-    private AtomicReference<CircuitBreakerState> stateReference;
+    private final StateWordCell stateWord;
     private final CircuitBreakerConfig circuitBreakerConfig;
+    private final ExceptionClassifier exceptionClassifier;
+    private final Clock clock;
+    private final IntervalFunction waitIntervalFunction;
+    private final long probeTimeout;
+    // 0, if the slow call detection is disabled
+    private final long slowCallDurationThresholdNanos;
+    private final ClosedState closedState;
+    // The states, indexed by the ordinal of CircuitBreaker.State
+    private final CircuitBreakerState[] states;
+    private final RingBufferEventPublisher eventPublisher;
+    private final CircuitBreakerMetrics metrics;
+    private final StateTransitionListener stateTransitionListener;
+    private final String notPermittedMessage;
+    // the exception of all rejected calls, if the stack trace is disabled
+    private final CircuitBreakerOpenException notPermittedException;
+    // The number of consecutive openings and the wait interval of the last opening, written by the winner of a transition
+    private volatile int numberOfOpenings;
+    private volatile long lastWaitInterval;
 
     /**
      * Creates a circuitBreaker.
@@ -43,13 +78,62 @@ final class CircuitBreakerStateMachine implements CircuitBreaker {
      * @param circuitBreakerConfig The CircuitBreaker configuration.
      */
     public CircuitBreakerStateMachine(String name, CircuitBreakerConfig circuitBreakerConfig) {
+        this(name, circuitBreakerConfig, StateWord.INITIAL, StateTransitionListener.NONE);
+    }
+
+    /**
+     * Creates a circuitBreaker which starts with a restored state word.
+     *
+     * @param name      the name of the CircuitBreaker
+     * @param circuitBreakerConfig The CircuitBreaker configuration.
+     * @param initialStateWord the state word to start with, e.g. an OPEN state restored from a snapshot
+     * @param stateTransitionListener the listener which is notified after every transition
+     */
+    CircuitBreakerStateMachine(String name, CircuitBreakerConfig circuitBreakerConfig, long initialStateWord,
+                               StateTransitionListener stateTransitionListener) {
+        this(name, circuitBreakerConfig, new AtomicStateWord(initialStateWord),
+                new AtomicStateWord(HalfClosedState.NO_TRIAL_CALLS), stateTransitionListener);
+    }
+
+    /**
+     * Creates a circuitBreaker whose state word and HALF_CLOSED trial calls are kept in the given cells, e.g. in a file
+     * which is shared by processes.
+     *
+     * @param name      the name of the CircuitBreaker
+     * @param circuitBreakerConfig The CircuitBreaker configuration.
+     * @param stateWord the cell of the state word
+     * @param trialCalls the cell of the trial calls of the HALF_CLOSED state
+     * @param stateTransitionListener the listener which is notified after every transition
+     */
+    CircuitBreakerStateMachine(String name, CircuitBreakerConfig circuitBreakerConfig, StateWordCell stateWord,
+                               StateWordCell trialCalls, StateTransitionListener stateTransitionListener) {
         this.name = name;
         this.circuitBreakerConfig = circuitBreakerConfig;
-        this.stateReference = new AtomicReference<>(new ClosedState(this));
+        this.exceptionClassifier = circuitBreakerConfig.getExceptionClassifier();
+        this.clock = circuitBreakerConfig.getClock();
+        this.waitIntervalFunction = circuitBreakerConfig.getWaitIntervalFunction();
+        this.probeTimeout = circuitBreakerConfig.getProbeTimeout();
+        this.slowCallDurationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(circuitBreakerConfig.getSlowCallDurationThreshold());
+        this.stateWord = stateWord;
+        this.eventPublisher = new RingBufferEventPublisher(circuitBreakerConfig.getEventBufferSize(),
+                circuitBreakerConfig.getEventExecutor());
+        this.closedState = new ClosedState(this);
+        this.states = new CircuitBreakerState[]{closedState, new OpenState(this), new HalfClosedState(this, trialCalls)};
+        this.metrics = new CircuitBreakerMetrics(closedState.getSlidingWindow());
+        this.stateTransitionListener = stateTransitionListener;
+        this.notPermittedMessage = String.format("CircuitBreaker '%s' is open", name);
+        this.notPermittedException = circuitBreakerConfig.isWritableStackTraceEnabled() ? null
+                : new CircuitBreakerOpenException(notPermittedMessage, false);
     }
 
-    CircuitBreakerConfig getCircuitBreakerConfig(){
-        return this.circuitBreakerConfig;
+    /**
+     * @return the exception of a rejected call, which is cached if the stack trace is disabled
+     */
+    CircuitBreakerOpenException callNotPermitted() {
+        if (notPermittedException != null) {
+            return notPermittedException;
+        }
+        return new CircuitBreakerOpenException(notPermittedMessage);
     }
 
     /**
@@ -59,7 +143,14 @@ final class CircuitBreakerStateMachine implements CircuitBreaker {
      */
     @Override
     public boolean isCallPermitted() {
-        return stateReference.get().isCallPermitted();
+        boolean callPermitted = isCallPermitted(stateWord.get());
+        if (!callPermitted) {
+            metrics.onCallNotPermitted();
+            if (eventPublisher.hasSubscribers()) {
+                eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted(name));
+            }
+        }
+        return callPermitted;
     }
 
     /**
@@ -67,12 +158,15 @@ final class CircuitBreakerStateMachine implements CircuitBreaker {
      */
     @Override
     public void recordFailure(Exception exception) {
-        if(circuitBreakerConfig.getIgnoredExceptions().stream()
-                .noneMatch(ignoredException -> ignoredException.isInstance(exception))){
-            stateReference.get().recordFailure();
-        }else{
-            stateReference.get().recordSuccess();
-        }
+        recordFailure(exception, false);
+    }
+
+    /**
+     * Records a failure and evaluates the duration of the call.
+     */
+    @Override
+    public void recordFailure(long duration, TimeUnit durationUnit, Exception exception) {
+        recordFailure(exception, isSlowCall(duration, durationUnit));
     }
 
     /**
@@ -80,7 +174,42 @@ final class CircuitBreakerStateMachine implements CircuitBreaker {
      */
     @Override
     public void recordSuccess() {
-        this.stateReference.get().recordSuccess();
+        metrics.onSuccess(false);
+        recordSuccess(stateWord.get(), false);
+    }
+
+    /**
+     * Records a success and evaluates the duration of the call.
+     */
+    @Override
+    public void recordSuccess(long duration, TimeUnit durationUnit) {
+        boolean slowCall = isSlowCall(duration, durationUnit);
+        metrics.onSuccess(slowCall);
+        recordSuccess(stateWord.get(), slowCall);
+    }
+
+    /**
+     * Get the configuration of the CircuitBreaker
+     */
+    @Override
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return this.circuitBreakerConfig;
+    }
+
+    /**
+     * Get the event publisher of the CircuitBreaker
+     */
+    @Override
+    public CircuitBreakerEventPublisher getEventPublisher() {
+        return eventPublisher;
+    }
+
+    /**
+     * Get the metrics of the CircuitBreaker
+     */
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -88,7 +217,7 @@ final class CircuitBreakerStateMachine implements CircuitBreaker {
      */
     @Override
     public State getState() {
-        return this.stateReference.get().getState();
+        return StateWord.state(stateWord.get());
     }
 
     /**
@@ -107,15 +236,123 @@ final class CircuitBreakerStateMachine implements CircuitBreaker {
         return String.format("CircuitBreaker '%s'", this.name);
     }
 
-    void transitionToInitialClosedState() {
-        stateReference.set(new ClosedState(this));
+    long getStateWord() {
+        return stateWord.get();
+    }
+
+    boolean compareAndSetStateWord(long expectedStateWord, long newStateWord) {
+        return stateWord.compareAndSet(expectedStateWord, newStateWord);
+    }
+
+    boolean isCallPermitted(long currentStateWord) {
+        return stateOf(currentStateWord).isCallPermitted(currentStateWord);
+    }
+
+    void recordFailure(long currentStateWord, boolean slowCall) {
+        stateOf(currentStateWord).recordFailure(currentStateWord, slowCall);
+    }
+
+    void recordSuccess(long currentStateWord, boolean slowCall) {
+        stateOf(currentStateWord).recordSuccess(currentStateWord, slowCall);
+    }
+
+    /**
+     * Transitions from the given state word to CLOSED without failures.
+     *
+     * @return false, if the state word has been changed concurrently
+     */
+    boolean transitionToClosedState(long currentStateWord) {
+        long nextStateWord = StateWord.transition(currentStateWord, State.CLOSED, 0);
+        if (!stateWord.compareAndSet(currentStateWord, nextStateWord)) {
+            return false;
+        }
+        // the loser of the transition must not clear the window of the new round. Outcomes of earlier rounds are
+        // dropped by the epoch of the window, so the new round never evaluates the failure rate of the last one.
+        closedState.reset(nextStateWord);
+        publishStateTransition(currentStateWord, State.CLOSED);
+        return true;
+    }
+
+    /**
+     * Transitions from the given state word to OPEN and sets retryAfter to the current time + wait interval.
+     * The wait interval grows with every reopening from HALF_CLOSED, if the wait interval function says so.
+     * It is clamped to at least 1 ms and to the largest retryAfter which fits into the payload of the state word.
+     *
+     * @return false, if the state word has been changed concurrently
+     */
+    boolean transitionToOpenState(long currentStateWord) {
+        boolean reopening = StateWord.state(currentStateWord) == State.HALF_CLOSED;
+        int nextNumberOfOpenings = reopening ? numberOfOpenings + 1 : 1;
+        long now = clock.currentTimeMillis();
+        long waitInterval = clampWaitInterval(
+                waitIntervalFunction.apply(nextNumberOfOpenings, reopening ? lastWaitInterval : 0), now);
+        long retryAfter = now + waitInterval;
+        if (!stateWord.compareAndSet(currentStateWord, StateWord.transition(currentStateWord, State.OPEN, retryAfter))) {
+            return false;
+        }
+        numberOfOpenings = nextNumberOfOpenings;
+        lastWaitInterval = waitInterval;
+        publishStateTransition(currentStateWord, State.OPEN);
+        return true;
+    }
+
+    /**
+     * A wait interval of a user defined function which is not positive would let the calls through at once,
+     * and a retryAfter beyond the payload of the state word would be masked to an arbitrary time.
+     */
+    static long clampWaitInterval(long waitInterval, long now) {
+        return Math.max(1, Math.min(waitInterval, StateWord.MAX_PAYLOAD - now));
+    }
+
+    /**
+     * Transitions from the given state word to HALF_CLOSED and sets the probe deadline to the current time + probe timeout.
+     *
+     * @return false, if the state word has been changed concurrently
+     */
+    boolean transitionToHalfClosedState(long currentStateWord) {
+        long probeDeadline = clock.currentTimeMillis() + probeTimeout;
+        if (!stateWord.compareAndSet(currentStateWord, StateWord.transition(currentStateWord, State.HALF_CLOSED, probeDeadline))) {
+            return false;
+        }
+        publishStateTransition(currentStateWord, State.HALF_CLOSED);
+        return true;
+    }
+
+    /**
+     * Resets the CircuitBreaker to CLOSED without failures, regardless of its current state.
+     */
+    void reset() {
+        long currentStateWord;
+        do {
+            currentStateWord = stateWord.get();
+        } while (!transitionToClosedState(currentStateWord));
+    }
+
+    private void recordFailure(Exception exception, boolean slowCall) {
+        if(exceptionClassifier.isRecorded(exception)){
+            metrics.onError(slowCall);
+            if (eventPublisher.hasSubscribers()) {
+                eventPublisher.publish(CircuitBreakerEvent.ofError(name, exception));
+            }
+            recordFailure(stateWord.get(), slowCall);
+        }else{
+            metrics.onSuccess(slowCall);
+            recordSuccess(stateWord.get(), slowCall);
+        }
+    }
+
+    private void publishStateTransition(long fromStateWord, State toState) {
+        stateTransitionListener.onStateTransition(this);
+        if (eventPublisher.hasSubscribers()) {
+            eventPublisher.publish(CircuitBreakerEvent.ofStateTransition(name, StateWord.state(fromStateWord), toState));
+        }
     }
 
-    void transitionToOpenState(CircuitBreakerState currentState) {
-        stateReference.set(new OpenState(this, currentState));
+    private boolean isSlowCall(long duration, TimeUnit durationUnit) {
+        return slowCallDurationThresholdNanos > 0 && durationUnit.toNanos(duration) >= slowCallDurationThresholdNanos;
     }
 
-    void transitionToHalfClosedState(CircuitBreakerState currentState) {
-        stateReference.set(new HalfClosedState(this, currentState));
+    private CircuitBreakerState stateOf(long currentStateWord) {
+        return states[StateWord.state(currentStateWord).ordinal()];
     }
 }
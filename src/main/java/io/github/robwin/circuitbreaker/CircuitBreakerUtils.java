@@ -24,7 +24,21 @@ public final class CircuitBreakerUtils {
 
     static void isCallPermitted(CircuitBreaker circuitBreaker) {
         if(!circuitBreaker.isCallPermitted()) {
-            throw new CircuitBreakerOpenException(String.format("CircuitBreaker '%s' is open", circuitBreaker.getName()));
+            throw callNotPermitted(circuitBreaker);
         }
     }
+
+    public static CircuitBreakerOpenException callNotPermitted(CircuitBreaker circuitBreaker) {
+        if (circuitBreaker instanceof CircuitBreakerStateMachine) {
+            return ((CircuitBreakerStateMachine) circuitBreaker).callNotPermitted();
+        }
+        return new CircuitBreakerOpenException(String.format("CircuitBreaker '%s' is open", circuitBreaker.getName()));
+    }
+
+    public static CircuitBreakerOpenException callNotPermitted(KeyedCircuitBreaker keyedCircuitBreaker, long key) {
+        if (keyedCircuitBreaker instanceof KeyedCircuitBreakerStateMachine) {
+            return ((KeyedCircuitBreakerStateMachine) keyedCircuitBreaker).callNotPermitted(key);
+        }
+        return new CircuitBreakerOpenException(String.format("CircuitBreaker '%s' is open for key %d", keyedCircuitBreaker.getName(), key));
+    }
 }
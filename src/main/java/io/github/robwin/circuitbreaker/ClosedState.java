@@ -18,10 +18,27 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 final public class ClosedState extends CircuitBreakerState {
 
+    private final int maxFailures;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    // The outcome of the last calls, only used if the failure rate or the slow call detection is enabled
+    private final SlidingWindow slidingWindow;
+    // The epoch of the CLOSED round whose calls are in the window
+    private final AtomicInteger windowEpoch;
+
     ClosedState(CircuitBreakerStateMachine stateMachine) {
-        super(stateMachine, 0, 0);
+        super(stateMachine);
+        CircuitBreakerConfig circuitBreakerConfig = stateMachine.getCircuitBreakerConfig();
+        this.maxFailures = circuitBreakerConfig.getMaxFailures();
+        this.failureRateThreshold = circuitBreakerConfig.getFailureRateThreshold();
+        this.slowCallRateThreshold = circuitBreakerConfig.getSlowCallRateThreshold();
+        this.slidingWindow = circuitBreakerConfig.isFailureRateEnabled() || circuitBreakerConfig.isSlowCallDetectionEnabled()
+                ? SlidingWindow.of(circuitBreakerConfig) : null;
+        this.windowEpoch = new AtomicInteger(StateWord.epoch(stateMachine.getStateWord()));
     }
 
     /**
@@ -30,7 +47,7 @@ final public class ClosedState extends CircuitBreakerState {
      * @return boolean whether a call should be permitted
      */
     @Override
-    public boolean isCallPermitted() {
+    public boolean isCallPermitted(long stateWord) {
         return true;
     }
 
@@ -39,13 +56,17 @@ final public class ClosedState extends CircuitBreakerState {
      * This must be called if a call to this backend fails
      */
     @Override
-    public void recordFailure() {
-        // if CLOSED, increase number of failures
-        int currentNumOfFailures = numOfFailures.incrementAndGet();
-        if (currentNumOfFailures > this.maxFailures) {
-            // Too many failures, set new retryAfter to current time + wait interval
-            retryAfter.set(System.currentTimeMillis() + this.waitInterval);
-            stateMachine.transitionToOpenState(this);
+    public void recordFailure(long stateWord, boolean slowCall) {
+        if (slidingWindow != null) {
+            if (!isWindowOfRound(stateWord)) {
+                return;
+            }
+            slidingWindow.record(true, slowCall);
+        }
+        if (isFailureRateThresholdReached() || isSlowCallRateThresholdReached(slowCall)) {
+            transitionToOpenState(stateWord);
+        } else if (failureRateThreshold == 0) {
+            recordConsecutiveFailure(stateWord);
         }
     }
 
@@ -54,8 +75,118 @@ final public class ClosedState extends CircuitBreakerState {
      * This must be called after a successful call.
      */
     @Override
-    public void recordSuccess() {
-        stateMachine.transitionToInitialClosedState();
+    public void recordSuccess(long stateWord, boolean slowCall) {
+        if (slidingWindow != null) {
+            if (!isWindowOfRound(stateWord)) {
+                return;
+            }
+            // a success does not reset the failures of the other calls in the window
+            slidingWindow.record(false, slowCall);
+        }
+        if (isSlowCallRateThresholdReached(slowCall)) {
+            transitionToOpenState(stateWord);
+        } else if (failureRateThreshold == 0) {
+            resetConsecutiveFailures(stateWord);
+        }
+    }
+
+    private boolean isFailureRateThresholdReached() {
+        return failureRateThreshold > 0 && slidingWindow.getFailureRate() >= failureRateThreshold;
+    }
+
+    private boolean isSlowCallRateThresholdReached(boolean slowCall) {
+        // only a slow call can increase the slow call rate
+        return slowCall && slidingWindow.getSlowCallRate() >= slowCallRateThreshold;
+    }
+
+    private void recordConsecutiveFailure(long stateWord) {
+        long currentStateWord = stateWord;
+        // if CLOSED, increase number of failures
+        long currentNumOfFailures = StateWord.payload(currentStateWord) + 1;
+        while (currentNumOfFailures <= maxFailures) {
+            if (stateMachine.compareAndSetStateWord(currentStateWord, StateWord.withPayload(currentStateWord, currentNumOfFailures))) {
+                return;
+            }
+            currentStateWord = stateMachine.getStateWord();
+            if (!isSameRound(stateWord, currentStateWord)) {
+                return;
+            }
+            currentNumOfFailures = StateWord.payload(currentStateWord) + 1;
+        }
+        transitionToOpenState(currentStateWord);
+    }
+
+    private void resetConsecutiveFailures(long stateWord) {
+        long currentStateWord = stateWord;
+        // a healthy CircuitBreaker has no failures to reset and does not write the state word at all
+        while (StateWord.payload(currentStateWord) != 0
+                && !stateMachine.compareAndSetStateWord(currentStateWord, StateWord.withPayload(currentStateWord, 0))) {
+            currentStateWord = stateMachine.getStateWord();
+            if (!isSameRound(stateWord, currentStateWord)) {
+                return;
+            }
+        }
+    }
+
+    private void transitionToOpenState(long stateWord) {
+        long currentStateWord = stateWord;
+        // the number of consecutive failures might have been changed concurrently, which does not prevent the transition
+        while (!stateMachine.transitionToOpenState(currentStateWord)) {
+            currentStateWord = stateMachine.getStateWord();
+            if (!isSameRound(stateWord, currentStateWord)) {
+                // another caller has already opened the CircuitBreaker
+                return;
+            }
+        }
+    }
+
+    /**
+     * Every transition increases the epoch, so the CircuitBreaker has not left this CLOSED state, if the epoch is unchanged.
+     */
+    private static boolean isSameRound(long stateWord, long currentStateWord) {
+        return StateWord.epoch(stateWord) == StateWord.epoch(currentStateWord);
+    }
+
+    /**
+     * @return the outcome of the last calls or null, if neither the failure rate nor the slow call detection is enabled
+     */
+    SlidingWindow getSlidingWindow() {
+        return slidingWindow;
+    }
+
+    /**
+     * Discards the failures of the last round, when the CircuitBreaker is CLOSED again.
+     * Must only be called after the state word of the new round has been written.
+     *
+     * @param stateWord the state word of the new CLOSED round
+     */
+    void reset(long stateWord) {
+        if (slidingWindow != null) {
+            isWindowOfRound(stateWord);
+        }
+    }
+
+    /**
+     * Moves the window to the round of the state word, if it is a later round than the one of the window. The first
+     * caller of a later round clears the window. This also covers rounds which have been started by another process
+     * sharing the state word.
+     *
+     * @return false, if the state word belongs to an earlier round, whose outcome must not be recorded
+     */
+    private boolean isWindowOfRound(long stateWord) {
+        int epoch = StateWord.epoch(stateWord);
+        int currentWindowEpoch;
+        do {
+            currentWindowEpoch = windowEpoch.get();
+            if (epoch == currentWindowEpoch) {
+                return true;
+            }
+            if (!StateWord.isLaterEpoch(epoch, currentWindowEpoch)) {
+                return false;
+            }
+        } while (!windowEpoch.compareAndSet(currentWindowEpoch, epoch));
+        slidingWindow.reset();
+        return true;
     }
 
     /**
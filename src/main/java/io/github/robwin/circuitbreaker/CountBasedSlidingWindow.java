@@ -0,0 +1,77 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+/**
+ * A sliding window which keeps the outcome of the last N calls in a {@link RingBitSet}.
+ * The failure rate is not calculated before the ring is full.
+ * Slow calls are kept in a second ring, which is only allocated if the slow call detection is enabled.
+ */
+final class CountBasedSlidingWindow implements SlidingWindow {
+
+    private final RingBitSet ringBitSet;
+    private final RingBitSet slowCallRingBitSet;
+
+    CountBasedSlidingWindow(int ringBufferSize, boolean slowCallDetectionEnabled) {
+        this.ringBitSet = new RingBitSet(ringBufferSize);
+        this.slowCallRingBitSet = slowCallDetectionEnabled ? new RingBitSet(ringBufferSize) : null;
+    }
+
+    @Override
+    public void record(boolean failure, boolean slowCall) {
+        ringBitSet.setNextBit(failure);
+        if (slowCallRingBitSet != null) {
+            slowCallRingBitSet.setNextBit(slowCall);
+        }
+    }
+
+    @Override
+    public float getFailureRate() {
+        int numOfBufferedCalls = ringBitSet.length();
+        if (numOfBufferedCalls < ringBitSet.size()) {
+            return -1;
+        }
+        return ringBitSet.cardinality() * 100.0f / numOfBufferedCalls;
+    }
+
+    @Override
+    public float getSlowCallRate() {
+        if (slowCallRingBitSet == null) {
+            return -1;
+        }
+        int numOfBufferedCalls = slowCallRingBitSet.length();
+        if (numOfBufferedCalls < slowCallRingBitSet.size()) {
+            return -1;
+        }
+        return slowCallRingBitSet.cardinality() * 100.0f / numOfBufferedCalls;
+    }
+
+    @Override
+    public int getNumberOfBufferedCalls() {
+        return ringBitSet.length();
+    }
+
+    @Override
+    public void reset() {
+        ringBitSet.reset();
+        if (slowCallRingBitSet != null) {
+            slowCallRingBitSet.reset();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.circuitbreaker.gossip.GossipConfig;
+import io.github.robwin.circuitbreaker.gossip.GossipTransport;
+import io.github.robwin.clock.Clock;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorates a CircuitBreakerRegistry, so that the CircuitBreakers of the same name open in the whole cluster, when the
+ * majority of the members has opened them.
+ *
+ * Every gossip interval a dedicated thread broadcasts the digests (name hash, state, epoch) of the CircuitBreakers whose
+ * state has changed since the last round, and every n-th round the digests of all CircuitBreakers, so that new members
+ * learn the states as well. When the digests of another member are received, a CLOSED CircuitBreaker is opened if
+ * more than half of the live members, including this member, have opened it. A member which has not sent a message
+ * for the member timeout is no longer counted.
+ *
+ * The calls of the CircuitBreakers never wait on the network: they read the local state word, which is only changed by
+ * the gossip and transport threads. Only CircuitBreakers which have been created by the decorated registry take part,
+ * the decorator must be used to look them up.
+ *
+ * A round which fails, e.g. because the transport throws, does not stop the gossip: the next round sends all digests
+ * again. A message which cannot be received is dropped like a lost message. Both are counted as errors.
+ */
+public final class GossipCircuitBreakerRegistry implements CircuitBreakerRegistry, Closeable {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final GossipTransport transport;
+    private final long nodeId;
+    private final long memberTimeout;
+    private final int fullDigestInterval;
+    private final int maxMessageSize;
+    private final Clock clock;
+
+    /**
+     * The local CircuitBreakers, indexed by the hash of their name.
+     */
+    private final ConcurrentMap<Long, CircuitBreakerStateMachine> circuitBreakers;
+
+    /**
+     * The other members of the cluster, indexed by their node id.
+     */
+    private final ConcurrentMap<Long, Member> members;
+
+    private final LongAdder numberOfErrors = new LongAdder();
+
+    // Only accessed by the gossip thread
+    private final Map<Long, Integer> sentDigests;
+    private long round;
+
+    private ScheduledExecutorService scheduler;
+
+    GossipCircuitBreakerRegistry(CircuitBreakerRegistry circuitBreakerRegistry, GossipTransport transport, GossipConfig gossipConfig) {
+        this.circuitBreakerRegistry = Objects.requireNonNull(circuitBreakerRegistry, "CircuitBreakerRegistry must not be null");
+        this.transport = Objects.requireNonNull(transport, "GossipTransport must not be null");
+        Objects.requireNonNull(gossipConfig, "GossipConfig must not be null");
+        this.nodeId = ThreadLocalRandom.current().nextLong();
+        this.memberTimeout = gossipConfig.getMemberTimeout();
+        this.fullDigestInterval = gossipConfig.getFullDigestInterval();
+        this.maxMessageSize = gossipConfig.getMaxMessageSize();
+        this.clock = gossipConfig.getClock();
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.members = new ConcurrentHashMap<>();
+        this.sentDigests = new HashMap<>();
+        transport.setReceiver(this::receive);
+    }
+
+    /**
+     * Decorates the registry and starts a daemon thread which gossips in the configured interval.
+     *
+     * @param circuitBreakerRegistry the decorated registry
+     * @param transport the transport of the gossip messages
+     * @param gossipConfig the gossip configuration
+     * @return the decorated registry, which must be closed to stop gossiping
+     */
+    public static GossipCircuitBreakerRegistry of(CircuitBreakerRegistry circuitBreakerRegistry, GossipTransport transport,
+                                                  GossipConfig gossipConfig) {
+        GossipCircuitBreakerRegistry gossipRegistry = new GossipCircuitBreakerRegistry(circuitBreakerRegistry, transport, gossipConfig);
+        gossipRegistry.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "circuitbreaker-gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        gossipRegistry.scheduler.scheduleWithFixedDelay(gossipRegistry::gossip, gossipConfig.getGossipInterval(),
+                gossipConfig.getGossipInterval(), TimeUnit.MILLISECONDS);
+        return gossipRegistry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircuitBreaker circuitBreaker(String name) {
+        return track(circuitBreakerRegistry.circuitBreaker(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircuitBreaker circuitBreaker(String name, CircuitBreakerConfig circuitBreakerConfig) {
+        return track(circuitBreakerRegistry.circuitBreaker(name, circuitBreakerConfig));
+    }
+
+    /**
+     * Stops gossiping. The CircuitBreakers keep their state.
+     */
+    @Override
+    public void close() {
+        transport.setReceiver(message -> {});
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Broadcasts the changed digests, or all digests every n-th round, and removes the members which have timed out.
+     */
+    void gossip() {
+        try {
+            gossipRound();
+        } catch (RuntimeException e) {
+            // an exception would cancel all later rounds of the scheduler. The failed round may have sent only some
+            // of the changed digests, so the next round sends all digests again.
+            sentDigests.clear();
+            numberOfErrors.increment();
+        }
+    }
+
+    private void gossipRound() {
+        long now = clock.currentTimeMillis();
+        members.values().removeIf(member -> now - member.lastSeen >= memberTimeout);
+        boolean fullDigest = round++ % fullDigestInterval == 0;
+        SortedMap<Long, Integer> digests = new TreeMap<>(Long::compareUnsigned);
+        for (Map.Entry<Long, CircuitBreakerStateMachine> circuitBreaker : circuitBreakers.entrySet()) {
+            int digest = StateDigestCodec.digest(circuitBreaker.getValue().getStateWord());
+            Integer sentDigest = sentDigests.put(circuitBreaker.getKey(), digest);
+            if (fullDigest || sentDigest == null || sentDigest != digest) {
+                digests.put(circuitBreaker.getKey(), digest);
+            }
+        }
+        if (!digests.isEmpty()) {
+            StateDigestCodec.encode(nodeId, digests, maxMessageSize).forEach(transport::broadcast);
+        }
+    }
+
+    /**
+     * Applies the digests of another member and opens the CircuitBreakers which the majority has opened.
+     */
+    void receive(byte[] message) {
+        long now = clock.currentTimeMillis();
+        try {
+            StateDigestCodec.decode(message, (senderId, hash, state, epoch) -> {
+                if (senderId == nodeId) {
+                    return;
+                }
+                Member member = members.computeIfAbsent(senderId, (k) -> new Member());
+                member.lastSeen = now;
+                member.update(hash, StateDigestCodec.digest(state, epoch));
+                CircuitBreakerStateMachine circuitBreaker = circuitBreakers.get(hash);
+                if (circuitBreaker != null) {
+                    openIfMajorityHasOpened(hash, circuitBreaker, now);
+                }
+            });
+        } catch (RuntimeException e) {
+            // A malformed message is dropped, like a lost message. An exception must not escape to the transport.
+            numberOfErrors.increment();
+        }
+    }
+
+    /**
+     * @return the number of gossip rounds which have failed and of received messages which have been dropped
+     */
+    public long getNumberOfErrors() {
+        return numberOfErrors.sum();
+    }
+
+    int getNumberOfMembers() {
+        return members.size() + 1;
+    }
+
+    private CircuitBreaker track(CircuitBreaker circuitBreaker) {
+        if (circuitBreaker instanceof CircuitBreakerStateMachine) {
+            Long hash = CircuitBreakerSnapshot.hash(circuitBreaker.getName());
+            if (!circuitBreakers.containsKey(hash)) {
+                circuitBreakers.putIfAbsent(hash, (CircuitBreakerStateMachine) circuitBreaker);
+            }
+        }
+        return circuitBreaker;
+    }
+
+    private void openIfMajorityHasOpened(long hash, CircuitBreakerStateMachine circuitBreaker, long now) {
+        int liveMembers = 1;
+        int openMembers = 0;
+        for (Member member : members.values()) {
+            if (now - member.lastSeen < memberTimeout) {
+                liveMembers++;
+                Integer digest = member.digests.get(hash);
+                if (digest != null && (digest & 3) == CircuitBreaker.State.OPEN.ordinal()) {
+                    openMembers++;
+                }
+            }
+        }
+        if (openMembers * 2 <= liveMembers) {
+            return;
+        }
+        long currentStateWord = circuitBreaker.getStateWord();
+        while (StateWord.state(currentStateWord) == CircuitBreaker.State.CLOSED
+                && !circuitBreaker.transitionToOpenState(currentStateWord)) {
+            currentStateWord = circuitBreaker.getStateWord();
+        }
+    }
+
+    private static final class Member {
+
+        private final ConcurrentMap<Long, Integer> digests = new ConcurrentHashMap<>();
+        private volatile long lastSeen;
+
+        /**
+         * Keeps the digest of the later epoch, because messages may arrive out of order.
+         */
+        private void update(long hash, int digest) {
+            digests.merge(hash, digest, (previous, next) ->
+                    StateWord.isLaterEpoch(next >>> 2, previous >>> 2) ? next : previous);
+        }
+    }
+}
@@ -18,10 +18,37 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import io.github.robwin.clock.Clock;
+
+/**
+ * A HALF_CLOSED CircuitBreaker permits a (configurable) number of trial calls and rejects all other calls.
+ * The CircuitBreaker is CLOSED again, if all trial calls have succeeded, and OPEN again, if one of them has failed
+ * or, if the slow call detection is enabled, has been slow.
+ * If all trial calls have been permitted, but have not reported their outcome until the probe deadline
+ * (the payload of the state word), the CircuitBreaker goes back to OPEN.
+ *
+ * The number of permitted and successful trial calls are packed into one long together with the epoch of the
+ * state word, so that the counters of an earlier HALF_CLOSED round are discarded without a separate reset.
+ * The long is kept in a cell next to the state word, so that processes which share the state word share the trial
+ * calls as well. A zero long belongs to no round, so that a new cell needs no initialization.
+ */
 final public class HalfClosedState extends CircuitBreakerState {
 
-    HalfClosedState(CircuitBreakerStateMachine stateMachine, CircuitBreakerState currentState) {
-        super(stateMachine, currentState);
+    private static final int SUCCESSES_SHIFT = 16;
+    private static final int EPOCH_SHIFT = 32;
+    private static final long COUNTER_MASK = 0xFFFF;
+
+    static final long NO_TRIAL_CALLS = 0L;
+
+    private final int halfClosedTrialCalls;
+    private final Clock clock;
+    private final StateWordCell trialCalls;
+
+    HalfClosedState(CircuitBreakerStateMachine stateMachine, StateWordCell trialCalls) {
+        super(stateMachine);
+        this.halfClosedTrialCalls = stateMachine.getCircuitBreakerConfig().getHalfClosedTrialCalls();
+        this.clock = stateMachine.getCircuitBreakerConfig().getClock();
+        this.trialCalls = trialCalls;
     }
 
     /**
@@ -30,7 +57,20 @@ final public class HalfClosedState extends CircuitBreakerState {
      * @return boolean whether a call should be permitted
      */
     @Override
-    public boolean isCallPermitted() {
+    public boolean isCallPermitted(long stateWord) {
+        int epoch = StateWord.epoch(stateWord);
+        long currentTrialCalls;
+        long nextTrialCalls;
+        do {
+            currentTrialCalls = trialCalls.get();
+            if (epochOf(currentTrialCalls) != epoch) {
+                nextTrialCalls = trialCalls(epoch, 0, 1);
+            } else if (permittedCallsOf(currentTrialCalls) < halfClosedTrialCalls) {
+                nextTrialCalls = currentTrialCalls + 1;
+            } else {
+                return rejectOrReopen(stateWord);
+            }
+        } while (!trialCalls.compareAndSet(currentTrialCalls, nextTrialCalls));
         return true;
     }
 
@@ -39,10 +79,9 @@ final public class HalfClosedState extends CircuitBreakerState {
      * This must be called if a call to this backend fails
      */
     @Override
-    public void recordFailure() {
-        numOfFailures.incrementAndGet();
-        retryAfter.set(System.currentTimeMillis() + this.waitInterval);
-        stateMachine.transitionToOpenState(this);
+    public void recordFailure(long stateWord, boolean slowCall) {
+        // if the transition fails, another caller has already finished this round
+        stateMachine.transitionToOpenState(stateWord);
     }
 
     /**
@@ -50,8 +89,32 @@ final public class HalfClosedState extends CircuitBreakerState {
      * This must be called after a successful call.
      */
     @Override
-    public void recordSuccess() {
-        stateMachine.transitionToInitialClosedState();
+    public void recordSuccess(long stateWord, boolean slowCall) {
+        if (slowCall) {
+            // the backend responds, but is still saturated
+            recordFailure(stateWord, true);
+            return;
+        }
+        int epoch = StateWord.epoch(stateWord);
+        long currentTrialCalls;
+        long nextTrialCalls;
+        do {
+            currentTrialCalls = trialCalls.get();
+            if (epochOf(currentTrialCalls) != epoch) {
+                // the outcome of a call which has been permitted before this round started
+                nextTrialCalls = trialCalls(epoch, 1, 0);
+            } else if (successesOf(currentTrialCalls) < halfClosedTrialCalls) {
+                nextTrialCalls = currentTrialCalls + (1L << SUCCESSES_SHIFT);
+            } else {
+                nextTrialCalls = currentTrialCalls;
+                break;
+            }
+        } while (!trialCalls.compareAndSet(currentTrialCalls, nextTrialCalls));
+
+        if (successesOf(nextTrialCalls) >= halfClosedTrialCalls) {
+            // if the transition fails, another caller has already finished this round
+            stateMachine.transitionToClosedState(stateWord);
+        }
     }
 
     /**
@@ -61,4 +124,34 @@ final public class HalfClosedState extends CircuitBreakerState {
     public CircuitBreaker.State getState() {
         return CircuitBreaker.State.HALF_CLOSED;
     }
+
+    /**
+     * All trial calls have been permitted. If they have not reported their outcome until the probe deadline,
+     * the CircuitBreaker goes back to OPEN, so that a hung trial call does not keep it HALF_CLOSED forever.
+     * If another caller has finished the round first, the call is decided by the state which that caller has set.
+     */
+    private boolean rejectOrReopen(long stateWord) {
+        long probeDeadline = StateWord.payload(stateWord);
+        if (clock.currentTimeMillis() >= probeDeadline && !stateMachine.transitionToOpenState(stateWord)) {
+            return stateMachine.isCallPermitted(stateMachine.getStateWord());
+        }
+        return false;
+    }
+
+    private static long trialCalls(int epoch, long successes, long permittedCalls) {
+        // the epoch is stored incremented by one, so that NO_TRIAL_CALLS belongs to no round
+        return ((long) (epoch + 1) << EPOCH_SHIFT) | (successes << SUCCESSES_SHIFT) | permittedCalls;
+    }
+
+    private static int epochOf(long trialCalls) {
+        return (int) (trialCalls >>> EPOCH_SHIFT) - 1;
+    }
+
+    private static long successesOf(long trialCalls) {
+        return (trialCalls >>> SUCCESSES_SHIFT) & COUNTER_MASK;
+    }
+
+    private static long permittedCallsOf(long trialCalls) {
+        return trialCalls & COUNTER_MASK;
+    }
 }
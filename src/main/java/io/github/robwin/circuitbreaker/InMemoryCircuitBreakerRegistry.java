@@ -30,16 +30,22 @@ final class InMemoryCircuitBreakerRegistry implements CircuitBreakerRegistry {
 
     private final CircuitBreakerConfig defaultCircuitBreakerConfig;
 
+    /**
+     * The snapshot which keeps the states across restarts, or null.
+     */
+    private final CircuitBreakerSnapshot snapshot;
+
     /**
      * The circuitBreakers, indexed by name of the backend.
      */
-    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers;
+    private final ConcurrentMap<String, CircuitBreakerStateMachine> circuitBreakers;
 
     /**
      * The constructor with default circuitBreaker properties.
      */
     public InMemoryCircuitBreakerRegistry() {
         this.defaultCircuitBreakerConfig = new CircuitBreakerConfig.Builder().build();
+        this.snapshot = null;
         this.circuitBreakers = new ConcurrentHashMap<>();
     }
 
@@ -50,6 +56,20 @@ final class InMemoryCircuitBreakerRegistry implements CircuitBreakerRegistry {
      */
     public InMemoryCircuitBreakerRegistry(CircuitBreakerConfig defaultCircuitBreakerConfig) {
         this.defaultCircuitBreakerConfig = Objects.requireNonNull(defaultCircuitBreakerConfig, "CircuitBreakerConfig must not be null");
+        this.snapshot = null;
+        this.circuitBreakers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The constructor with custom default circuitBreaker properties and a snapshot.
+     * A new circuitBreaker starts with the state of the snapshot and writes its transitions to the snapshot.
+     *
+     * @param defaultCircuitBreakerConfig The BackendMonitor service properties.
+     * @param snapshot The snapshot which keeps the states across restarts.
+     */
+    public InMemoryCircuitBreakerRegistry(CircuitBreakerConfig defaultCircuitBreakerConfig, CircuitBreakerSnapshot snapshot) {
+        this.defaultCircuitBreakerConfig = Objects.requireNonNull(defaultCircuitBreakerConfig, "CircuitBreakerConfig must not be null");
+        this.snapshot = Objects.requireNonNull(snapshot, "CircuitBreakerSnapshot must not be null");
         this.circuitBreakers = new ConcurrentHashMap<>();
     }
 
@@ -58,7 +78,7 @@ final class InMemoryCircuitBreakerRegistry implements CircuitBreakerRegistry {
      */
     @Override
     public CircuitBreaker circuitBreaker(String name) {
-        return circuitBreakers.computeIfAbsent(Objects.requireNonNull(name, "Name must not be null"), (k) -> new CircuitBreakerStateMachine(name,
+        return circuitBreakers.computeIfAbsent(Objects.requireNonNull(name, "Name must not be null"), (k) -> createCircuitBreaker(name,
                 defaultCircuitBreakerConfig));
     }
 
@@ -67,14 +87,22 @@ final class InMemoryCircuitBreakerRegistry implements CircuitBreakerRegistry {
      */
     @Override
     public CircuitBreaker circuitBreaker(String name, CircuitBreakerConfig customCircuitBreakerConfig) {
-        return circuitBreakers.computeIfAbsent(Objects.requireNonNull(name, "Name must not be null"), (k) -> new CircuitBreakerStateMachine(name,
+        return circuitBreakers.computeIfAbsent(Objects.requireNonNull(name, "Name must not be null"), (k) -> createCircuitBreaker(name,
                 customCircuitBreakerConfig));
     }
 
+    private CircuitBreakerStateMachine createCircuitBreaker(String name, CircuitBreakerConfig circuitBreakerConfig) {
+        if (snapshot == null) {
+            return new CircuitBreakerStateMachine(name, circuitBreakerConfig);
+        }
+        CircuitBreakerSnapshot.Slot slot = snapshot.slot(name);
+        return new CircuitBreakerStateMachine(name, circuitBreakerConfig, slot.restore(), slot);
+    }
+
     /**
      * Reset the circuitBreaker states.
      */
     public void resetMonitorStates() {
-        circuitBreakers.values().forEach(CircuitBreaker::recordSuccess);
+        circuitBreakers.values().forEach(CircuitBreakerStateMachine::reset);
     }
 }
@@ -0,0 +1,97 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Calculates how long an OPEN CircuitBreaker waits until it permits trial calls again.
+ *
+ * The interval may grow with the number of consecutive openings: the first opening after the CircuitBreaker has been
+ * CLOSED is number 1, every opening after failed or timed-out trial calls increases the number. A jittered interval
+ * spreads the trial calls of many instances which have opened their CircuitBreakers at the same time.
+ */
+@FunctionalInterface
+public interface IntervalFunction {
+
+    /**
+     * @param numberOfOpenings the number of consecutive openings, starting at 1
+     * @param previousInterval the interval [ms] of the previous opening, or 0 for the first opening
+     * @return the wait interval [ms] of this opening
+     */
+    long apply(int numberOfOpenings, long previousInterval);
+
+    /**
+     * @param interval the wait interval [ms]
+     * @return a function which always waits the same interval
+     */
+    static IntervalFunction ofFixed(long interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be at least 1[ms]");
+        }
+        return (numberOfOpenings, previousInterval) -> interval;
+    }
+
+    /**
+     * Returns a function whose interval grows exponentially: initialInterval * multiplier ^ (numberOfOpenings - 1),
+     * but is not longer than maxInterval.
+     *
+     * @param initialInterval the interval [ms] of the first opening
+     * @param multiplier the factor by which the interval grows with every opening
+     * @param maxInterval the maximum interval [ms]
+     * @return an exponential function
+     */
+    static IntervalFunction ofExponential(long initialInterval, double multiplier, long maxInterval) {
+        if (initialInterval < 1) {
+            throw new IllegalArgumentException("initialInterval must be at least 1[ms]");
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be greater than or equal to 1");
+        }
+        if (maxInterval < initialInterval) {
+            throw new IllegalArgumentException("maxInterval must be greater than or equal to the initialInterval");
+        }
+        return (numberOfOpenings, previousInterval) -> {
+            double interval = initialInterval * Math.pow(multiplier, numberOfOpenings - 1);
+            return interval >= maxInterval ? maxInterval : (long) interval;
+        };
+    }
+
+    /**
+     * Returns a function with "decorrelated jitter": the interval is a random value between baseInterval and three
+     * times the previous interval, but not longer than maxInterval. The intervals grow like an exponential function
+     * on average, but the instances of a fleet do not wait the same interval.
+     *
+     * @param baseInterval the minimum interval [ms]
+     * @param maxInterval the maximum interval [ms]
+     * @return a jittered function
+     */
+    static IntervalFunction ofDecorrelatedJitter(long baseInterval, long maxInterval) {
+        if (baseInterval < 1) {
+            throw new IllegalArgumentException("baseInterval must be at least 1[ms]");
+        }
+        if (maxInterval < baseInterval) {
+            throw new IllegalArgumentException("maxInterval must be greater than or equal to the baseInterval");
+        }
+        return (numberOfOpenings, previousInterval) -> {
+            long upperBound = Math.min(maxInterval, Math.max(baseInterval, previousInterval) * 3);
+            return upperBound <= baseInterval ? baseInterval : ThreadLocalRandom.current().nextLong(baseInterval, upperBound + 1);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+/**
+ * A family of CircuitBreakers which share one name and one configuration and are distinguished by a primitive key,
+ * e.g. one CircuitBreaker per tenant or per shard.
+ *
+ * A keyed CircuitBreaker counts consecutive failures. The state of a key is a single state word, which is only stored
+ * once the key has left its initial state, i.e. after its first failure. A HALF_CLOSED key permits one trial call.
+ * Keyed CircuitBreakers do not publish events and do not calculate metrics.
+ */
+public interface KeyedCircuitBreaker {
+
+    /**
+     * Requests permission to call the backend of the key.
+     *
+     * @param key the key
+     * @return true, if the call is allowed.
+     */
+    boolean isCallPermitted(long key);
+
+    /**
+     * Records a failed call of the backend of the key.
+     *
+     * @param key the key
+     * @param exception The exception which is thrown by the call
+     */
+    void recordFailure(long key, Exception exception);
+
+    /**
+     * Records a successful call of the backend of the key.
+     *
+     * @param key the key
+     */
+    void recordSuccess(long key);
+
+    /**
+     * Get the state of the CircuitBreaker of the key
+     *
+     * @param key the key
+     * @return the state of the CircuitBreaker of the key
+     */
+    CircuitBreaker.State getState(long key);
+
+    /**
+     * Get the name of the keyed CircuitBreaker
+     *
+     * @return the name of the keyed CircuitBreaker
+     */
+    String getName();
+
+    /**
+     * Get the configuration which is shared by the CircuitBreakers of all keys
+     *
+     * @return the configuration of the keyed CircuitBreaker
+     */
+    CircuitBreakerConfig getCircuitBreakerConfig();
+
+    /**
+     * Creates a keyed CircuitBreaker.
+     *
+     * @param name the name of the keyed CircuitBreaker
+     * @param circuitBreakerConfig the configuration which is shared by all keys. A failure rate threshold and the slow
+     *                             call detection are not supported.
+     * @return a keyed CircuitBreaker
+     */
+    static KeyedCircuitBreaker of(String name, CircuitBreakerConfig circuitBreakerConfig) {
+        return new KeyedCircuitBreakerStateMachine(name, circuitBreakerConfig);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.exception.ExceptionClassifier;
+
+import java.util.Objects;
+
+/**
+ * The state machine of a keyed CircuitBreaker. The transitions are the ones of the {@link CircuitBreakerStateMachine}
+ * with consecutive failures and one trial call, but they are applied to the state words of a {@link LongStateWordMap},
+ * so that a key takes no more memory than its key and state word.
+ *
+ * A key which closes again after a successful trial call returns to the initial state word instead of a new CLOSED
+ * epoch, so a recovered key is dropped from the map like a key which has never failed. Hence the CLOSED state
+ * word of a key is always in epoch 0.
+ */
+final class KeyedCircuitBreakerStateMachine implements KeyedCircuitBreaker {
+
+    private final String name;
+    private final CircuitBreakerConfig circuitBreakerConfig;
+    private final ExceptionClassifier exceptionClassifier;
+    private final Clock clock;
+    private final int maxFailures;
+    private final IntervalFunction waitIntervalFunction;
+    private final long probeTimeout;
+    private final LongStateWordMap stateWords;
+    // the exception of all rejected calls, if the stack trace is disabled
+    private final CircuitBreakerOpenException notPermittedException;
+
+    KeyedCircuitBreakerStateMachine(String name, CircuitBreakerConfig circuitBreakerConfig) {
+        this.name = Objects.requireNonNull(name, "Name must not be null");
+        this.circuitBreakerConfig = Objects.requireNonNull(circuitBreakerConfig, "CircuitBreakerConfig must not be null");
+        if (circuitBreakerConfig.isFailureRateEnabled()) {
+            throw new IllegalArgumentException("A keyed CircuitBreaker does not support a failureRateThreshold");
+        }
+        if (circuitBreakerConfig.isSlowCallDetectionEnabled()) {
+            throw new IllegalArgumentException("A keyed CircuitBreaker does not support a slowCallDurationThreshold");
+        }
+        if (circuitBreakerConfig.getHalfClosedTrialCalls() > 1) {
+            throw new IllegalArgumentException("A keyed CircuitBreaker does not support more than one halfClosedTrialCall");
+        }
+        this.exceptionClassifier = circuitBreakerConfig.getExceptionClassifier();
+        this.clock = circuitBreakerConfig.getClock();
+        this.maxFailures = circuitBreakerConfig.getMaxFailures();
+        this.waitIntervalFunction = circuitBreakerConfig.getWaitIntervalFunction();
+        this.probeTimeout = circuitBreakerConfig.getProbeTimeout();
+        this.stateWords = new LongStateWordMap();
+        this.notPermittedException = circuitBreakerConfig.isWritableStackTraceEnabled() ? null
+                : new CircuitBreakerOpenException(String.format("CircuitBreaker '%s' is open for the key of the call", name), false);
+    }
+
+    /**
+     * @return the exception of a rejected call, which is cached without the key if the stack trace is disabled
+     */
+    CircuitBreakerOpenException callNotPermitted(long key) {
+        if (notPermittedException != null) {
+            return notPermittedException;
+        }
+        return new CircuitBreakerOpenException(String.format("CircuitBreaker '%s' is open for key %d", name, key));
+    }
+
+    @Override
+    public boolean isCallPermitted(long key) {
+        long stateWord = stateWords.get(key);
+        switch (StateWord.state(stateWord)) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.currentTimeMillis() < StateWord.payload(stateWord)) {
+                    return false;
+                }
+                // the caller which wins the transition is the trial call
+                return stateWords.compareAndSet(key, stateWord, StateWord.transition(stateWord,
+                        CircuitBreaker.State.HALF_CLOSED, clock.currentTimeMillis() + probeTimeout));
+            default:
+                if (clock.currentTimeMillis() >= StateWord.payload(stateWord)) {
+                    // the trial call has not reported its outcome until the probe deadline
+                    transitionToOpenState(key, stateWord);
+                }
+                return false;
+        }
+    }
+
+    @Override
+    public void recordFailure(long key, Exception exception) {
+        if (!exceptionClassifier.isRecorded(exception)) {
+            recordSuccess(key);
+            return;
+        }
+        long stateWord = stateWords.get(key);
+        switch (StateWord.state(stateWord)) {
+            case CLOSED:
+                recordConsecutiveFailure(key, stateWord);
+                break;
+            case HALF_CLOSED:
+                // if the transition fails, another caller has already finished this round
+                transitionToOpenState(key, stateWord);
+                break;
+            default:
+                // the CircuitBreaker of the key is already OPEN
+        }
+    }
+
+    @Override
+    public void recordSuccess(long key) {
+        long stateWord = stateWords.get(key);
+        switch (StateWord.state(stateWord)) {
+            case CLOSED:
+                // a healthy key has no failures to reset and does not write the state word at all
+                while (StateWord.payload(stateWord) != 0
+                        && !stateWords.compareAndSet(key, stateWord, StateWord.INITIAL)) {
+                    long currentStateWord = stateWords.get(key);
+                    if (StateWord.state(currentStateWord) != CircuitBreaker.State.CLOSED) {
+                        return;
+                    }
+                    stateWord = currentStateWord;
+                }
+                break;
+            case HALF_CLOSED:
+                // if the transition fails, another caller has already finished this round
+                stateWords.compareAndSet(key, stateWord, StateWord.INITIAL);
+                break;
+            default:
+                // the late outcome of a call which has been permitted before the CircuitBreaker of the key opened
+        }
+    }
+
+    @Override
+    public CircuitBreaker.State getState(long key) {
+        return StateWord.state(stateWords.get(key));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return circuitBreakerConfig;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KeyedCircuitBreaker '%s'", this.name);
+    }
+
+    /**
+     * @return the number of keys in the map, including recovered keys which have not been dropped yet
+     */
+    int getNumberOfKeys() {
+        return stateWords.size();
+    }
+
+    /**
+     * Resets the CircuitBreakers of all keys to CLOSED without failures.
+     */
+    void reset() {
+        stateWords.reset();
+    }
+
+    private void recordConsecutiveFailure(long key, long stateWord) {
+        long currentStateWord = stateWord;
+        long currentNumOfFailures = StateWord.payload(currentStateWord) + 1;
+        while (currentNumOfFailures <= maxFailures) {
+            if (stateWords.compareAndSet(key, currentStateWord, StateWord.withPayload(currentStateWord, currentNumOfFailures))) {
+                return;
+            }
+            currentStateWord = stateWords.get(key);
+            if (StateWord.state(currentStateWord) != CircuitBreaker.State.CLOSED) {
+                // the CircuitBreaker of the key has opened concurrently
+                return;
+            }
+            currentNumOfFailures = StateWord.payload(currentStateWord) + 1;
+        }
+        transitionToOpenState(key, currentStateWord);
+    }
+
+    /**
+     * A key does not store its number of openings, so every opening is treated as the first one.
+     */
+    private void transitionToOpenState(long key, long stateWord) {
+        long now = clock.currentTimeMillis();
+        long waitInterval = CircuitBreakerStateMachine.clampWaitInterval(waitIntervalFunction.apply(1, 0), now);
+        stateWords.compareAndSet(key, stateWord, StateWord.transition(stateWord, CircuitBreaker.State.OPEN,
+                now + waitInterval));
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent open-addressing map from primitive long keys to state words, without boxing.
+ *
+ * A key which is not in the map has the initial state word, so only keys which have left the initial state take
+ * memory: a key and a state word of 8 bytes each, in a table which is at most half full. The map is divided into
+ * segments, each with its own table. Reading and changing the state word of a key is lock-free; a key is inserted
+ * while holding the lock of its segment, which also rebuilds the table if it is half full.
+ *
+ * A key whose state word has returned to the initial state word keeps its slot until the table is rebuilt, which
+ * drops it. The rebuilt table is sized for the remaining keys, so the memory of the map is bounded by the number of
+ * keys which are not in the initial state, even if many keys come and go.
+ *
+ * A free slot has the state word {@link #FREE}, a slot which has been copied into the rebuilt table has the state
+ * word {@link #MOVED}. Both use the unused state ordinal 3, so they are never equal to a real state word.
+ */
+final class LongStateWordMap {
+
+    static final long FREE = -1L;
+    static final long MOVED = 3L << 62;
+
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_SHIFT;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments;
+
+    LongStateWordMap() {
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @return the state word of the key, or the initial state word if the key is not in the map
+     */
+    long get(long key) {
+        long hash = hash(key);
+        return segments[segmentOf(hash)].get(key, hash);
+    }
+
+    /**
+     * Atomically sets the state word of the key to the new state word, if it is the expected state word.
+     * The key is inserted, if it is not in the map and the expected state word is the initial state word.
+     *
+     * @return false, if the state word has been changed concurrently
+     */
+    boolean compareAndSet(long key, long expectedStateWord, long newStateWord) {
+        long hash = hash(key);
+        return segments[segmentOf(hash)].compareAndSet(key, hash, expectedStateWord, newStateWord);
+    }
+
+    /**
+     * @return the number of keys in the map, including the keys which have returned to the initial state word
+     * and are dropped by the next rebuild of their table
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Sets the state words of all keys to the initial state word. Concurrent transitions may survive the reset.
+     */
+    void reset() {
+        for (Segment segment : segments) {
+            segment.reset();
+        }
+    }
+
+    private static int segmentOf(long hash) {
+        return (int) (hash >>> (64 - SEGMENT_SHIFT));
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so that sequential keys are spread over the segments and slots.
+     */
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Table {
+
+        private final long[] keys;
+        private final AtomicLongArray stateWords;
+        private final int mask;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.stateWords = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                stateWords.lazySet(i, FREE);
+            }
+        }
+
+        /**
+         * @return the slot of the key, the first free slot, or -1 if the table has been moved while probing
+         */
+        private int slotOf(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (true) {
+                long stateWord = stateWords.get(slot);
+                if (stateWord == FREE) {
+                    return slot;
+                }
+                if (stateWord == MOVED) {
+                    return -1;
+                }
+                // the key has been written before the state word was published
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        // guarded by this
+        private int size;
+
+        private long get(long key, long hash) {
+            while (true) {
+                Table currentTable = table;
+                int slot = currentTable.slotOf(key, hash);
+                if (slot >= 0) {
+                    long stateWord = currentTable.stateWords.get(slot);
+                    if (stateWord == FREE) {
+                        return StateWord.INITIAL;
+                    }
+                    if (stateWord != MOVED) {
+                        return stateWord;
+                    }
+                }
+                awaitRebuild();
+            }
+        }
+
+        private boolean compareAndSet(long key, long hash, long expectedStateWord, long newStateWord) {
+            while (true) {
+                Table currentTable = table;
+                int slot = currentTable.slotOf(key, hash);
+                if (slot >= 0) {
+                    long stateWord = currentTable.stateWords.get(slot);
+                    if (stateWord == FREE) {
+                        return expectedStateWord == StateWord.INITIAL && insert(key, hash, newStateWord);
+                    }
+                    if (stateWord != MOVED) {
+                        if (stateWord != expectedStateWord) {
+                            return false;
+                        }
+                        if (currentTable.stateWords.compareAndSet(slot, expectedStateWord, newStateWord)) {
+                            return true;
+                        }
+                        if (currentTable.stateWords.get(slot) != MOVED) {
+                            return false;
+                        }
+                    }
+                }
+                awaitRebuild();
+            }
+        }
+
+        /**
+         * Inserts the key with the state word, unless it has been inserted concurrently.
+         *
+         * @return false, if the key has been inserted concurrently
+         */
+        private synchronized boolean insert(long key, long hash, long stateWord) {
+            Table currentTable = table;
+            int slot = currentTable.slotOf(key, hash);
+            if (currentTable.stateWords.get(slot) != FREE) {
+                return false;
+            }
+            if ((size + 1) * 2 > currentTable.keys.length) {
+                currentTable = rebuild(currentTable);
+                slot = currentTable.slotOf(key, hash);
+            }
+            currentTable.keys[slot] = key;
+            currentTable.stateWords.set(slot, stateWord);
+            size++;
+            return true;
+        }
+
+        /**
+         * Copies the slots into a new table and drops the keys whose state word is the initial state word. Every slot
+         * is replaced by MOVED with a CAS, so that a concurrent change of a state word either happens before the copy
+         * or fails and is retried in the new table, where a dropped key is inserted again.
+         *
+         * The new table is at most a third full, so that it is not rebuilt again before a sixth of its slots has been
+         * filled. If no key is dropped, the table doubles.
+         */
+        private Table rebuild(Table oldTable) {
+            long[] movedStateWords = new long[oldTable.keys.length];
+            int remainingKeys = 0;
+            for (int i = 0; i < oldTable.keys.length; i++) {
+                long stateWord;
+                do {
+                    stateWord = oldTable.stateWords.get(i);
+                } while (stateWord != FREE && !oldTable.stateWords.compareAndSet(i, stateWord, MOVED));
+                movedStateWords[i] = stateWord;
+                if (stateWord != FREE && stateWord != StateWord.INITIAL) {
+                    remainingKeys++;
+                }
+            }
+            int capacity = INITIAL_CAPACITY;
+            while ((remainingKeys + 1) * 3 > capacity) {
+                capacity <<= 1;
+            }
+            Table newTable = new Table(capacity);
+            for (int i = 0; i < oldTable.keys.length; i++) {
+                long stateWord = movedStateWords[i];
+                if (stateWord != FREE && stateWord != StateWord.INITIAL) {
+                    long key = oldTable.keys[i];
+                    int slot = newTable.slotOf(key, hash(key));
+                    newTable.keys[slot] = key;
+                    newTable.stateWords.lazySet(slot, stateWord);
+                }
+            }
+            size = remainingKeys;
+            table = newTable;
+            return newTable;
+        }
+
+        private synchronized void reset() {
+            Table currentTable = table;
+            for (int i = 0; i < currentTable.keys.length; i++) {
+                long stateWord = currentTable.stateWords.get(i);
+                if (stateWord != FREE) {
+                    currentTable.stateWords.compareAndSet(i, stateWord, StateWord.INITIAL);
+                }
+            }
+        }
+
+        /**
+         * Waits until the rebuild which has moved the table has published the new table. The rebuild holds the lock
+         * of the segment until the new table is published.
+         */
+        private synchronized void awaitRebuild() {
+        }
+    }
+}
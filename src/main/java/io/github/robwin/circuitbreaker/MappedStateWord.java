@@ -0,0 +1,130 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * A state word in a memory-mapped file. All processes which map the same file see the same state word,
+ * it is read and changed with the volatile and CAS operations of sun.misc.Unsafe on the mapped memory.
+ *
+ * This class is the only accessor of sun.misc.Unsafe. It is looked up by name and called through method handles,
+ * which the JIT inlines like direct calls, so that no class refers to the internal API and javac does not warn.
+ */
+final class MappedStateWord implements StateWordCell {
+
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle COMPARE_AND_SWAP_LONG;
+    private static final long BUFFER_ADDRESS_OFFSET;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            GET_LONG = lookup.findVirtual(unsafeClass, "getLong",
+                    methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            GET_LONG_VOLATILE = lookup.findVirtual(unsafeClass, "getLongVolatile",
+                    methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            COMPARE_AND_SWAP_LONG = lookup.findVirtual(unsafeClass, "compareAndSwapLong",
+                    methodType(boolean.class, Object.class, long.class, long.class, long.class)).bindTo(unsafe);
+            MethodHandle objectFieldOffset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+                    methodType(long.class, Field.class)).bindTo(unsafe);
+            BUFFER_ADDRESS_OFFSET = (long) objectFieldOffset.invokeExact(Buffer.class.getDeclaredField("address"));
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Keeps the mapping alive as long as the state word is used
+    private final MappedByteBuffer buffer;
+    private final long address;
+
+    /**
+     * @param buffer the mapped file
+     * @param offset the offset of the state word in the mapped file, which must be a multiple of 8
+     */
+    MappedStateWord(MappedByteBuffer buffer, int offset) {
+        if ((offset & 7) != 0) {
+            throw new IllegalArgumentException("offset must be a multiple of 8");
+        }
+        this.buffer = buffer;
+        this.address = address(buffer) + offset;
+    }
+
+    @Override
+    public long get() {
+        return getLongVolatile(address);
+    }
+
+    @Override
+    public boolean compareAndSet(long expectedStateWord, long newStateWord) {
+        return compareAndSetLong(address, expectedStateWord, newStateWord);
+    }
+
+    /**
+     * @return the address of the first byte of the direct buffer
+     */
+    static long address(MappedByteBuffer buffer) {
+        try {
+            return (long) GET_LONG.invokeExact((Object) buffer, BUFFER_ADDRESS_OFFSET);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Atomically sets a long of the direct buffer, which has to be aligned to 8 bytes.
+     */
+    static boolean compareAndSetLong(MappedByteBuffer buffer, int offset, long expected, long value) {
+        return compareAndSetLong(address(buffer) + offset, expected, value);
+    }
+
+    /**
+     * Reads a long of the direct buffer with volatile semantics, which has to be aligned to 8 bytes.
+     */
+    static long getLongVolatile(MappedByteBuffer buffer, int offset) {
+        return getLongVolatile(address(buffer) + offset);
+    }
+
+    private static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean compareAndSetLong(long address, long expected, long value) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_LONG.invokeExact((Object) null, address, expected, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -18,10 +18,15 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import io.github.robwin.clock.Clock;
+
 final public class OpenState extends CircuitBreakerState {
 
-    OpenState(CircuitBreakerStateMachine stateMachine, CircuitBreakerState currentState) {
-        super(stateMachine, currentState);
+    private final Clock clock;
+
+    OpenState(CircuitBreakerStateMachine stateMachine) {
+        super(stateMachine);
+        this.clock = stateMachine.getCircuitBreakerConfig().getClock();
     }
 
     /**
@@ -30,12 +35,14 @@ final public class OpenState extends CircuitBreakerState {
      * @return boolean whether a call should be permitted
      */
     @Override
-    public boolean isCallPermitted() {
-        if (System.currentTimeMillis() >= retryAfter.get()) {
-            stateMachine.transitionToHalfClosedState(this);
-            return true;
+    public boolean isCallPermitted(long stateWord) {
+        long retryAfter = StateWord.payload(stateWord);
+        if (clock.currentTimeMillis() < retryAfter) {
+            return false;
         }
-        return false;
+        // the wait interval has elapsed. Whoever wins the transition, the caller competes for a trial call of the new state.
+        stateMachine.transitionToHalfClosedState(stateWord);
+        return stateMachine.isCallPermitted(stateMachine.getStateWord());
     }
 
     /**
@@ -43,8 +50,8 @@ final public class OpenState extends CircuitBreakerState {
      * This must be called if a call to this backend fails
      */
     @Override
-    public void recordFailure() {
-        numOfFailures.incrementAndGet();
+    public void recordFailure(long stateWord, boolean slowCall) {
+        // the CircuitBreaker is already OPEN
     }
 
     /**
@@ -52,8 +59,8 @@ final public class OpenState extends CircuitBreakerState {
      * This must be called after a successful call.
      */
     @Override
-    public void recordSuccess() {
-        stateMachine.transitionToInitialClosedState();
+    public void recordSuccess(long stateWord, boolean slowCall) {
+        // the late outcome of a call which has been permitted before the CircuitBreaker opened
     }
 
     /**
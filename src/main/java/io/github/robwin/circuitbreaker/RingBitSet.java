@@ -0,0 +1,102 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size ring of bits which stores the outcome of the last {@code size} calls.
+ * A set bit represents a failed call, a cleared bit a successful call.
+ * Once the ring is full, each new bit overwrites the oldest one.
+ *
+ * The ring is lock-free and does not allocate after construction. Bits are packed into longs,
+ * so a ring of 100 calls needs two words. The number of set bits is counted on read instead of being maintained
+ * in a separate counter, so that writing a bit which does not change needs no CAS at all.
+ */
+final class RingBitSet {
+
+    private final int size;
+    private final AtomicLongArray words;
+    // The total number of bits which have been set, used as a monotonic write cursor
+    private final AtomicLong index;
+
+    RingBitSet(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be greater than or equal to 1");
+        }
+        this.size = size;
+        this.words = new AtomicLongArray(((size - 1) >> 6) + 1);
+        this.index = new AtomicLong();
+    }
+
+    /**
+     * Overwrites the oldest bit of the ring.
+     *
+     * @param value true, if the bit should be set
+     */
+    void setNextBit(boolean value) {
+        int bitIndex = (int) (index.getAndIncrement() % size);
+        int wordIndex = bitIndex >> 6;
+        long bitMask = 1L << bitIndex;
+        long previousWord;
+        long nextWord;
+        do {
+            previousWord = words.get(wordIndex);
+            nextWord = value ? previousWord | bitMask : previousWord & ~bitMask;
+        } while (previousWord != nextWord && !words.compareAndSet(wordIndex, previousWord, nextWord));
+    }
+
+    /**
+     * @return the number of set bits
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < words.length(); i++) {
+            cardinality += Long.bitCount(words.get(i));
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return the number of bits which have been written, at most the size of the ring
+     */
+    int length() {
+        long written = index.get();
+        return written < size ? (int) written : size;
+    }
+
+    /**
+     * @return the capacity of the ring
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Clears all bits and rewinds the ring.
+     * A bit which is written concurrently might survive the reset, but it is overwritten when the ring wraps around.
+     */
+    void reset() {
+        index.set(0);
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+    }
+}
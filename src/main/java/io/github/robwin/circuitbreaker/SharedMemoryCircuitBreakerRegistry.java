@@ -0,0 +1,97 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Backend circuitBreaker manager whose circuitBreakers keep their state words in a file which is shared by all
+ * processes of a host. A circuitBreaker which is opened by one process is OPEN for all processes, as soon as they
+ * read the state word the next time.
+ *
+ * Only the state word and the HALF_CLOSED trial calls are shared: the number of consecutive failures, the state, its
+ * deadline and the trial calls which all processes together may make. The sliding window of a failure rate, the metrics and the events are local to every process. The deadlines are times of the clocks of the
+ * processes, so a circuitBreaker must be configured with a wall clock like {@link Clock#system()}, other clocks are
+ * rejected. If all slots of the file are claimed, a new circuitBreaker keeps its state word locally.
+ */
+final class SharedMemoryCircuitBreakerRegistry implements CircuitBreakerRegistry {
+
+    private final CircuitBreakerConfig defaultCircuitBreakerConfig;
+    private final SharedStateWordFile sharedFile;
+
+    /**
+     * The circuitBreakers, indexed by name of the backend.
+     */
+    private final ConcurrentMap<String, CircuitBreakerStateMachine> circuitBreakers;
+
+    /**
+     * @param defaultCircuitBreakerConfig The default CircuitBreaker configuration.
+     * @param sharedFile The file which holds the shared state words.
+     */
+    SharedMemoryCircuitBreakerRegistry(CircuitBreakerConfig defaultCircuitBreakerConfig, SharedStateWordFile sharedFile) {
+        this.defaultCircuitBreakerConfig = requireWallClock(Objects.requireNonNull(defaultCircuitBreakerConfig, "CircuitBreakerConfig must not be null"));
+        this.sharedFile = Objects.requireNonNull(sharedFile, "SharedStateWordFile must not be null");
+        this.circuitBreakers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircuitBreaker circuitBreaker(String name) {
+        return circuitBreaker(name, defaultCircuitBreakerConfig);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircuitBreaker circuitBreaker(String name, CircuitBreakerConfig customCircuitBreakerConfig) {
+        return circuitBreakers.computeIfAbsent(Objects.requireNonNull(name, "Name must not be null"), (k) -> createCircuitBreaker(name,
+                requireWallClock(customCircuitBreakerConfig)));
+    }
+
+    /**
+     * Reset the circuitBreaker states. The reset is visible to all processes.
+     */
+    public void resetMonitorStates() {
+        circuitBreakers.values().forEach(CircuitBreakerStateMachine::reset);
+    }
+
+    private static CircuitBreakerConfig requireWallClock(CircuitBreakerConfig circuitBreakerConfig) {
+        if (!circuitBreakerConfig.getClock().isWallClock()) {
+            throw new IllegalArgumentException(String.format(
+                    "A shared memory CircuitBreaker requires a wall clock like Clock.system(), but has %s", circuitBreakerConfig.getClock()));
+        }
+        return circuitBreakerConfig;
+    }
+
+    private CircuitBreakerStateMachine createCircuitBreaker(String name, CircuitBreakerConfig circuitBreakerConfig) {
+        StateWordCell stateWord = sharedFile.stateWord(name);
+        if (stateWord == null) {
+            return new CircuitBreakerStateMachine(name, circuitBreakerConfig);
+        }
+        return new CircuitBreakerStateMachine(name, circuitBreakerConfig, stateWord, sharedFile.trialCalls(name),
+                StateTransitionListener.NONE);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A memory-mapped file with the state words of CircuitBreakers which is shared by all processes of a host.
+ *
+ * <pre>
+ * header: magic (int) | version (int) | capacity (int) | reserved (int)
+ * slot:   name hash (long) | state word (long) | HALF_CLOSED trial calls (long)
+ * </pre>
+ *
+ * The slots are an open-addressing hash table over the 64-bit hash of the CircuitBreaker name. A process claims a
+ * free slot with a CAS of the name hash, so that processes which create the CircuitBreaker of the same name
+ * concurrently agree on one slot. The header is written by the process which creates the file, while it holds a
+ * file lock.
+ */
+final class SharedStateWordFile {
+
+    static final int MAGIC = 0x43425332;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int SLOT_SIZE = 24;
+
+    private static final int STATE_WORD_OFFSET = 8;
+    private static final int TRIAL_CALLS_OFFSET = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private SharedStateWordFile(MappedByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Maps an existing file or creates a new one. The mapping stays valid after the file has been closed.
+     *
+     * @param file the shared file
+     * @param capacity the maximum number of CircuitBreakers of a new file. An existing file keeps its capacity.
+     * @throws IOException if the file cannot be mapped or is not a shared state word file
+     */
+    static SharedStateWordFile open(Path file, int capacity) throws IOException {
+        Objects.requireNonNull(file, "File must not be null");
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be greater than or equal to 1");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+                    buffer.putInt(0, MAGIC);
+                    buffer.putInt(4, VERSION);
+                    buffer.putInt(8, capacity);
+                    return new SharedStateWordFile(buffer, capacity);
+                }
+                long size = channel.size();
+                if (size < HEADER_SIZE) {
+                    throw new IOException(String.format("'%s' is not a shared CircuitBreaker file", file));
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                int existingCapacity = buffer.getInt(8);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || existingCapacity < 1
+                        || size < HEADER_SIZE + (long) existingCapacity * SLOT_SIZE) {
+                    throw new IOException(String.format("'%s' is not a shared CircuitBreaker file", file));
+                }
+                return new SharedStateWordFile(buffer, existingCapacity);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the shared state word of the CircuitBreaker name and claims a slot, if the name has none yet.
+     *
+     * @param name the name of the CircuitBreaker
+     * @return the shared state word, or null if all slots are claimed by other names
+     */
+    StateWordCell stateWord(String name) {
+        int slot = slot(name);
+        return slot < 0 ? null : new MappedStateWord(buffer, slot + STATE_WORD_OFFSET);
+    }
+
+    /**
+     * Returns the shared HALF_CLOSED trial calls of the CircuitBreaker name and claims a slot, if the name has none yet.
+     *
+     * @param name the name of the CircuitBreaker
+     * @return the shared trial calls, or null if all slots are claimed by other names
+     */
+    StateWordCell trialCalls(String name) {
+        int slot = slot(name);
+        return slot < 0 ? null : new MappedStateWord(buffer, slot + TRIAL_CALLS_OFFSET);
+    }
+
+    /**
+     * A claimed slot is never released, so a name is always found in the same slot.
+     *
+     * @return the offset of the slot of the name, or -1 if all slots are claimed by other names
+     */
+    private int slot(String name) {
+        long hash = CircuitBreakerSnapshot.hash(name);
+        int index = (int) ((hash & Long.MAX_VALUE) % capacity);
+        for (int i = 0; i < capacity; i++) {
+            int slot = HEADER_SIZE + index * SLOT_SIZE;
+            long slotHash = MappedStateWord.getLongVolatile(buffer, slot);
+            if (slotHash == 0 && MappedStateWord.compareAndSetLong(buffer, slot, 0, hash)) {
+                return slot;
+            }
+            if (slotHash == hash || MappedStateWord.getLongVolatile(buffer, slot) == hash) {
+                return slot;
+            }
+            index = index + 1 == capacity ? 0 : index + 1;
+        }
+        return -1;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+/**
+ * A window over the outcome of the most recent calls which is used to calculate the failure rate
+ * and the slow call rate of a CLOSED CircuitBreaker.
+ */
+interface SlidingWindow {
+
+    /**
+     * Records the outcome of a call.
+     *
+     * @param failure true, if the call has failed
+     * @param slowCall true, if the call has taken longer than the slow call duration threshold
+     */
+    void record(boolean failure, boolean slowCall);
+
+    /**
+     * Calculates the failure rate of the calls in the window.
+     *
+     * @return the failure rate in percentage or -1, if the window does not contain enough calls yet
+     */
+    float getFailureRate();
+
+    /**
+     * Calculates the slow call rate of the calls in the window.
+     *
+     * @return the slow call rate in percentage or -1, if the window does not contain enough calls yet
+     */
+    float getSlowCallRate();
+
+    /**
+     * @return the number of calls in the window
+     */
+    int getNumberOfBufferedCalls();
+
+    /**
+     * Discards the outcome of all calls, when the CircuitBreaker is CLOSED again.
+     */
+    void reset();
+
+    /**
+     * Creates the sliding window which is configured in the CircuitBreakerConfig.
+     *
+     * @param circuitBreakerConfig the CircuitBreaker configuration
+     * @return a time-based window, if a time window size is configured. Otherwise a count-based window.
+     */
+    static SlidingWindow of(CircuitBreakerConfig circuitBreakerConfig) {
+        if (circuitBreakerConfig.getTimeWindowSize() > 0) {
+            return new TimeBasedSlidingWindow(circuitBreakerConfig.getTimeWindowSize(),
+                    circuitBreakerConfig.getMinimumNumberOfCalls(), circuitBreakerConfig.getClock());
+        }
+        return new CountBasedSlidingWindow(circuitBreakerConfig.getRingBufferSize(),
+                circuitBreakerConfig.isSlowCallDetectionEnabled());
+    }
+}
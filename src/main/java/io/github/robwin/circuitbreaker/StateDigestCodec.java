@@ -0,0 +1,162 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Encodes the state digests of CircuitBreakers into gossip messages.
+ *
+ * A digest is the name hash, the state and the epoch of the state word of a CircuitBreaker. The digests of a message
+ * are sorted by their unsigned name hash and every hash is encoded as the varint of the difference to the previous
+ * hash, the state and the epoch are encoded as one varint. A digest takes about 10 bytes.
+ *
+ * <pre>
+ * message: version (byte) | node id (long) | number of digests (varint) | digests
+ * digest:  hash - previous hash (varint) | epoch &lt;&lt; 2 | state (varint)
+ * </pre>
+ */
+final class StateDigestCodec {
+
+    static final byte VERSION = 1;
+    private static final CircuitBreaker.State[] STATES = CircuitBreaker.State.values();
+    private static final int HEADER_SIZE = 1 + 8 + 5;
+    private static final int MAX_DIGEST_SIZE = 10 + 3;
+
+    /**
+     * Consumes the decoded digests of a message.
+     */
+    @FunctionalInterface
+    interface DigestConsumer {
+        void accept(long nodeId, long hash, CircuitBreaker.State state, int epoch);
+    }
+
+    private StateDigestCodec(){}
+
+    /**
+     * @return the state and the epoch of the state word as one int
+     */
+    static int digest(long stateWord) {
+        return digest(StateWord.state(stateWord), StateWord.epoch(stateWord));
+    }
+
+    static int digest(CircuitBreaker.State state, int epoch) {
+        return (epoch << 2) | state.ordinal();
+    }
+
+    /**
+     * Encodes the digests into as many messages as necessary.
+     *
+     * @param nodeId the id of the sending node
+     * @param digests the digests by name hash, sorted by the unsigned hash
+     * @param maxMessageSize the maximum size of a message
+     * @return the messages
+     */
+    static List<byte[]> encode(long nodeId, SortedMap<Long, Integer> digests, int maxMessageSize) {
+        List<byte[]> messages = new ArrayList<>();
+        byte[] body = new byte[maxMessageSize - HEADER_SIZE];
+        int position = 0;
+        int count = 0;
+        long previousHash = 0;
+        for (Map.Entry<Long, Integer> digest : digests.entrySet()) {
+            if (position + MAX_DIGEST_SIZE > body.length) {
+                messages.add(message(nodeId, count, body, position));
+                position = 0;
+                count = 0;
+                previousHash = 0;
+            }
+            long hash = digest.getKey();
+            position = writeVarLong(body, position, hash - previousHash);
+            position = writeVarLong(body, position, digest.getValue() & 0xFFFFFFFFL);
+            previousHash = hash;
+            count++;
+        }
+        if (count > 0) {
+            messages.add(message(nodeId, count, body, position));
+        }
+        return messages;
+    }
+
+    /**
+     * Decodes a message.
+     *
+     * @throws IllegalArgumentException if the message is malformed
+     */
+    static void decode(byte[] message, DigestConsumer consumer) {
+        if (message.length < 10 || message[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported gossip message");
+        }
+        long nodeId = 0;
+        for (int i = 1; i < 9; i++) {
+            nodeId = (nodeId << 8) | (message[i] & 0xFF);
+        }
+        int[] position = {9};
+        long count = readVarLong(message, position);
+        long hash = 0;
+        for (long i = 0; i < count; i++) {
+            hash += readVarLong(message, position);
+            long digest = readVarLong(message, position);
+            int state = (int) (digest & 3);
+            if (state >= STATES.length) {
+                throw new IllegalArgumentException("Malformed gossip message");
+            }
+            consumer.accept(nodeId, hash, STATES[state], (int) (digest >>> 2));
+        }
+    }
+
+    private static byte[] message(long nodeId, int count, byte[] body, int length) {
+        byte[] header = new byte[HEADER_SIZE];
+        header[0] = VERSION;
+        for (int i = 0; i < 8; i++) {
+            header[1 + i] = (byte) (nodeId >>> (56 - 8 * i));
+        }
+        int headerLength = writeVarLong(header, 9, count);
+        byte[] message = new byte[headerLength + length];
+        System.arraycopy(header, 0, message, 0, headerLength);
+        System.arraycopy(body, 0, message, headerLength, length);
+        return message;
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(byte[] buffer, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= buffer.length) {
+                throw new IllegalArgumentException("Malformed gossip message");
+            }
+            byte b = buffer[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed gossip message");
+    }
+}
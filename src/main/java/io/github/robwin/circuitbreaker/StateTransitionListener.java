@@ -0,0 +1,33 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+/**
+ * Is notified synchronously after a {@link CircuitBreakerStateMachine} has changed its state.
+ * The listener is called by the thread which has won the transition, so it must be cheap and must not block.
+ * It should read the current state word of the CircuitBreaker instead of assuming the state of the transition,
+ * because a concurrent transition may already have followed.
+ */
+@FunctionalInterface
+interface StateTransitionListener {
+
+    StateTransitionListener NONE = circuitBreaker -> {};
+
+    void onStateTransition(CircuitBreakerStateMachine circuitBreaker);
+}
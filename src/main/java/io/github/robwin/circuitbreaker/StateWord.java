@@ -0,0 +1,96 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+/**
+ * Encodes the complete state of a CircuitBreaker in a single long, so that it can be read with one volatile read
+ * and changed with one CAS.
+ *
+ * <pre>
+ *  63     62 | 61          48 | 47                                 0
+ * +----------+----------------+------------------------------------+
+ * |  state   |     epoch      |              payload               |
+ * +----------+----------------+------------------------------------+
+ * </pre>
+ *
+ * The state is the ordinal of {@link CircuitBreaker.State}. The epoch is incremented on every transition, so that
+ * two words of the same state from different rounds are never equal. The meaning of the payload depends on the state:
+ * <ul>
+ *     <li>CLOSED: the number of consecutive failures</li>
+ *     <li>OPEN: the time [ms] after which a call is permitted again (retryAfter)</li>
+ *     <li>HALF_CLOSED: the time [ms] after which the CircuitBreaker goes back to OPEN, if the trial calls have not
+ *     reported their outcome (probe deadline)</li>
+ * </ul>
+ */
+final class StateWord {
+
+    private static final CircuitBreaker.State[] STATES = CircuitBreaker.State.values();
+
+    private static final int STATE_SHIFT = 62;
+    private static final int EPOCH_SHIFT = 48;
+    private static final long EPOCH_MASK = (1L << (STATE_SHIFT - EPOCH_SHIFT)) - 1;
+    static final long MAX_PAYLOAD = (1L << EPOCH_SHIFT) - 1;
+
+    /**
+     * The word of a new CircuitBreaker: CLOSED without failures.
+     */
+    static final long INITIAL = 0L;
+
+    private StateWord(){}
+
+    static CircuitBreaker.State state(long stateWord) {
+        return STATES[(int) (stateWord >>> STATE_SHIFT)];
+    }
+
+    static int epoch(long stateWord) {
+        return (int) ((stateWord >>> EPOCH_SHIFT) & EPOCH_MASK);
+    }
+
+    /**
+     * Compares two epochs of the same CircuitBreaker, taking the wrap-around of the epoch into account.
+     *
+     * @return true, if the epoch is less than half of the epoch range after the previous epoch
+     */
+    static boolean isLaterEpoch(int epoch, int previousEpoch) {
+        long distance = (epoch - previousEpoch) & EPOCH_MASK;
+        return distance != 0 && distance <= (EPOCH_MASK >>> 1);
+    }
+
+    static long payload(long stateWord) {
+        return stateWord & MAX_PAYLOAD;
+    }
+
+    /**
+     * @return the word of the same state and epoch with another payload
+     */
+    static long withPayload(long stateWord, long payload) {
+        return (stateWord & ~MAX_PAYLOAD) | (payload & MAX_PAYLOAD);
+    }
+
+    /**
+     * @return the word of a transition into the given state, the epoch is incremented
+     */
+    static long transition(long stateWord, CircuitBreaker.State state, long payload) {
+        return of(state, (epoch(stateWord) + 1) & (int) EPOCH_MASK, payload);
+    }
+
+    static long of(CircuitBreaker.State state, int epoch, long payload) {
+        return ((long) state.ordinal() << STATE_SHIFT) | ((epoch & EPOCH_MASK) << EPOCH_SHIFT) | (payload & MAX_PAYLOAD);
+    }
+}
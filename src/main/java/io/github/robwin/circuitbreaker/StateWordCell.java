@@ -0,0 +1,40 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+/**
+ * The memory location of the state word of a {@link CircuitBreakerStateMachine}, or of another long which has to be
+ * shared together with it, like the trial calls of the HALF_CLOSED state.
+ * The long is either local to the JVM ({@link AtomicStateWord}) or shared by the processes which map the same
+ * file ({@link MappedStateWord}).
+ */
+interface StateWordCell {
+
+    /**
+     * @return the current state word, with volatile semantics
+     */
+    long get();
+
+    /**
+     * Atomically sets the state word to the new state word, if it is the expected state word.
+     *
+     * @return false, if the state word has been changed concurrently
+     */
+    boolean compareAndSet(long expectedStateWord, long newStateWord);
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A sliding window which aggregates the outcome of the calls of the last N seconds.
+ *
+ * Every second of the window has its own bucket of striped {@link LongAdder} counters, so that concurrent callers
+ * do not contend on a single atomic variable. The buckets are arranged in a ring which is indexed by the epoch second.
+ * A bucket which still holds the counts of an earlier round is replaced lazily by the first caller who records
+ * an outcome in the current second, so no background thread is needed. Buckets which have not been replaced are
+ * outdated and are skipped when the failure rate is calculated.
+ */
+final class TimeBasedSlidingWindow implements SlidingWindow {
+
+    // A bucket of the epoch second -1 is always outdated and replaced before it is used
+    private static final Bucket EMPTY_BUCKET = new Bucket(-1);
+
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final int timeWindowSize;
+    private final int minimumNumberOfCalls;
+    private final Clock clock;
+
+    TimeBasedSlidingWindow(int timeWindowSize, int minimumNumberOfCalls, Clock clock) {
+        this.timeWindowSize = timeWindowSize;
+        this.clock = clock;
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        this.buckets = new AtomicReferenceArray<>(timeWindowSize);
+        reset();
+    }
+
+    @Override
+    public void record(boolean failure, boolean slowCall) {
+        Bucket bucket = currentBucket(currentEpochSecond());
+        bucket.numOfCalls.increment();
+        if (failure) {
+            bucket.numOfFailures.increment();
+        }
+        if (slowCall) {
+            bucket.numOfSlowCalls.increment();
+        }
+    }
+
+    @Override
+    public float getFailureRate() {
+        return rate(false);
+    }
+
+    @Override
+    public float getSlowCallRate() {
+        return rate(true);
+    }
+
+    @Override
+    public int getNumberOfBufferedCalls() {
+        long currentEpochSecond = currentEpochSecond();
+        long numOfCalls = 0;
+        for (int i = 0; i < timeWindowSize; i++) {
+            Bucket bucket = buckets.get(i);
+            if (currentEpochSecond - bucket.epochSecond < timeWindowSize) {
+                numOfCalls += bucket.numOfCalls.sum();
+            }
+        }
+        return (int) Math.min(numOfCalls, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < timeWindowSize; i++) {
+            buckets.set(i, EMPTY_BUCKET);
+        }
+    }
+
+    private float rate(boolean slowCalls) {
+        long currentEpochSecond = currentEpochSecond();
+        long numOfCalls = 0;
+        long numOfMatchingCalls = 0;
+        for (int i = 0; i < timeWindowSize; i++) {
+            Bucket bucket = buckets.get(i);
+            if (currentEpochSecond - bucket.epochSecond < timeWindowSize) {
+                numOfCalls += bucket.numOfCalls.sum();
+                numOfMatchingCalls += slowCalls ? bucket.numOfSlowCalls.sum() : bucket.numOfFailures.sum();
+            }
+        }
+        if (numOfCalls == 0 || numOfCalls < minimumNumberOfCalls) {
+            return -1;
+        }
+        return numOfMatchingCalls * 100.0f / numOfCalls;
+    }
+
+    private Bucket currentBucket(long currentEpochSecond) {
+        int index = (int) (currentEpochSecond % timeWindowSize);
+        Bucket bucket = buckets.get(index);
+        while (bucket.epochSecond < currentEpochSecond) {
+            // the bucket holds the counts of an earlier round. Only one caller wins the roll, the others use its bucket.
+            Bucket nextBucket = new Bucket(currentEpochSecond);
+            if (buckets.compareAndSet(index, bucket, nextBucket)) {
+                return nextBucket;
+            }
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+
+    private long currentEpochSecond() {
+        return TimeUnit.MILLISECONDS.toSeconds(clock.currentTimeMillis());
+    }
+
+    private static final class Bucket {
+        private final long epochSecond;
+        private final LongAdder numOfCalls = new LongAdder();
+        private final LongAdder numOfFailures = new LongAdder();
+        private final LongAdder numOfSlowCalls = new LongAdder();
+
+        private Bucket(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.event;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+
+/**
+ * An event which is published by a CircuitBreaker, if it changes its state, rejects a call or records an error.
+ */
+public final class CircuitBreakerEvent {
+
+    /**
+     * Types of CircuitBreaker events.
+     */
+    public enum Type {
+        /** The CircuitBreaker has changed its state */
+        STATE_TRANSITION,
+        /** The CircuitBreaker has rejected a call */
+        CALL_NOT_PERMITTED,
+        /** The CircuitBreaker has recorded an exception as a failure */
+        ERROR
+    }
+
+    private final String circuitBreakerName;
+    private final Type type;
+    private final long creationTime;
+    private final CircuitBreaker.State fromState;
+    private final CircuitBreaker.State toState;
+    private final Throwable throwable;
+
+    private CircuitBreakerEvent(String circuitBreakerName, Type type, CircuitBreaker.State fromState,
+                                CircuitBreaker.State toState, Throwable throwable) {
+        this.circuitBreakerName = circuitBreakerName;
+        this.type = type;
+        this.creationTime = System.currentTimeMillis();
+        this.fromState = fromState;
+        this.toState = toState;
+        this.throwable = throwable;
+    }
+
+    public static CircuitBreakerEvent ofStateTransition(String circuitBreakerName, CircuitBreaker.State fromState,
+                                                        CircuitBreaker.State toState) {
+        return new CircuitBreakerEvent(circuitBreakerName, Type.STATE_TRANSITION, fromState, toState, null);
+    }
+
+    public static CircuitBreakerEvent ofCallNotPermitted(String circuitBreakerName) {
+        return new CircuitBreakerEvent(circuitBreakerName, Type.CALL_NOT_PERMITTED, null, null, null);
+    }
+
+    public static CircuitBreakerEvent ofError(String circuitBreakerName, Throwable throwable) {
+        return new CircuitBreakerEvent(circuitBreakerName, Type.ERROR, null, null, throwable);
+    }
+
+    public String getCircuitBreakerName() {
+        return circuitBreakerName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the wall-clock time [ms] when the event has been created
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * @return the state before the transition or null, if the event is not a state transition
+     */
+    public CircuitBreaker.State getFromState() {
+        return fromState;
+    }
+
+    /**
+     * @return the state after the transition or null, if the event is not a state transition
+     */
+    public CircuitBreaker.State getToState() {
+        return toState;
+    }
+
+    /**
+     * @return the recorded exception or null, if the event is not an error
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case STATE_TRANSITION:
+                return String.format("CircuitBreaker '%s' changed state from %s to %s", circuitBreakerName, fromState, toState);
+            case ERROR:
+                return String.format("CircuitBreaker '%s' recorded an error: %s", circuitBreakerName, throwable);
+            default:
+                return String.format("CircuitBreaker '%s' did not permit a call", circuitBreakerName);
+        }
+    }
+}
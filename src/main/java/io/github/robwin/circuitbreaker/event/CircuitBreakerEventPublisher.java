@@ -0,0 +1,60 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Publishes the events of a CircuitBreaker to its subscribers.
+ *
+ * The events are delivered asynchronously and in order. A subscriber which consumes the events slowly does not
+ * slow down the calls of the CircuitBreaker, but if the events are published faster than they are consumed,
+ * the latest events are dropped.
+ */
+public interface CircuitBreakerEventPublisher {
+
+    /**
+     * Subscribes a consumer to the events of the CircuitBreaker.
+     *
+     * @param consumer the consumer of the events
+     */
+    void subscribe(Consumer<CircuitBreakerEvent> consumer);
+
+    /**
+     * Unsubscribes a consumer from the events of the CircuitBreaker.
+     *
+     * @param consumer the consumer of the events
+     */
+    void unsubscribe(Consumer<CircuitBreakerEvent> consumer);
+
+    /**
+     * @return the number of events which have been dropped, because the buffer was full
+     */
+    long getNumberOfDroppedEvents();
+
+    /**
+     * Returns a shared publisher for a CircuitBreaker which does not publish events.
+     * It has no subscribers and never drops an event.
+     *
+     * @return the shared no-op publisher
+     */
+    static CircuitBreakerEventPublisher noOp() {
+        return NoOpEventPublisher.INSTANCE;
+    }
+}
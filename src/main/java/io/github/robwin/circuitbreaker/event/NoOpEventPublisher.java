@@ -0,0 +1,43 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.event;
+
+import java.util.function.Consumer;
+
+/**
+ * The publisher of a CircuitBreaker which does not publish events. Its subscribers are ignored, because they would
+ * never receive an event.
+ */
+enum NoOpEventPublisher implements CircuitBreakerEventPublisher {
+
+    INSTANCE;
+
+    @Override
+    public void subscribe(Consumer<CircuitBreakerEvent> consumer) {
+    }
+
+    @Override
+    public void unsubscribe(Consumer<CircuitBreakerEvent> consumer) {
+    }
+
+    @Override
+    public long getNumberOfDroppedEvents() {
+        return 0;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A {@link CircuitBreakerEventPublisher} which keeps the events in a bounded lock-free ring buffer.
+ *
+ * The publishing callers claim a slot by a CAS on the tail and never block. If the buffer is full, the event is dropped.
+ * The events are dispatched by a drain task on the executor. At most one drain task runs at a time, it is scheduled
+ * by the caller who publishes into an idle buffer. The buffer is allocated by the first subscriber, a CircuitBreaker
+ * checks {@link #hasSubscribers()} before it creates an event, so that events cost nothing without subscribers.
+ */
+public final class RingBufferEventPublisher implements CircuitBreakerEventPublisher {
+
+    private final int capacity;
+    private final int mask;
+    private final Executor executor;
+    private final List<Consumer<CircuitBreakerEvent>> consumers = new CopyOnWriteArrayList<>();
+    // The next slot which is read by the drain task
+    private final AtomicLong head = new AtomicLong();
+    // The next slot which is claimed by a publishing caller
+    private final AtomicLong tail = new AtomicLong();
+    // The number of publications since the drain task has been scheduled, 0 if no drain task is scheduled
+    private final AtomicInteger workInProgress = new AtomicInteger();
+    private final LongAdder droppedEvents = new LongAdder();
+    private volatile AtomicReferenceArray<CircuitBreakerEvent> buffer;
+
+    /**
+     * Creates an event publisher.
+     *
+     * @param bufferSize the number of events which can be buffered, rounded up to the next power of two
+     * @param executor the executor which dispatches the events to the subscribers
+     */
+    public RingBufferEventPublisher(int bufferSize, Executor executor) {
+        this.capacity = bufferSize <= 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1;
+        this.mask = capacity - 1;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the executor which is used, if no event executor is configured. It dispatches the events of all
+     * CircuitBreakers on a single daemon thread.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<CircuitBreakerEvent> consumer) {
+        if (buffer == null) {
+            buffer = new AtomicReferenceArray<>(capacity);
+        }
+        consumers.add(consumer);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<CircuitBreakerEvent> consumer) {
+        consumers.remove(consumer);
+    }
+
+    @Override
+    public long getNumberOfDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * @return true, if at least one consumer is subscribed
+     */
+    public boolean hasSubscribers() {
+        return !consumers.isEmpty();
+    }
+
+    /**
+     * Publishes an event without blocking. The event is dropped, if the buffer is full.
+     *
+     * @param event the event
+     */
+    public void publish(CircuitBreakerEvent event) {
+        AtomicReferenceArray<CircuitBreakerEvent> currentBuffer = buffer;
+        if (currentBuffer == null) {
+            return;
+        }
+        long currentTail;
+        do {
+            currentTail = tail.get();
+            if (currentTail - head.get() >= capacity) {
+                droppedEvents.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(currentTail, currentTail + 1));
+        currentBuffer.lazySet(index(currentTail), event);
+        if (workInProgress.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // the events are dispatched by the next drain task
+                workInProgress.set(0);
+            }
+        }
+    }
+
+    private void drain() {
+        AtomicReferenceArray<CircuitBreakerEvent> currentBuffer = buffer;
+        int missed = 1;
+        do {
+            long currentHead = head.get();
+            CircuitBreakerEvent event;
+            // an empty slot is either not claimed yet or its caller has not stored the event yet. In both cases the
+            // caller increases the work in progress after the event is stored, so that the buffer is drained again.
+            while ((event = currentBuffer.get(index(currentHead))) != null) {
+                currentBuffer.lazySet(index(currentHead), null);
+                head.lazySet(++currentHead);
+                dispatch(event);
+            }
+            missed = workInProgress.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void dispatch(CircuitBreakerEvent event) {
+        for (Consumer<CircuitBreakerEvent> consumer : consumers) {
+            try {
+                consumer.accept(event);
+            } catch (RuntimeException e) {
+                // a failing consumer must neither stop the drain task nor the other consumers
+            }
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "circuitbreaker-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
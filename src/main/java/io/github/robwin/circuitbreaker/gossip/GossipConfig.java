@@ -0,0 +1,128 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.gossip;
+
+import io.github.robwin.clock.Clock;
+
+public class GossipConfig {
+
+    private static final int DEFAULT_GOSSIP_INTERVAL = 1000;
+    private static final int DEFAULT_MEMBER_TIMEOUT = 10000;
+    private static final int DEFAULT_FULL_DIGEST_INTERVAL = 10;
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 1400;
+    private static final int MIN_MAX_MESSAGE_SIZE = 64;
+
+    // The interval [ms] in which the changed states are sent to the other members
+    private final int gossipInterval;
+    // The time [ms] after which a member which has not sent a message is no longer part of the cluster
+    private final int memberTimeout;
+    // Every n-th round sends the states of all CircuitBreakers instead of only the changed states
+    private final int fullDigestInterval;
+    // The maximum size [bytes] of a message
+    private final int maxMessageSize;
+    // The source of time for the member timeout
+    private final Clock clock;
+
+    private GossipConfig(Builder builder) {
+        this.gossipInterval = builder.gossipInterval;
+        this.memberTimeout = builder.memberTimeout;
+        this.fullDigestInterval = builder.fullDigestInterval;
+        this.maxMessageSize = builder.maxMessageSize;
+        this.clock = builder.clock;
+    }
+
+    public Integer getGossipInterval() {
+        return gossipInterval;
+    }
+
+    public Integer getMemberTimeout() {
+        return memberTimeout;
+    }
+
+    public Integer getFullDigestInterval() {
+        return fullDigestInterval;
+    }
+
+    public Integer getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public static GossipConfig.Builder custom(){
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int gossipInterval = DEFAULT_GOSSIP_INTERVAL;
+        private int memberTimeout = DEFAULT_MEMBER_TIMEOUT;
+        private int fullDigestInterval = DEFAULT_FULL_DIGEST_INTERVAL;
+        private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+        private Clock clock = Clock.monotonic();
+
+        public Builder gossipInterval(int gossipInterval) {
+            if (gossipInterval < 10) {
+                throw new IllegalArgumentException("gossipInterval must be at least 10[ms]");
+            }
+            this.gossipInterval = gossipInterval;
+            return this;
+        }
+
+        public Builder memberTimeout(int memberTimeout) {
+            if (memberTimeout < 1) {
+                throw new IllegalArgumentException("memberTimeout must be at least 1[ms]");
+            }
+            this.memberTimeout = memberTimeout;
+            return this;
+        }
+
+        public Builder fullDigestInterval(int fullDigestInterval) {
+            if (fullDigestInterval < 1) {
+                throw new IllegalArgumentException("fullDigestInterval must be greater than or equal to 1");
+            }
+            this.fullDigestInterval = fullDigestInterval;
+            return this;
+        }
+
+        public Builder maxMessageSize(int maxMessageSize) {
+            if (maxMessageSize < MIN_MAX_MESSAGE_SIZE) {
+                throw new IllegalArgumentException("maxMessageSize must be at least " + MIN_MAX_MESSAGE_SIZE + "[bytes]");
+            }
+            this.maxMessageSize = maxMessageSize;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("clock must not be null");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        public GossipConfig build() {
+            if (memberTimeout <= gossipInterval) {
+                throw new IllegalArgumentException("memberTimeout must be greater than the gossipInterval");
+            }
+            return new GossipConfig(this);
+        }
+    }
+}
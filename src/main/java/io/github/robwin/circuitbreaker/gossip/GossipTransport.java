@@ -0,0 +1,45 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.gossip;
+
+import java.util.function.Consumer;
+
+/**
+ * Exchanges the gossip messages of the CircuitBreaker registries of a cluster.
+ *
+ * A transport is a best-effort broadcast: a message may be lost, duplicated or delivered out of order, because every
+ * message carries the complete state of the CircuitBreakers it contains. {@link #broadcast(byte[])} is called by the
+ * gossip thread and must not block on the network, e.g. it can hand the message to a non-blocking UDP channel.
+ */
+public interface GossipTransport {
+
+    /**
+     * Sends the message to all other members of the cluster.
+     *
+     * @param message the encoded message, which must not be modified
+     */
+    void broadcast(byte[] message);
+
+    /**
+     * Sets the receiver of the messages of the other members. The receiver is called by a thread of the transport.
+     *
+     * @param receiver the receiver of the messages
+     */
+    void setReceiver(Consumer<byte[]> receiver);
+}
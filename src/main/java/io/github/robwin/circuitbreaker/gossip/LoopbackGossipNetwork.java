@@ -0,0 +1,70 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.gossip;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An in-process cluster for tests. The transports which have joined the network deliver a message synchronously to
+ * the receivers of all other transports of the network.
+ */
+public final class LoopbackGossipNetwork {
+
+    private final List<LoopbackTransport> members = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return the transport of a new member of the network
+     */
+    public GossipTransport join() {
+        LoopbackTransport transport = new LoopbackTransport();
+        members.add(transport);
+        return transport;
+    }
+
+    /**
+     * Removes the member of the transport from the network, as if its process had stopped.
+     *
+     * @param transport the transport of the member
+     */
+    public void leave(GossipTransport transport) {
+        members.remove(transport);
+    }
+
+    private final class LoopbackTransport implements GossipTransport {
+
+        private volatile Consumer<byte[]> receiver;
+
+        @Override
+        public void broadcast(byte[] message) {
+            for (LoopbackTransport member : members) {
+                Consumer<byte[]> memberReceiver = member.receiver;
+                if (member != this && memberReceiver != null) {
+                    memberReceiver.accept(message);
+                }
+            }
+        }
+
+        @Override
+        public void setReceiver(Consumer<byte[]> receiver) {
+            this.receiver = receiver;
+        }
+    }
+}
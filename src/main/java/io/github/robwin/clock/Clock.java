@@ -0,0 +1,88 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.clock;
+
+/**
+ * A source of time for the decorators.
+ *
+ * {@link #currentTimeMillis()} is used for deadlines like the time until an OPEN CircuitBreaker permits calls again.
+ * {@link #nanoTime()} is used to measure the duration of calls and has no relation to the wall-clock time.
+ */
+public interface Clock {
+
+    /**
+     * @return the current time in milliseconds
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return the current value of a high-resolution time source in nanoseconds,
+     * only meaningful to measure elapsed time
+     */
+    long nanoTime();
+
+    /**
+     * @return true, if {@link #currentTimeMillis()} follows the wall-clock time on every call, so that deadlines of
+     * this clock are comparable between processes
+     */
+    default boolean isWallClock() {
+        return false;
+    }
+
+    /**
+     * Returns a clock which is based on {@link System#nanoTime()}. Its time starts at the wall-clock time when the clock
+     * class is loaded, but it is not affected if the wall-clock is adjusted afterwards.
+     *
+     * @return the monotonic clock
+     */
+    static Clock monotonic() {
+        return MonotonicClock.INSTANCE;
+    }
+
+    /**
+     * Returns a clock which reads the wall-clock time on every call. Its deadlines are comparable between the
+     * processes of a host, but they move if the wall-clock is adjusted.
+     *
+     * @return the system clock
+     */
+    static Clock system() {
+        return SystemClock.INSTANCE;
+    }
+
+    /**
+     * Returns a clock which is updated every millisecond by a single daemon ticker thread.
+     * Reading the time is a single volatile read, which is cheaper than a system call at very high call rates,
+     * but the time is only accurate to about one millisecond. The ticker thread is started on first use.
+     *
+     * @return the coarse clock
+     */
+    static Clock coarse() {
+        return CoarseClock.INSTANCE;
+    }
+
+    /**
+     * Returns a new clock which only advances when {@link VirtualClock#advance(java.time.Duration)} is called.
+     * This allows tests and simulations to run without sleeping.
+     *
+     * @return a new virtual clock which starts at zero
+     */
+    static VirtualClock virtual() {
+        return new VirtualClock();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock whose time is updated by a single daemon ticker thread, so that reading the time is a volatile read.
+ * The time is derived from {@link System#nanoTime()} like the {@link MonotonicClock}.
+ */
+final class CoarseClock implements Clock {
+
+    static final CoarseClock INSTANCE = new CoarseClock(TimeUnit.MILLISECONDS.toNanos(1));
+
+    private final long originMillis;
+    private final long originNanos;
+    private volatile long nanoTime;
+
+    private CoarseClock(long tickNanos) {
+        this.originMillis = System.currentTimeMillis();
+        this.originNanos = System.nanoTime();
+        this.nanoTime = originNanos;
+        Thread ticker = new Thread(() -> {
+            while (true) {
+                LockSupport.parkNanos(tickNanos);
+                nanoTime = System.nanoTime();
+            }
+        }, "circuitbreaker-coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + TimeUnit.NANOSECONDS.toMillis(nanoTime - originNanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CoarseClock";
+    }
+}
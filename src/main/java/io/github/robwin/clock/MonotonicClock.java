@@ -0,0 +1,52 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock based on {@link System#nanoTime()} which is immune to wall-clock jumps.
+ */
+final class MonotonicClock implements Clock {
+
+    static final MonotonicClock INSTANCE = new MonotonicClock();
+
+    private final long originMillis;
+    private final long originNanos;
+
+    private MonotonicClock() {
+        this.originMillis = System.currentTimeMillis();
+        this.originNanos = System.nanoTime();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return "MonotonicClock";
+    }
+}
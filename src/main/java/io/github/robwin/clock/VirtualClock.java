@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.clock;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock which is advanced manually. The time starts at zero.
+ */
+public final class VirtualClock implements Clock {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    VirtualClock() {
+    }
+
+    /**
+     * Advances the time of this clock.
+     *
+     * @param duration the duration to advance, must not be negative
+     */
+    public void advance(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must not be negative");
+        }
+        nanoTime.addAndGet(duration.toNanos());
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoTime.get());
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VirtualClock[%dms]", currentTimeMillis());
+    }
+}
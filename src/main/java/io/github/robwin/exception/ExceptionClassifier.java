@@ -0,0 +1,118 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.exception;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decides whether an exception is recorded, for example as a failure by a CircuitBreaker or as a reason to retry
+ * a call, or whether it is ignored.
+ *
+ * An exception is ignored, if it is an instance of one of the ignored exceptions. Otherwise it is recorded, if the list
+ * of recorded exceptions is empty or if it is an instance of one of the recorded exceptions.
+ *
+ * The verdict is computed once per concrete exception class and cached in a {@link ClassValue}, so that classifying
+ * an exception does not scan the lists again.
+ */
+public final class ExceptionClassifier {
+
+    private final List<Class<? extends Throwable>> recordedExceptions;
+    private final List<Class<? extends Throwable>> ignoredExceptions;
+    private final ClassValue<Boolean> verdicts = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> exceptionClass) {
+            return computeVerdict(exceptionClass);
+        }
+    };
+
+    private ExceptionClassifier(List<Class<? extends Throwable>> recordedExceptions, List<Class<? extends Throwable>> ignoredExceptions) {
+        this.recordedExceptions = Collections.unmodifiableList(new ArrayList<>(recordedExceptions));
+        this.ignoredExceptions = Collections.unmodifiableList(new ArrayList<>(ignoredExceptions));
+    }
+
+    /**
+     * Creates an ExceptionClassifier.
+     *
+     * @param recordedExceptions the exceptions which are recorded. If empty, all exceptions which are not ignored are recorded.
+     * @param ignoredExceptions  the exceptions which are ignored
+     * @return the ExceptionClassifier
+     */
+    public static ExceptionClassifier of(List<Class<? extends Throwable>> recordedExceptions, List<Class<? extends Throwable>> ignoredExceptions) {
+        if (recordedExceptions == null) {
+            throw new IllegalArgumentException("recordedExceptions must not be null");
+        }
+        if (ignoredExceptions == null) {
+            throw new IllegalArgumentException("ignoredExceptions must not be null");
+        }
+        return new ExceptionClassifier(recordedExceptions, ignoredExceptions);
+    }
+
+    /**
+     * Creates an ExceptionClassifier which ignores the given exceptions and records all others.
+     *
+     * @param ignoredExceptions the exceptions which are ignored
+     * @return the ExceptionClassifier
+     */
+    public static ExceptionClassifier ofIgnoredExceptions(List<Class<? extends Throwable>> ignoredExceptions) {
+        return of(Collections.emptyList(), ignoredExceptions);
+    }
+
+    /**
+     * @param throwable the exception
+     * @return true, if the exception must be recorded
+     */
+    public boolean isRecorded(Throwable throwable) {
+        return verdicts.get(throwable.getClass());
+    }
+
+    /**
+     * @param throwable the exception
+     * @return true, if the exception must be ignored
+     */
+    public boolean isIgnored(Throwable throwable) {
+        return !isRecorded(throwable);
+    }
+
+    public List<Class<? extends Throwable>> getRecordedExceptions() {
+        return recordedExceptions;
+    }
+
+    public List<Class<? extends Throwable>> getIgnoredExceptions() {
+        return ignoredExceptions;
+    }
+
+    private boolean computeVerdict(Class<?> exceptionClass) {
+        for (Class<? extends Throwable> ignoredException : ignoredExceptions) {
+            if (ignoredException.isAssignableFrom(exceptionClass)) {
+                return false;
+            }
+        }
+        if (recordedExceptions.isEmpty()) {
+            return true;
+        }
+        for (Class<? extends Throwable> recordedException : recordedExceptions) {
+            if (recordedException.isAssignableFrom(exceptionClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,10 +1,17 @@
 package io.github.robwin.failsafe;
 
 import com.codahale.metrics.Timer;
+import io.github.robwin.bulkhead.Bulkhead;
+import io.github.robwin.cache.Cache;
 import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.hedge.Hedge;
 import io.github.robwin.metrics.Metrics;
+import io.github.robwin.ratelimiter.RateLimiter;
 import io.github.robwin.retry.Retry;
+import io.github.robwin.timeout.Timeout;
 
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -22,8 +29,16 @@ public interface FailSafe{
         return new FailSafeRunnable(supplier);
     }
 
+    static <T> FailSafeCompletionStage<T> ofCompletionStage(Supplier<CompletionStage<T>> supplier){
+        return new FailSafeCompletionStage<>(supplier);
+    }
+
     class FailSafeSupplier<T>{
         private Supplier<T> supplier;
+        // the CircuitBreaker stage and the supplier it decorates, so that a fallback can be fused with the CircuitBreaker
+        private CircuitBreaker circuitBreaker;
+        private Supplier<T> circuitBreakerStage;
+        private Supplier<T> decoratedByCircuitBreaker;
 
         private FailSafeSupplier(Supplier<T> supplier) {
             this.supplier = supplier;
@@ -31,7 +46,55 @@ public interface FailSafe{
 
 
         public FailSafeSupplier<T> withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            decoratedByCircuitBreaker = supplier;
             supplier = CircuitBreaker.decorateSupplier(supplier, circuitBreaker);
+            circuitBreakerStage = supplier;
+            return this;
+        }
+
+        /**
+         * Answers a failed call with the fallback. If the CircuitBreaker is the last stage, a rejected call goes
+         * straight to the fallback without creating a CircuitBreakerOpenException.
+         */
+        public FailSafeSupplier<T> withFallback(Supplier<T> fallback) {
+            if (circuitBreaker != null && supplier == circuitBreakerStage) {
+                supplier = CircuitBreaker.decorateSupplier(decoratedByCircuitBreaker, circuitBreaker, fallback);
+            } else {
+                supplier = Fallback.decorateSupplier(supplier, fallback);
+            }
+            return this;
+        }
+
+        public FailSafeSupplier<T> withBulkhead(Bulkhead bulkhead) {
+            supplier = Bulkhead.decorateSupplier(supplier, bulkhead);
+            return this;
+        }
+
+        /**
+         * Interrupts the call when the timeout expires. A call blocked in non-interruptible IO is not ended
+         * by the timeout, it fails with a CallTimeoutException when it returns.
+         */
+        public FailSafeSupplier<T> withTimeout(Duration timeout) {
+            supplier = Timeout.decorateSupplier(supplier, timeout);
+            return this;
+        }
+
+        public FailSafeSupplier<T> withHedging(Hedge hedge) {
+            supplier = Hedge.decorateSupplier(supplier, hedge);
+            return this;
+        }
+
+        /**
+         * Hedges the call and records every attempt in the CircuitBreaker. Use it instead of withCircuitBreaker.
+         */
+        public FailSafeSupplier<T> withHedging(Hedge hedge, CircuitBreaker circuitBreaker) {
+            supplier = Hedge.decorateSupplier(supplier, hedge, circuitBreaker);
+            return this;
+        }
+
+        public FailSafeSupplier<T> withRateLimiter(RateLimiter rateLimiter) {
+            supplier = RateLimiter.decorateSupplier(supplier, rateLimiter);
             return this;
         }
 
@@ -52,13 +115,74 @@ public interface FailSafe{
 
     class FailSafeFunction<T, R>{
         private Function<T, R> function;
+        // the CircuitBreaker stage and the function it decorates, so that a fallback can be fused with the CircuitBreaker
+        private CircuitBreaker circuitBreaker;
+        private Function<T, R> circuitBreakerStage;
+        private Function<T, R> decoratedByCircuitBreaker;
 
         private FailSafeFunction(Function<T, R> function) {
             this.function = function;
         }
 
         public FailSafeFunction<T, R> withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            decoratedByCircuitBreaker = function;
             function = CircuitBreaker.decorateFunction(function, circuitBreaker);
+            circuitBreakerStage = function;
+            return this;
+        }
+
+        /**
+         * Answers a failed call with the fallback. If the CircuitBreaker is the last stage, a rejected call goes
+         * straight to the fallback without creating a CircuitBreakerOpenException.
+         */
+        public FailSafeFunction<T, R> withFallback(Function<T, R> fallback) {
+            if (circuitBreaker != null && function == circuitBreakerStage) {
+                function = CircuitBreaker.decorateFunction(decoratedByCircuitBreaker, circuitBreaker, fallback);
+            } else {
+                function = Fallback.decorateFunction(function, fallback);
+            }
+            return this;
+        }
+
+        public FailSafeFunction<T, R> withBulkhead(Bulkhead bulkhead) {
+            function = Bulkhead.decorateFunction(function, bulkhead);
+            return this;
+        }
+
+        /**
+         * Interrupts the call when the timeout expires. A call blocked in non-interruptible IO is not ended
+         * by the timeout, it fails with a CallTimeoutException when it returns.
+         */
+        public FailSafeFunction<T, R> withTimeout(Duration timeout) {
+            function = Timeout.decorateFunction(function, timeout);
+            return this;
+        }
+
+        /**
+         * Serves the fresh results of the Cache without calling the function. Stale results are served if the call
+         * fails, so add the Cache after the CircuitBreaker.
+         */
+        public FailSafeFunction<T, R> withCache(Cache<T, R> cache) {
+            function = Cache.decorateFunction(function, cache);
+            return this;
+        }
+
+        public FailSafeFunction<T, R> withHedging(Hedge hedge) {
+            function = Hedge.decorateFunction(function, hedge);
+            return this;
+        }
+
+        /**
+         * Hedges the call and records every attempt in the CircuitBreaker. Use it instead of withCircuitBreaker.
+         */
+        public FailSafeFunction<T, R> withHedging(Hedge hedge, CircuitBreaker circuitBreaker) {
+            function = Hedge.decorateFunction(function, hedge, circuitBreaker);
+            return this;
+        }
+
+        public FailSafeFunction<T, R> withRateLimiter(RateLimiter rateLimiter) {
+            function = RateLimiter.decorateFunction(function, rateLimiter);
             return this;
         }
 
@@ -79,13 +203,52 @@ public interface FailSafe{
 
     class FailSafeRunnable{
         private Runnable runnable;
+        // the CircuitBreaker stage and the runnable it decorates, so that a fallback can be fused with the CircuitBreaker
+        private CircuitBreaker circuitBreaker;
+        private Runnable circuitBreakerStage;
+        private Runnable decoratedByCircuitBreaker;
 
         private FailSafeRunnable(Runnable runnable) {
             this.runnable = runnable;
         }
 
         public FailSafeRunnable withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            decoratedByCircuitBreaker = runnable;
             runnable = CircuitBreaker.decorateRunnable(runnable, circuitBreaker);
+            circuitBreakerStage = runnable;
+            return this;
+        }
+
+        /**
+         * Answers a failed call with the fallback. If the CircuitBreaker is the last stage, a rejected call goes
+         * straight to the fallback without creating a CircuitBreakerOpenException.
+         */
+        public FailSafeRunnable withFallback(Runnable fallback) {
+            if (circuitBreaker != null && runnable == circuitBreakerStage) {
+                runnable = CircuitBreaker.decorateRunnable(decoratedByCircuitBreaker, circuitBreaker, fallback);
+            } else {
+                runnable = Fallback.decorateRunnable(runnable, fallback);
+            }
+            return this;
+        }
+
+        public FailSafeRunnable withBulkhead(Bulkhead bulkhead) {
+            runnable = Bulkhead.decorateRunnable(runnable, bulkhead);
+            return this;
+        }
+
+        /**
+         * Interrupts the call when the timeout expires. A call blocked in non-interruptible IO is not ended
+         * by the timeout, it fails with a CallTimeoutException when it returns.
+         */
+        public FailSafeRunnable withTimeout(Duration timeout) {
+            runnable = Timeout.decorateRunnable(runnable, timeout);
+            return this;
+        }
+
+        public FailSafeRunnable withRateLimiter(RateLimiter rateLimiter) {
+            runnable = RateLimiter.decorateRunnable(runnable, rateLimiter);
             return this;
         }
 
@@ -103,4 +266,60 @@ public interface FailSafe{
             return runnable;
         }
     }
+
+    /**
+     * Decorates a supplier of a CompletionStage without blocking a thread. A retry is not supported,
+     * because it would have to wait for the retry interval.
+     */
+    class FailSafeCompletionStage<T>{
+        private Supplier<CompletionStage<T>> supplier;
+        // the CircuitBreaker stage and the supplier it decorates, so that a fallback can be fused with the CircuitBreaker
+        private CircuitBreaker circuitBreaker;
+        private Supplier<CompletionStage<T>> circuitBreakerStage;
+        private Supplier<CompletionStage<T>> decoratedByCircuitBreaker;
+
+        private FailSafeCompletionStage(Supplier<CompletionStage<T>> supplier) {
+            this.supplier = supplier;
+        }
+
+        public FailSafeCompletionStage<T> withCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            decoratedByCircuitBreaker = supplier;
+            supplier = CircuitBreaker.decorateCompletionStage(supplier, circuitBreaker);
+            circuitBreakerStage = supplier;
+            return this;
+        }
+
+        /**
+         * Answers a failed call with the fallback. If the CircuitBreaker is the last stage, a rejected call goes
+         * straight to the fallback without creating a CircuitBreakerOpenException.
+         */
+        public FailSafeCompletionStage<T> withFallback(Supplier<CompletionStage<T>> fallback) {
+            if (circuitBreaker != null && supplier == circuitBreakerStage) {
+                supplier = CircuitBreaker.decorateCompletionStage(decoratedByCircuitBreaker, circuitBreaker, fallback);
+            } else {
+                supplier = Fallback.decorateCompletionStage(supplier, fallback);
+            }
+            return this;
+        }
+
+        public FailSafeCompletionStage<T> withBulkhead(Bulkhead bulkhead) {
+            supplier = Bulkhead.decorateCompletionStage(supplier, bulkhead);
+            return this;
+        }
+
+        public FailSafeCompletionStage<T> withTimeout(Duration timeout) {
+            supplier = Timeout.decorateCompletionStage(supplier, timeout);
+            return this;
+        }
+
+        public FailSafeCompletionStage<T> withMetrics(Timer timer) {
+            supplier = Metrics.timedCompletionStage(supplier, timer);
+            return this;
+        }
+
+        public Supplier<CompletionStage<T>> decorate() {
+            return supplier;
+        }
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.failsafe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decorators which answer a failed call with a fallback. A CircuitBreaker which is the last stage before the fallback
+ * is fused with it by the FailSafe builders instead, see {@link io.github.robwin.circuitbreaker.CircuitBreaker#decorateSupplier(Supplier, io.github.robwin.circuitbreaker.CircuitBreaker, Supplier)}.
+ */
+public interface Fallback {
+
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, Supplier<T> fallback){
+        return () -> {
+            try {
+                return supplier.get();
+            } catch (RuntimeException exception) {
+                return fallback.get();
+            }
+        };
+    }
+
+    static Runnable decorateRunnable(Runnable runnable, Runnable fallback){
+        return () -> {
+            try {
+                runnable.run();
+            } catch (RuntimeException exception) {
+                fallback.run();
+            }
+        };
+    }
+
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, Function<T, R> fallback){
+        return (T t) -> {
+            try {
+                return function.apply(t);
+            } catch (RuntimeException exception) {
+                return fallback.apply(t);
+            }
+        };
+    }
+
+    static <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> supplier, Supplier<CompletionStage<T>> fallback){
+        return () -> {
+            CompletionStage<T> stage;
+            try {
+                stage = supplier.get();
+            } catch (RuntimeException exception) {
+                return fallback.get();
+            }
+            return stage.<CompletionStage<T>>handle((result, throwable) -> {
+                if (throwable == null) {
+                    return CompletableFuture.completedFuture(result);
+                }
+                // dependent stages wrap the original exception
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                if (!(cause instanceof Exception)) {
+                    // an Error is not answered by the fallback, like in the synchronous decorators
+                    CompletableFuture<T> future = new CompletableFuture<>();
+                    future.completeExceptionally(cause);
+                    return future;
+                }
+                return fallback.get();
+            }).thenCompose(Function.identity());
+        };
+    }
+}
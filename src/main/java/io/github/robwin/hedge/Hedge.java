@@ -0,0 +1,108 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.hedge;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A Hedge cuts the tail latency of idempotent calls. If the first attempt of a call has not finished after a delay,
+ * a second attempt is launched and the result of whichever attempt succeeds first is returned. The other attempt
+ * is cancelled. The delay adapts to a percentile of the latencies which the Hedge has observed.
+ *
+ * Both attempts run on the executor of the {@link HedgeConfig}, the caller waits for the result. So the caller returns
+ * as soon as one attempt has succeeded, even if the other attempt is blocked in IO which ignores its cancellation.
+ */
+public interface Hedge {
+
+    /**
+     * Get the delay after which a hedged attempt is launched.
+     *
+     * @param unit the time unit of the delay
+     * @return the current delay
+     */
+    long getDelay(TimeUnit unit);
+
+    /**
+     * Records the latency of a successful attempt.
+     *
+     * @param duration The elapsed time duration of the attempt
+     * @param durationUnit The time unit of the duration
+     */
+    void recordLatency(long duration, TimeUnit durationUnit);
+
+    /**
+     * Get the name of the Hedge
+     *
+     * @return the name of the Hedge
+     */
+    String getName();
+
+    /**
+     * Get the configuration of the Hedge
+     *
+     * @return the configuration of the Hedge
+     */
+    HedgeConfig getHedgeConfig();
+
+    /**
+     * Creates a Hedge.
+     *
+     * @param name the name of the Hedge
+     * @param hedgeConfig the configuration
+     * @return a Hedge
+     */
+    static Hedge of(String name, HedgeConfig hedgeConfig) {
+        return new PercentileHedge(name, hedgeConfig);
+    }
+
+    /**
+     * Creates a Hedge with the default configuration.
+     *
+     * @param name the name of the Hedge
+     * @return a Hedge
+     */
+    static Hedge ofDefaults(String name) {
+        return new PercentileHedge(name, HedgeConfig.ofDefaults());
+    }
+
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, Hedge hedge){
+        return () -> new HedgedCall<>(supplier, hedge, null).execute();
+    }
+
+    /**
+     * Decorates a supplier with a Hedge and a CircuitBreaker. Every attempt is recorded by the CircuitBreaker.
+     * A hedged attempt is only launched while the CircuitBreaker is CLOSED. The failure of an attempt which has been
+     * cancelled, because the other attempt has succeeded, is not recorded.
+     */
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, Hedge hedge, CircuitBreaker circuitBreaker){
+        return () -> new HedgedCall<>(supplier, hedge, circuitBreaker).execute();
+    }
+
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, Hedge hedge){
+        return (T t) -> new HedgedCall<>(() -> function.apply(t), hedge, null).execute();
+    }
+
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, Hedge hedge, CircuitBreaker circuitBreaker){
+        return (T t) -> new HedgedCall<>(() -> function.apply(t), hedge, circuitBreaker).execute();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.hedge;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgeConfig {
+
+    private static final int DEFAULT_DELAY_PERCENTILE = 95;
+    private static final int DEFAULT_INITIAL_DELAY = 100;
+    private static final int DEFAULT_MIN_DELAY = 1;
+    private static final int DEFAULT_MAX_ATTEMPTS = 256;
+
+    // The percentile of the observed latencies after which a hedged attempt is launched
+    private final int delayPercentile;
+    // The delay [ms] until enough latencies have been observed
+    private final int initialDelay;
+    // The lower bound [ms] of the delay, so that fast backends are not called twice for every call
+    private final int minDelay;
+    // The executor which runs the attempts
+    private final ExecutorService executor;
+
+    private HedgeConfig(Builder builder) {
+        this.delayPercentile = builder.delayPercentile;
+        this.initialDelay = builder.initialDelay;
+        this.minDelay = builder.minDelay;
+        this.executor = builder.executor != null ? builder.executor : DefaultExecutorHolder.EXECUTOR;
+    }
+
+    public Integer getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    public Integer getInitialDelay() {
+        return initialDelay;
+    }
+
+    public Integer getMinDelay() {
+        return minDelay;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public static HedgeConfig.Builder custom(){
+        return new Builder();
+    }
+
+    public static HedgeConfig ofDefaults(){
+        return new Builder().build();
+    }
+
+    public static class Builder {
+        private int delayPercentile = DEFAULT_DELAY_PERCENTILE;
+        private int initialDelay = DEFAULT_INITIAL_DELAY;
+        private int minDelay = DEFAULT_MIN_DELAY;
+        private ExecutorService executor;
+
+        public Builder delayPercentile(int delayPercentile) {
+            if (delayPercentile < 1 || delayPercentile > 99) {
+                throw new IllegalArgumentException("delayPercentile must be between 1 and 99");
+            }
+            this.delayPercentile = delayPercentile;
+            return this;
+        }
+
+        public Builder initialDelay(int initialDelay) {
+            if (initialDelay < 1) {
+                throw new IllegalArgumentException("initialDelay must be at least 1[ms]");
+            }
+            this.initialDelay = initialDelay;
+            return this;
+        }
+
+        public Builder minDelay(int minDelay) {
+            if (minDelay < 1) {
+                throw new IllegalArgumentException("minDelay must be at least 1[ms]");
+            }
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        /**
+         * The executor which runs the attempts. A hedged attempt which is rejected by the executor is not launched,
+         * a first attempt which is rejected runs unhedged on the calling thread. The executor should not queue attempts,
+         * otherwise a hedged attempt waits behind the attempts it should overtake.
+         * The default is a shared thread pool of at most 256 daemon threads without a queue.
+         */
+        public Builder executor(ExecutorService executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("executor must not be null");
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        public HedgeConfig build() {
+            return new HedgeConfig(this);
+        }
+    }
+
+    private static final class DefaultExecutorHolder {
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+        private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, DEFAULT_MAX_ATTEMPTS,
+                60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "failsafe-hedge-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.hedge;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerUtils;
+import io.github.robwin.clock.Clock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * One call of a hedged supplier. Both attempts run on the executor of the {@link HedgeConfig} and the caller only
+ * waits for the result, so that the caller returns as soon as one attempt has succeeded, even if the other attempt
+ * does not react to its cancellation. The first successful attempt completes the result. The result only completes
+ * exceptionally when all launched attempts have failed, with the exception of the attempt which has failed first.
+ *
+ * If the executor rejects the first attempt, the call is not hedged and runs on the calling thread.
+ */
+final class HedgedCall<T> {
+
+    private final Supplier<T> supplier;
+    private final Hedge hedge;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService executor;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final AtomicInteger runningAttempts = new AtomicInteger(1);
+    private final AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+
+    HedgedCall(Supplier<T> supplier, Hedge hedge, CircuitBreaker circuitBreaker) {
+        this.supplier = supplier;
+        this.hedge = hedge;
+        this.circuitBreaker = circuitBreaker;
+        this.executor = hedge.getHedgeConfig().getExecutor();
+    }
+
+    T execute() {
+        if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+            throw CircuitBreakerUtils.callNotPermitted(circuitBreaker);
+        }
+        Future<?> attempt;
+        try {
+            attempt = executor.submit(this::attempt);
+        } catch (RejectedExecutionException exception) {
+            // the permission has already been acquired, so the attempt runs unhedged on the calling thread
+            attempt();
+            attempt = null;
+        }
+        Future<?> hedgedAttempt = null;
+        try {
+            try {
+                return result.get(hedge.getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException straggler) {
+                hedgedAttempt = launchHedgedAttempt();
+                return result.get();
+            }
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted while waiting for the attempts of %s", hedge), exception);
+        } finally {
+            // cancels the attempt which has lost, completed attempts are not affected
+            if (attempt != null) {
+                attempt.cancel(true);
+            }
+            if (hedgedAttempt != null) {
+                hedgedAttempt.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return the hedged attempt, or null, if the first attempt has already failed, the CircuitBreaker
+     * is not CLOSED or the executor has rejected the hedged attempt
+     */
+    private Future<?> launchHedgedAttempt() {
+        if (circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return null;
+        }
+        int attempts;
+        do {
+            attempts = runningAttempts.get();
+            if (attempts == 0) {
+                return null;
+            }
+        } while (!runningAttempts.compareAndSet(attempts, attempts + 1));
+        try {
+            return executor.submit(this::runHedgedAttempt);
+        } catch (RejectedExecutionException exception) {
+            // the first attempt is still running
+            withdrawAttempt();
+            return null;
+        }
+    }
+
+    private void runHedgedAttempt() {
+        // the permission is only acquired by an attempt which actually runs, so that it is never lost
+        if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+            withdrawAttempt();
+            return;
+        }
+        attempt();
+    }
+
+    private void attempt() {
+        Clock clock = circuitBreaker != null ? circuitBreaker.getCircuitBreakerConfig().getClock() : null;
+        long callStart = clock != null ? clock.nanoTime() : 0;
+        long start = System.nanoTime();
+        try {
+            T value = supplier.get();
+            hedge.recordLatency(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (circuitBreaker != null) {
+                circuitBreaker.recordSuccess(clock.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+            }
+            result.complete(value);
+        } catch (RuntimeException exception) {
+            // the failure of a cancelled attempt is most likely caused by the interrupt
+            if (circuitBreaker != null && !result.isDone()) {
+                circuitBreaker.recordFailure(clock.nanoTime() - callStart, TimeUnit.NANOSECONDS, exception);
+            }
+            firstFailure.compareAndSet(null, exception);
+            withdrawAttempt();
+        } catch (Error error) {
+            result.completeExceptionally(error);
+            throw error;
+        }
+    }
+
+    private void withdrawAttempt() {
+        // a successful attempt is never withdrawn, so all attempts have failed if none is running anymore
+        if (runningAttempts.decrementAndGet() == 0) {
+            result.completeExceptionally(firstFailure.get());
+        }
+    }
+}
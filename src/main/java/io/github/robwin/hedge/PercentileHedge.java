@@ -0,0 +1,94 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.hedge;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Hedge whose delay is a percentile of the latencies of the last {@value #WINDOW_SIZE} successful attempts.
+ *
+ * The latencies are written into a ring buffer without locks. Every {@value #RECALCULATION_INTERVAL}th recorded
+ * latency recalculates the delay from a sorted copy of the ring buffer, so that the calls only read a volatile field.
+ */
+final class PercentileHedge implements Hedge {
+
+    static final int WINDOW_SIZE = 128;
+    static final int MINIMUM_NUMBER_OF_LATENCIES = 32;
+    static final int RECALCULATION_INTERVAL = 16;
+
+    private final String name;
+    private final HedgeConfig hedgeConfig;
+    private final long minDelayNanos;
+    private final AtomicLongArray latencies;
+    private final AtomicLong numberOfLatencies;
+    private volatile long delayNanos;
+
+    PercentileHedge(String name, HedgeConfig hedgeConfig) {
+        this.name = Objects.requireNonNull(name, "Name must not be null");
+        this.hedgeConfig = Objects.requireNonNull(hedgeConfig, "HedgeConfig must not be null");
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeConfig.getMinDelay());
+        this.latencies = new AtomicLongArray(WINDOW_SIZE);
+        this.numberOfLatencies = new AtomicLong();
+        this.delayNanos = Math.max(minDelayNanos, TimeUnit.MILLISECONDS.toNanos(hedgeConfig.getInitialDelay()));
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordLatency(long duration, TimeUnit durationUnit) {
+        long index = numberOfLatencies.getAndIncrement();
+        latencies.lazySet((int) (index & (WINDOW_SIZE - 1)), durationUnit.toNanos(duration));
+        long count = index + 1;
+        if (count >= MINIMUM_NUMBER_OF_LATENCIES && count % RECALCULATION_INTERVAL == 0) {
+            recalculateDelay((int) Math.min(count, WINDOW_SIZE));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public HedgeConfig getHedgeConfig() {
+        return hedgeConfig;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Hedge '%s'", this.name);
+    }
+
+    private void recalculateDelay(int size) {
+        long[] window = new long[size];
+        for (int i = 0; i < size; i++) {
+            window[i] = latencies.get(i);
+        }
+        Arrays.sort(window);
+        int rank = (int) Math.ceil(hedgeConfig.getDelayPercentile() / 100.0 * size) - 1;
+        delayNanos = Math.max(minDelayNanos, window[Math.max(rank, 0)]);
+    }
+}
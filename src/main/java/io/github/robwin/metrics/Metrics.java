@@ -2,6 +2,7 @@ package io.github.robwin.metrics;
 
 import com.codahale.metrics.Timer;
 
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -39,4 +40,16 @@ public interface Metrics {
             }
         };
     }
+
+    static <T> Supplier<CompletionStage<T>> timedCompletionStage(Supplier<CompletionStage<T>> supplier, Timer timer){
+        return () -> {
+            Timer.Context context = timer.time();
+            try{
+                return supplier.get().whenComplete((result, throwable) -> context.stop());
+            } catch (RuntimeException exception){
+                context.stop();
+                throw exception;
+            }
+        };
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RateLimiter manager.
+ * Constructs the RateLimiters of the backends according to configuration values.
+ */
+final class InMemoryRateLimiterRegistry implements RateLimiterRegistry {
+
+    private final RateLimiterConfig defaultRateLimiterConfig;
+
+    /**
+     * The RateLimiters, indexed by name of the backend.
+     */
+    private final ConcurrentMap<String, RateLimiter> rateLimiters;
+
+    /**
+     * The constructor with custom default RateLimiter properties.
+     *
+     * @param defaultRateLimiterConfig The default RateLimiter configuration.
+     */
+    InMemoryRateLimiterRegistry(RateLimiterConfig defaultRateLimiterConfig) {
+        this.defaultRateLimiterConfig = Objects.requireNonNull(defaultRateLimiterConfig, "RateLimiterConfig must not be null");
+        this.rateLimiters = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RateLimiter rateLimiter(String name) {
+        return rateLimiter(name, defaultRateLimiterConfig);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RateLimiter rateLimiter(String name, RateLimiterConfig rateLimiterConfig) {
+        RateLimiter rateLimiter = rateLimiters.get(Objects.requireNonNull(name, "Name must not be null"));
+        if (rateLimiter != null) {
+            return rateLimiter;
+        }
+        return rateLimiters.computeIfAbsent(name, (k) -> new TokenBucketRateLimiter(name, rateLimiterConfig));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A RateLimiter permits a limited number of calls per refresh period, e.g. to stay below the contractual
+ * requests per second of a partner API.
+ */
+public interface RateLimiter {
+
+    /**
+     * Acquires a permission without waiting. It can be used by threads which must not block, like event loops.
+     *
+     * @return true, if a permission has been acquired
+     */
+    boolean tryAcquirePermission();
+
+    /**
+     * Acquires a permission. If no permission is left, the caller waits at most the configured timeout duration
+     * for a permission of a later refresh period.
+     *
+     * @return true, if a permission has been acquired
+     */
+    boolean acquirePermission();
+
+    /**
+     * Get the number of permissions which are left in the current refresh period. It is negative, if callers
+     * wait for permissions of later refresh periods.
+     *
+     * @return the number of available permissions
+     */
+    int getAvailablePermissions();
+
+    /**
+     * Get the name of the RateLimiter
+     *
+     * @return the name of the RateLimiter
+     */
+    String getName();
+
+    /**
+     * Get the configuration of the RateLimiter
+     *
+     * @return the configuration of the RateLimiter
+     */
+    RateLimiterConfig getRateLimiterConfig();
+
+    /**
+     * Creates a RateLimiter.
+     *
+     * @param name the name of the RateLimiter
+     * @param rateLimiterConfig the configuration
+     * @return a RateLimiter
+     */
+    static RateLimiter of(String name, RateLimiterConfig rateLimiterConfig) {
+        return new TokenBucketRateLimiter(name, rateLimiterConfig);
+    }
+
+    /**
+     * Creates a RateLimiter with the default configuration.
+     *
+     * @param name the name of the RateLimiter
+     * @return a RateLimiter
+     */
+    static RateLimiter ofDefaults(String name) {
+        return new TokenBucketRateLimiter(name, RateLimiterConfig.ofDefaults());
+    }
+
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, RateLimiter rateLimiter){
+        return () -> {
+            RateLimiterUtils.isCallPermitted(rateLimiter);
+            return supplier.get();
+        };
+    }
+
+    static Runnable decorateRunnable(Runnable runnable, RateLimiter rateLimiter){
+        return () -> {
+            RateLimiterUtils.isCallPermitted(rateLimiter);
+            runnable.run();
+        };
+    }
+
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, RateLimiter rateLimiter){
+        return (T t) -> {
+            RateLimiterUtils.isCallPermitted(rateLimiter);
+            return function.apply(t);
+        };
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+import io.github.robwin.clock.Clock;
+
+public class RateLimiterConfig {
+
+    private static final int DEFAULT_LIMIT_FOR_PERIOD = 50;
+    private static final int DEFAULT_LIMIT_REFRESH_PERIOD = 1000;
+    static final int MAX_LIMIT_FOR_PERIOD = (1 << 23) - 1;
+
+    // The number of permissions which are available in every refresh period
+    private final int limitForPeriod;
+    // The duration [ms] of a refresh period
+    private final int limitRefreshPeriod;
+    // The time [ms] a call waits for a permission. 0 means that the call is rejected immediately.
+    private final int timeoutDuration;
+    // The source of time for the refresh periods
+    private final Clock clock;
+
+    private RateLimiterConfig(Builder builder) {
+        this.limitForPeriod = builder.limitForPeriod;
+        this.limitRefreshPeriod = builder.limitRefreshPeriod;
+        this.timeoutDuration = builder.timeoutDuration;
+        this.clock = builder.clock;
+    }
+
+    public Integer getLimitForPeriod() {
+        return limitForPeriod;
+    }
+
+    public Integer getLimitRefreshPeriod() {
+        return limitRefreshPeriod;
+    }
+
+    public Integer getTimeoutDuration() {
+        return timeoutDuration;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public static RateLimiterConfig.Builder custom(){
+        return new Builder();
+    }
+
+    public static RateLimiterConfig ofDefaults(){
+        return new Builder().build();
+    }
+
+    public static class Builder {
+        private int limitForPeriod = DEFAULT_LIMIT_FOR_PERIOD;
+        private int limitRefreshPeriod = DEFAULT_LIMIT_REFRESH_PERIOD;
+        private int timeoutDuration = 0;
+        private Clock clock = Clock.monotonic();
+
+        public Builder limitForPeriod(int limitForPeriod) {
+            if (limitForPeriod < 1 || limitForPeriod > MAX_LIMIT_FOR_PERIOD) {
+                throw new IllegalArgumentException("limitForPeriod must be between 1 and " + MAX_LIMIT_FOR_PERIOD);
+            }
+            this.limitForPeriod = limitForPeriod;
+            return this;
+        }
+
+        public Builder limitRefreshPeriod(int limitRefreshPeriod) {
+            if (limitRefreshPeriod < 1) {
+                throw new IllegalArgumentException("limitRefreshPeriod must be at least 1[ms]");
+            }
+            this.limitRefreshPeriod = limitRefreshPeriod;
+            return this;
+        }
+
+        public Builder timeoutDuration(int timeoutDuration) {
+            if (timeoutDuration < 0) {
+                throw new IllegalArgumentException("timeoutDuration must not be negative");
+            }
+            this.timeoutDuration = timeoutDuration;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("clock must not be null");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        public RateLimiterConfig build() {
+            return new RateLimiterConfig(this);
+        }
+    }
+}
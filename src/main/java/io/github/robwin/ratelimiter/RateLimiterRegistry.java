@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+/**
+ * RateLimiter manager.
+ * Manages the RateLimiters of the respective backends.
+ */
+public interface RateLimiterRegistry {
+
+    /**
+     * Returns the managed {@link RateLimiter} or creates a new one with the default configuration.
+     *
+     * @param name the name of the RateLimiter
+     * @return The {@link RateLimiter}
+     */
+    RateLimiter rateLimiter(String name);
+
+    /**
+     * Returns the managed {@link RateLimiter} or creates a new one with a custom configuration.
+     *
+     * @param name      the name of the RateLimiter
+     * @param rateLimiterConfig  the RateLimiter configuration
+     * @return The {@link RateLimiter}
+     */
+    RateLimiter rateLimiter(String name, RateLimiterConfig rateLimiterConfig);
+
+    static RateLimiterRegistry of(RateLimiterConfig defaultRateLimiterConfig){
+        return new InMemoryRateLimiterRegistry(defaultRateLimiterConfig);
+    }
+
+    static RateLimiterRegistry ofDefaults(){
+        return new InMemoryRateLimiterRegistry(RateLimiterConfig.ofDefaults());
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+public final class RateLimiterUtils {
+
+    private RateLimiterUtils(){}
+
+    static void isCallPermitted(RateLimiter rateLimiter) {
+        if(!rateLimiter.acquirePermission()) {
+            throw requestNotPermitted(rateLimiter);
+        }
+    }
+
+    public static RequestNotPermittedException requestNotPermitted(RateLimiter rateLimiter) {
+        if (rateLimiter instanceof TokenBucketRateLimiter) {
+            return new RequestNotPermittedException(((TokenBucketRateLimiter) rateLimiter).getNotPermittedMessage());
+        }
+        return new RequestNotPermittedException(String.format("RateLimiter '%s' does not permit further calls", rateLimiter.getName()));
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+/**
+ * A {@link RateLimiter} has no permission left for the call in the current period.
+ *
+ * The exception has no stack trace, so that a rejection is cheap. The message is created once per RateLimiter.
+ */
+public class RequestNotPermittedException extends RuntimeException {
+
+    /**
+     * The constructor with a message.
+     *
+     * @param message The message.
+     */
+    public RequestNotPermittedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+import io.github.robwin.clock.Clock;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A token bucket whose state is packed into a single long, which is changed with one CAS per call.
+ *
+ * <pre>
+ *  63                                 24 | 23                0
+ * +--------------------------------------+-------------------+
+ * |             refresh cycle            |    permissions    |
+ * +--------------------------------------+-------------------+
+ * </pre>
+ *
+ * The refresh cycle is the number of refresh periods since the RateLimiter has been created. The bucket is refilled
+ * lazily by the first call of a new cycle: it adds limitForPeriod permissions per elapsed cycle, up to limitForPeriod.
+ * There is no refresher thread. The permissions are a signed number: a call which may wait reserves a permission of a
+ * later cycle by decreasing the permissions below zero and then parks until that cycle starts.
+ */
+final class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final int PERMISSIONS_BITS = 24;
+    private static final long PERMISSIONS_MASK = (1L << PERMISSIONS_BITS) - 1;
+    private static final int MIN_PERMISSIONS = -(1 << (PERMISSIONS_BITS - 1));
+
+    private final String name;
+    private final RateLimiterConfig rateLimiterConfig;
+    private final Clock clock;
+    private final long startNanos;
+    private final long refreshPeriodNanos;
+    private final int limitForPeriod;
+    private final long timeoutNanos;
+    private final String notPermittedMessage;
+    private final AtomicLong state;
+
+    TokenBucketRateLimiter(String name, RateLimiterConfig rateLimiterConfig) {
+        this.name = Objects.requireNonNull(name, "Name must not be null");
+        this.rateLimiterConfig = Objects.requireNonNull(rateLimiterConfig, "RateLimiterConfig must not be null");
+        this.clock = rateLimiterConfig.getClock();
+        this.startNanos = clock.nanoTime();
+        this.refreshPeriodNanos = TimeUnit.MILLISECONDS.toNanos(rateLimiterConfig.getLimitRefreshPeriod());
+        this.limitForPeriod = rateLimiterConfig.getLimitForPeriod();
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(rateLimiterConfig.getTimeoutDuration());
+        this.notPermittedMessage = String.format("RateLimiter '%s' does not permit further calls", name);
+        this.state = new AtomicLong(state(0, limitForPeriod));
+    }
+
+    @Override
+    public boolean tryAcquirePermission() {
+        return acquirePermission(0);
+    }
+
+    @Override
+    public boolean acquirePermission() {
+        return acquirePermission(timeoutNanos);
+    }
+
+    @Override
+    public int getAvailablePermissions() {
+        long elapsedNanos = clock.nanoTime() - startNanos;
+        return permissionsOf(refill(state.get(), elapsedNanos / refreshPeriodNanos));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public RateLimiterConfig getRateLimiterConfig() {
+        return rateLimiterConfig;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RateLimiter '%s'", this.name);
+    }
+
+    String getNotPermittedMessage() {
+        return notPermittedMessage;
+    }
+
+    private boolean acquirePermission(long timeoutNanos) {
+        long currentState;
+        long nanosToWait;
+        long nextState;
+        do {
+            currentState = state.get();
+            long elapsedNanos = clock.nanoTime() - startNanos;
+            long refilledState = refill(currentState, elapsedNanos / refreshPeriodNanos);
+            long cycle = cycleOf(refilledState);
+            int permissions = permissionsOf(refilledState);
+            if (permissions > 0) {
+                nanosToWait = 0;
+            } else {
+                // the permission is reserved in the first cycle whose refill covers all earlier reservations
+                long cyclesToWait = (1 - (long) permissions + limitForPeriod - 1) / limitForPeriod;
+                nanosToWait = (cycle + cyclesToWait) * refreshPeriodNanos - elapsedNanos;
+                if (nanosToWait > timeoutNanos || permissions - 1 < MIN_PERMISSIONS) {
+                    return false;
+                }
+            }
+            nextState = state(cycle, permissions - 1);
+        } while (!state.compareAndSet(currentState, nextState));
+        return nanosToWait == 0 || await(nanosToWait);
+    }
+
+    /**
+     * @return the state after the refill of all cycles which have elapsed since the cycle of the state
+     */
+    private long refill(long currentState, long currentCycle) {
+        long cycle = cycleOf(currentState);
+        if (currentCycle <= cycle) {
+            return currentState;
+        }
+        long permissions = permissionsOf(currentState) + Math.min(currentCycle - cycle, Integer.MAX_VALUE) * limitForPeriod;
+        return state(currentCycle, (int) Math.min(permissions, limitForPeriod));
+    }
+
+    /**
+     * Parks until the reserved permission becomes valid on the clock of the RateLimiter. An interrupted caller
+     * does not get the permission, which stays reserved.
+     */
+    private boolean await(long nanosToWait) {
+        long deadline = clock.nanoTime() + nanosToWait;
+        long remainingNanos = nanosToWait;
+        while (remainingNanos > 0) {
+            LockSupport.parkNanos(this, remainingNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remainingNanos = deadline - clock.nanoTime();
+        }
+        return true;
+    }
+
+    private static long state(long cycle, int permissions) {
+        return (cycle << PERMISSIONS_BITS) | (permissions & PERMISSIONS_MASK);
+    }
+
+    private static long cycleOf(long state) {
+        return state >>> PERMISSIONS_BITS;
+    }
+
+    private static int permissionsOf(long state) {
+        return (int) (state << (64 - PERMISSIONS_BITS) >> (64 - PERMISSIONS_BITS));
+    }
+}
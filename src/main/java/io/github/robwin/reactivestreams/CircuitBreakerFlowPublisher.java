@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.reactivestreams;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+
+/**
+ * Decorates a {@code java.util.concurrent.Flow.Publisher} with a CircuitBreaker, like {@link CircuitBreakerPublisher}
+ * decorates a Reactive Streams Publisher.
+ *
+ * The Flow API exists since Java 9, so the decorator is contained in the Multi-Release JAR for Java 9 and later.
+ * The public API of this class must be the same in every release of the JAR, hence it does not mention the Flow types.
+ * On Java 8 there is no Flow.Publisher to decorate.
+ */
+public final class CircuitBreakerFlowPublisher {
+
+    private CircuitBreakerFlowPublisher() {
+    }
+
+    /**
+     * Decorates a Flow.Publisher with a CircuitBreaker. The upstream must be declared as a Flow.Publisher,
+     * because the decorated Publisher is not of a subtype like SubmissionPublisher.
+     *
+     * @param upstream the Flow.Publisher which should be protected
+     * @param circuitBreaker the CircuitBreaker
+     * @param <P> the type {@code Flow.Publisher<T>} of the upstream and the decorated Publisher
+     * @return a decorated Flow.Publisher
+     * @throws UnsupportedOperationException on Java 8, which does not have the Flow API
+     */
+    public static <P> P of(P upstream, CircuitBreaker circuitBreaker) {
+        throw new UnsupportedOperationException("A Flow.Publisher requires Java 9 or later");
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.reactivestreams;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerUtils;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A Reactive Streams {@link Publisher} which protects an upstream Publisher with a CircuitBreaker.
+ *
+ * Every subscription counts as one call. The permission is requested when a Subscriber subscribes. If the call is not
+ * permitted, the upstream Publisher is not subscribed and the Subscriber receives a
+ * {@link io.github.robwin.circuitbreaker.CircuitBreakerOpenException}. Otherwise the outcome is recorded on
+ * {@code onComplete} or {@code onError}. If the CircuitBreaker opens while elements are emitted, the upstream
+ * subscription is cancelled and the Subscriber receives a CircuitBreakerOpenException instead of the next element.
+ *
+ * The signals are passed through on the thread of the upstream Publisher and the requested amounts are not changed,
+ * so the operator neither buffers elements nor breaks the backpressure of the stream.
+ *
+ * @param <T> the type of the elements
+ */
+public final class CircuitBreakerPublisher<T> implements Publisher<T> {
+
+    private final Publisher<T> upstream;
+    private final CircuitBreaker circuitBreaker;
+
+    private CircuitBreakerPublisher(Publisher<T> upstream, CircuitBreaker circuitBreaker) {
+        this.upstream = upstream;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Decorates a Publisher with a CircuitBreaker.
+     *
+     * @param upstream the Publisher which should be protected
+     * @param circuitBreaker the CircuitBreaker
+     * @param <T> the type of the elements
+     * @return a decorated Publisher
+     */
+    public static <T> Publisher<T> of(Publisher<T> upstream, CircuitBreaker circuitBreaker) {
+        return new CircuitBreakerPublisher<>(upstream, circuitBreaker);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (!circuitBreaker.isCallPermitted()) {
+            subscriber.onSubscribe(EmptySubscription.INSTANCE);
+            subscriber.onError(CircuitBreakerUtils.callNotPermitted(circuitBreaker));
+            return;
+        }
+        upstream.subscribe(new PublisherSubscriber<>(subscriber, circuitBreaker));
+    }
+
+    private static final class PublisherSubscriber<T> extends CircuitBreakerSubscriber<T>
+            implements Subscriber<T>, Subscription {
+
+        private final Subscriber<? super T> downstream;
+        private Subscription subscription;
+
+        private PublisherSubscriber(Subscriber<? super T> downstream, CircuitBreaker circuitBreaker) {
+            super(circuitBreaker);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        void requestUpstream(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        void cancelUpstream() {
+            subscription.cancel();
+        }
+
+        @Override
+        void downstreamOnNext(T element) {
+            downstream.onNext(element);
+        }
+
+        @Override
+        void downstreamOnError(Throwable throwable) {
+            downstream.onError(throwable);
+        }
+
+        @Override
+        void downstreamOnComplete() {
+            downstream.onComplete();
+        }
+    }
+
+    private enum EmptySubscription implements Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+            // a rejected Subscriber receives only the error
+        }
+
+        @Override
+        public void cancel() {
+            // there is nothing to cancel
+        }
+    }
+}
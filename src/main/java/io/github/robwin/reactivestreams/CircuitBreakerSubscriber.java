@@ -0,0 +1,102 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.reactivestreams;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerUtils;
+import io.github.robwin.clock.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Subscriber of a CircuitBreaker operator, which records the outcome of a subscription on the CircuitBreaker.
+ * It is also the Subscription of the downstream Subscriber, so it passes the requested amounts through unchanged.
+ *
+ * The signals are independent of the Reactive Streams API, so that the {@code org.reactivestreams} operator and the
+ * {@code java.util.concurrent.Flow} operator share this logic. A subclass implements the interfaces of its API with
+ * the public methods of this class and forwards the signals to the upstream Subscription and the downstream Subscriber.
+ *
+ * @param <T> the type of the elements
+ */
+abstract class CircuitBreakerSubscriber<T> {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Clock clock;
+    private final long start;
+    // set by the first terminal signal, so that the outcome is recorded only once
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    CircuitBreakerSubscriber(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        this.clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+        this.start = clock.nanoTime();
+    }
+
+    public void onNext(T element) {
+        if (done.get()) {
+            return;
+        }
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            // another call has opened the CircuitBreaker, so the rest of the stream is not consumed anymore
+            if (done.compareAndSet(false, true)) {
+                cancelUpstream();
+                downstreamOnError(CircuitBreakerUtils.callNotPermitted(circuitBreaker));
+            }
+            return;
+        }
+        downstreamOnNext(element);
+    }
+
+    public void onError(Throwable throwable) {
+        if (done.compareAndSet(false, true)) {
+            if (throwable instanceof Exception) {
+                circuitBreaker.recordFailure(clock.nanoTime() - start, TimeUnit.NANOSECONDS, (Exception) throwable);
+            }
+            downstreamOnError(throwable);
+        }
+    }
+
+    public void onComplete() {
+        if (done.compareAndSet(false, true)) {
+            circuitBreaker.recordSuccess(clock.nanoTime() - start, TimeUnit.NANOSECONDS);
+            downstreamOnComplete();
+        }
+    }
+
+    public void request(long n) {
+        requestUpstream(n);
+    }
+
+    public void cancel() {
+        // a cancelled stream has no outcome. A HALF_CLOSED CircuitBreaker goes back to OPEN after the probe timeout.
+        done.set(true);
+        cancelUpstream();
+    }
+
+    abstract void requestUpstream(long n);
+
+    abstract void cancelUpstream();
+
+    abstract void downstreamOnNext(T element);
+
+    abstract void downstreamOnError(Throwable throwable);
+
+    abstract void downstreamOnComplete();
+}
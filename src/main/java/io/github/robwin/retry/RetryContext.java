@@ -1,5 +1,7 @@
 package io.github.robwin.retry;
 
+import io.github.robwin.exception.ExceptionClassifier;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -21,11 +23,15 @@ public class RetryContext implements Retry {
     private final int waitInterval;
     // Exceptions which should not trigger a retry
     private final List<Class<? extends Throwable>> ignoredExceptions;
+    // Decides whether an exception triggers a retry
+    private final ExceptionClassifier exceptionClassifier;
 
-    private RetryContext(int maxAttempts, int waitInterval, List<Class<? extends Throwable>> ignoredExceptions){
+    private RetryContext(int maxAttempts, int waitInterval, List<Class<? extends Throwable>> ignoredExceptions,
+                         List<Class<? extends Throwable>> retryExceptions){
         this.maxAttempts = maxAttempts;
         this.waitInterval = waitInterval;
         this.ignoredExceptions = ignoredExceptions;
+        this.exceptionClassifier = ExceptionClassifier.of(retryExceptions, ignoredExceptions);
         this.numOfAttempts = new AtomicInteger(0);
         this.lastException = new AtomicReference<>();
         this.lastRuntimeException = new AtomicReference<>();
@@ -69,8 +75,7 @@ public class RetryContext implements Retry {
 
     @Override
     public void handleException(Exception exception) throws Throwable{
-        if(ignoredExceptions.stream()
-                .noneMatch(ignoredException -> ignoredException.isInstance(exception))){
+        if(exceptionClassifier.isRecorded(exception)){
             lastException.set(exception);
         }else{
             throw exception;
@@ -79,8 +84,7 @@ public class RetryContext implements Retry {
 
     @Override
     public void handleRuntimeException(RuntimeException runtimeException){
-        if(ignoredExceptions.stream()
-                .noneMatch(ignoredException -> ignoredException.isInstance(runtimeException))){
+        if(exceptionClassifier.isRecorded(runtimeException)){
             lastRuntimeException.set(runtimeException);
         }else{
             throw runtimeException;
@@ -95,6 +99,7 @@ public class RetryContext implements Retry {
         private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
         private int waitInterval = DEFAULT_WAIT_INTERVAL;
         private List<Class<? extends Throwable>> ignoredExceptions = new ArrayList<>();
+        private List<Class<? extends Throwable>> retryExceptions = new ArrayList<>();
 
         public Builder maxAttempts(int maxAttempts) {
             if (maxAttempts < 1) {
@@ -128,8 +133,31 @@ public class RetryContext implements Retry {
             return this;
         }
 
+        /**
+         * Adds an exception which triggers a retry. If at least one retry exception is configured,
+         * only retry exceptions trigger a retry. Ignored exceptions take precedence over retry exceptions.
+         *
+         * @param retryException the exception which triggers a retry
+         * @return the RetryContext.Builder
+         */
+        public Builder retryException(Class<? extends Throwable> retryException) {
+            if (retryException == null) {
+                throw new IllegalArgumentException("retryException must not be null");
+            }
+            retryExceptions.add(retryException);
+            return this;
+        }
+
+        public Builder retryExceptions(List<Class<? extends Throwable>> retryExceptions) {
+            if (retryExceptions == null) {
+                throw new IllegalArgumentException("retryExceptions must not be null");
+            }
+            this.retryExceptions = retryExceptions;
+            return this;
+        }
+
         public Retry build() {
-            return new RetryContext(maxAttempts, waitInterval, ignoredExceptions);
+            return new RetryContext(maxAttempts, waitInterval, ignoredExceptions, retryExceptions);
         }
     }
 }
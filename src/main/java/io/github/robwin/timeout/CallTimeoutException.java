@@ -0,0 +1,47 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.timeout;
+
+/**
+ * A call has not completed within its timeout.
+ *
+ * The exception has no stack trace, so that a timeout is cheap. The message is created once per decorator.
+ */
+public class CallTimeoutException extends RuntimeException {
+
+    /**
+     * The constructor with a message.
+     *
+     * @param message The message.
+     */
+    public CallTimeoutException(String message) {
+        super(message, null, false, false);
+    }
+
+    /**
+     * The constructor with a message and the exception of the call, which has most likely been caused
+     * by the interrupt of the timeout.
+     *
+     * @param message The message.
+     * @param cause The exception of the timed out call.
+     */
+    public CallTimeoutException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.timeout;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A timer which schedules all timeouts on a wheel of buckets and expires them with one worker thread.
+ *
+ * Scheduling and cancelling a timeout only add it to a lock-free queue. The worker moves scheduled timeouts into the
+ * bucket of their tick and unlinks cancelled timeouts from their bucket once per tick, so that cancelled timeouts
+ * are reclaimed after one tick instead of when their deadline would have passed. A timeout expires at most one tick
+ * late, never early. The expiration tasks run on the worker thread and must not block.
+ */
+final class HashedWheelTimer {
+
+    static final long DEFAULT_TICK_DURATION = 10;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Entry> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean stopped;
+    // the number of timeouts in the buckets, only written by the worker
+    private volatile int numberOfTimeouts;
+    private long tick;
+
+    /**
+     * @param tickDuration the duration [ms] of a tick
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     * @param threadName the name of the worker thread
+     */
+    HashedWheelTimer(long tickDuration, int wheelSize, String threadName) {
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException("tickDuration must be at least 1[ms]");
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 2^30");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Returns the timer which is shared by all timeout decorators. Its worker thread is started on first use.
+     *
+     * @return the shared timer
+     */
+    static HashedWheelTimer shared() {
+        return SharedTimerHolder.TIMER;
+    }
+
+    /**
+     * Schedules a task which runs on the worker thread when the delay has elapsed, unless the timeout is cancelled.
+     *
+     * @param task the task, which must not block
+     * @param delay the delay [ns]
+     * @return the timeout
+     */
+    Entry schedule(Runnable task, long delay) {
+        Entry timeout = new Entry(this, task, System.nanoTime() - startNanos + delay);
+        scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of timeouts which wait in the buckets of the wheel.
+     *
+     * @return the number of timeouts in the wheel
+     */
+    int getNumberOfTimeouts() {
+        return numberOfTimeouts;
+    }
+
+    /**
+     * Stops the worker thread. Pending timeouts do not expire.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!stopped) {
+            waitForNextTick();
+            unlinkCancelledTimeouts();
+            transferScheduledTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts();
+            tick++;
+        }
+    }
+
+    /**
+     * Waits until the end of the current tick. The timeouts of the bucket of the tick expire at the end of the tick.
+     */
+    private void waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        for (;;) {
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos <= 0 || stopped) {
+                return;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    private void unlinkCancelledTimeouts() {
+        Entry timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            // a timeout without a bucket is still scheduled and is dropped by the transfer
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferScheduledTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Entry timeout = scheduledTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.get() != Entry.PENDING) {
+                continue;
+            }
+            long calculatedTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.length;
+            // a timeout whose tick has already passed expires with the current tick
+            wheel[(int) (Math.max(calculatedTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * A scheduled timeout. Only the worker thread links it into a bucket, the state is changed with a CAS.
+     */
+    static final class Entry extends AtomicInteger {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry next;
+        private Entry previous;
+
+        private Entry(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout, so that its task does not run.
+         *
+         * @return false, if the timeout has already expired or has been cancelled
+         */
+        boolean cancel() {
+            if (!compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        boolean isExpired() {
+            return get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (compareAndSet(PENDING, EXPIRED)) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * A doubly-linked list of timeouts, which is only accessed by the worker thread.
+     */
+    private final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        private void add(Entry timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+            numberOfTimeouts++;
+        }
+
+        private void expireTimeouts() {
+            Entry timeout = head;
+            while (timeout != null) {
+                Entry next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    // the bucket of the tick of the deadline, or of the first tick after the deadline has passed
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Entry timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.next = null;
+            timeout.previous = null;
+            timeout.bucket = null;
+            numberOfTimeouts--;
+        }
+    }
+
+    private static final class SharedTimerHolder {
+        private static final HashedWheelTimer TIMER =
+                new HashedWheelTimer(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, "failsafe-timeout-timer");
+    }
+}
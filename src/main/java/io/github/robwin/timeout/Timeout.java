@@ -0,0 +1,86 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.timeout;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decorators which enforce a deadline on a call, so that a hung backend produces a {@link CallTimeoutException}.
+ * Decorate the call with the timeout before the CircuitBreaker, so that the CircuitBreaker records the timeout
+ * as a failure.
+ *
+ * All timeouts are scheduled on one shared hashed-wheel timer, which expires them at most 10ms late.
+ * A synchronous call is interrupted when its timeout expires. A call which ignores the interrupt still
+ * fails with a CallTimeoutException, but only when it returns. A call which is blocked in non-interruptible IO,
+ * like a read of a java.net.Socket, is not ended by the timeout: it keeps the caller blocked past its deadline,
+ * so such a backend needs a read timeout of its own or a non-blocking client with
+ * {@link #decorateCompletionStage(Supplier, Duration)}.
+ */
+public interface Timeout {
+
+    static <T> Supplier<T> decorateSupplier(Supplier<T> supplier, Duration timeout){
+        long timeoutNanos = TimeoutUtils.toNanos(timeout);
+        String message = TimeoutUtils.timeoutMessage(timeout);
+        return () -> TimeoutUtils.call(supplier, timeoutNanos, message);
+    }
+
+    static Runnable decorateRunnable(Runnable runnable, Duration timeout){
+        long timeoutNanos = TimeoutUtils.toNanos(timeout);
+        String message = TimeoutUtils.timeoutMessage(timeout);
+        return () -> TimeoutUtils.call(() -> {
+            runnable.run();
+            return null;
+        }, timeoutNanos, message);
+    }
+
+    static <T, R> Function<T, R> decorateFunction(Function<T, R> function, Duration timeout){
+        long timeoutNanos = TimeoutUtils.toNanos(timeout);
+        String message = TimeoutUtils.timeoutMessage(timeout);
+        return (T t) -> TimeoutUtils.call(() -> function.apply(t), timeoutNanos, message);
+    }
+
+    /**
+     * Decorates a supplier of a CompletionStage without blocking a thread. The returned stage completes
+     * exceptionally with a CallTimeoutException, if the stage of the supplier has not completed within the timeout.
+     * The timed out stage itself is not cancelled.
+     */
+    static <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> supplier, Duration timeout){
+        long timeoutNanos = TimeoutUtils.toNanos(timeout);
+        String message = TimeoutUtils.timeoutMessage(timeout);
+        return () -> {
+            CompletionStage<T> stage = supplier.get();
+            CompletableFuture<T> promise = new CompletableFuture<>();
+            HashedWheelTimer.Entry entry = HashedWheelTimer.shared().schedule(
+                    () -> TimeoutUtils.completeExceptionally(promise, message), timeoutNanos);
+            stage.whenComplete((result, throwable) -> {
+                entry.cancel();
+                if (throwable != null) {
+                    promise.completeExceptionally(throwable);
+                } else {
+                    promise.complete(result);
+                }
+            });
+            return promise;
+        };
+    }
+}
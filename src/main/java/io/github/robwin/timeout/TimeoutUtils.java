@@ -0,0 +1,122 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.timeout;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+final class TimeoutUtils {
+
+    private TimeoutUtils(){}
+
+    static long toNanos(Duration timeout) {
+        if (timeout == null || timeout.toMillis() < 1) {
+            throw new IllegalArgumentException("timeout must be at least 1[ms]");
+        }
+        return timeout.toNanos();
+    }
+
+    static String timeoutMessage(Duration timeout) {
+        return String.format("Call has not completed within %d ms", timeout.toMillis());
+    }
+
+    static <T> T call(Supplier<T> supplier, long timeoutNanos, String message) {
+        CallInterrupter interrupter = new CallInterrupter(Thread.currentThread());
+        HashedWheelTimer.Entry entry = HashedWheelTimer.shared().schedule(interrupter, timeoutNanos);
+        T result;
+        try {
+            result = supplier.get();
+        } catch (RuntimeException exception) {
+            if (interrupter.complete(entry)) {
+                throw exception;
+            }
+            // the exception has most likely been caused by the interrupt
+            throw new CallTimeoutException(message, exception);
+        } catch (Error error) {
+            interrupter.complete(entry);
+            throw error;
+        }
+        if (!interrupter.complete(entry)) {
+            throw new CallTimeoutException(message);
+        }
+        return result;
+    }
+
+    /**
+     * The timer must not run the dependent stages of the promise, so the promise is completed by the common pool.
+     */
+    static void completeExceptionally(CompletableFuture<?> promise, String message) {
+        ForkJoinPool.commonPool().execute(() -> promise.completeExceptionally(new CallTimeoutException(message)));
+    }
+
+    /**
+     * Interrupts the calling thread when the timeout expires. The caller and the timer race for the state,
+     * so that an interrupt is never delivered after the caller has returned from the decorator. The caller only
+     * clears the interrupt of the timer: if the thread has already been interrupted by someone else, the timer
+     * does not interrupt it and the interrupt is kept.
+     */
+    private static final class CallInterrupter extends AtomicInteger implements Runnable {
+
+        private static final int RUNNING = 0;
+        private static final int COMPLETED = 1;
+        private static final int INTERRUPTING = 2;
+        private static final int INTERRUPTED = 3;
+        private static final int EXPIRED = 4;
+
+        private final Thread thread;
+
+        private CallInterrupter(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public void run() {
+            if (compareAndSet(RUNNING, INTERRUPTING)) {
+                if (thread.isInterrupted()) {
+                    set(EXPIRED);
+                } else {
+                    thread.interrupt();
+                    set(INTERRUPTED);
+                }
+            }
+        }
+
+        /**
+         * @return true, if the call has completed before its timeout expired
+         */
+        private boolean complete(HashedWheelTimer.Entry entry) {
+            if (compareAndSet(RUNNING, COMPLETED)) {
+                entry.cancel();
+                return true;
+            }
+            int state;
+            while ((state = get()) == INTERRUPTING) {
+                Thread.yield();
+            }
+            if (state == INTERRUPTED) {
+                // clear the interrupt of the timer
+                Thread.interrupted();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.reactivestreams;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerUtils;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * Decorates a {@link Flow.Publisher} with a CircuitBreaker, like {@link CircuitBreakerPublisher} decorates a
+ * Reactive Streams Publisher. Both share the {@link CircuitBreakerSubscriber}.
+ *
+ * This is the Java 9 release of the class in the Multi-Release JAR. Its public API is the one of the Java 8 release,
+ * so the Publisher is typed by the caller and the decorator is a nested class.
+ */
+public final class CircuitBreakerFlowPublisher {
+
+    private CircuitBreakerFlowPublisher() {
+    }
+
+    /**
+     * Decorates a Flow.Publisher with a CircuitBreaker. The upstream must be declared as a Flow.Publisher,
+     * because the decorated Publisher is not of a subtype like SubmissionPublisher.
+     *
+     * @param upstream the Flow.Publisher which should be protected
+     * @param circuitBreaker the CircuitBreaker
+     * @param <P> the type {@code Flow.Publisher<T>} of the upstream and the decorated Publisher
+     * @return a decorated Flow.Publisher
+     * @throws IllegalArgumentException if the upstream is not a Flow.Publisher
+     */
+    @SuppressWarnings("unchecked")
+    public static <P> P of(P upstream, CircuitBreaker circuitBreaker) {
+        Objects.requireNonNull(circuitBreaker, "CircuitBreaker must not be null");
+        if (!(upstream instanceof Flow.Publisher)) {
+            throw new IllegalArgumentException(String.format("%s is not a Flow.Publisher", upstream));
+        }
+        return (P) new DecoratedPublisher<>((Flow.Publisher<Object>) upstream, circuitBreaker);
+    }
+
+    private static final class DecoratedPublisher<T> implements Flow.Publisher<T> {
+
+        private final Flow.Publisher<T> upstream;
+        private final CircuitBreaker circuitBreaker;
+
+        private DecoratedPublisher(Flow.Publisher<T> upstream, CircuitBreaker circuitBreaker) {
+            this.upstream = upstream;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            if (!circuitBreaker.isCallPermitted()) {
+                subscriber.onSubscribe(EmptySubscription.INSTANCE);
+                subscriber.onError(CircuitBreakerUtils.callNotPermitted(circuitBreaker));
+                return;
+            }
+            upstream.subscribe(new FlowSubscriber<>(subscriber, circuitBreaker));
+        }
+    }
+
+    private static final class FlowSubscriber<T> extends CircuitBreakerSubscriber<T>
+            implements Flow.Subscriber<T>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> downstream;
+        private Flow.Subscription subscription;
+
+        private FlowSubscriber(Flow.Subscriber<? super T> downstream, CircuitBreaker circuitBreaker) {
+            super(circuitBreaker);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        void requestUpstream(long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        void cancelUpstream() {
+            subscription.cancel();
+        }
+
+        @Override
+        void downstreamOnNext(T element) {
+            downstream.onNext(element);
+        }
+
+        @Override
+        void downstreamOnError(Throwable throwable) {
+            downstream.onError(throwable);
+        }
+
+        @Override
+        void downstreamOnComplete() {
+            downstream.onComplete();
+        }
+    }
+
+    private enum EmptySubscription implements Flow.Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+            // a rejected Subscriber receives only the error
+        }
+
+        @Override
+        public void cancel() {
+            // there is nothing to cancel
+        }
+    }
+}
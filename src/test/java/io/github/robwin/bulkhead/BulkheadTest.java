@@ -0,0 +1,164 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.bulkhead;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class BulkheadTest {
+
+    private Bulkhead bulkhead;
+
+    @Before
+    public void setUp() {
+        bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(2).build());
+    }
+
+    @Test
+    public void shouldPermitMaxConcurrentCalls() {
+        assertThat(bulkhead.tryAcquirePermission()).isTrue();
+        assertThat(bulkhead.tryAcquirePermission()).isTrue();
+        assertThat(bulkhead.tryAcquirePermission()).isFalse();
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(0);
+
+        bulkhead.releasePermission();
+
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(1);
+        assertThat(bulkhead.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    public void shouldRejectCallIfFull() {
+        bulkhead.tryAcquirePermission();
+        bulkhead.tryAcquirePermission();
+        Supplier<String> supplier = Bulkhead.decorateSupplier(() -> "Hello world", bulkhead);
+
+        try {
+            supplier.get();
+            fail("Expected a BulkheadFullException");
+        } catch (BulkheadFullException e) {
+            assertThat(e.getMessage()).isEqualTo("Bulkhead 'test' is full");
+            assertThat(e.getStackTrace()).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldReleasePermitIfCallFails() {
+        Function<String, String> function = Bulkhead.decorateFunction((name) -> {
+            throw new IllegalStateException("BAM!");
+        }, bulkhead);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                function.apply("test");
+                fail("Expected an IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReleasePermitWhenCompletionStageCompletes() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Supplier<CompletionStage<String>> supplier = Bulkhead.decorateCompletionStage(() -> future, bulkhead);
+
+        CompletionStage<String> stage = supplier.get();
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(1);
+        future.completeExceptionally(new IllegalStateException("BAM!"));
+
+        assertThat(stage.toCompletableFuture().isCompletedExceptionally()).isTrue();
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFailCompletionStageIfFull() {
+        bulkhead.tryAcquirePermission();
+        bulkhead.tryAcquirePermission();
+        AtomicBoolean called = new AtomicBoolean();
+        Supplier<CompletionStage<String>> supplier = Bulkhead.decorateCompletionStage(() -> {
+            called.set(true);
+            return CompletableFuture.completedFuture("Hello world");
+        }, bulkhead);
+
+        CompletionStage<String> stage = supplier.get();
+
+        assertThat(stage.toCompletableFuture().isCompletedExceptionally()).isTrue();
+        assertThat(called.get()).isFalse();
+    }
+
+    @Test
+    public void shouldWaitForReleasedPermit() throws InterruptedException {
+        Bulkhead waitingBulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).maxWaitTime(10000).build());
+        waitingBulkhead.tryAcquirePermission();
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicBoolean permitted = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            waiting.countDown();
+            permitted.set(waitingBulkhead.tryAcquirePermission());
+        });
+        thread.start();
+        waiting.await();
+
+        waitingBulkhead.releasePermission();
+        thread.join();
+
+        assertThat(permitted.get()).isTrue();
+        assertThat(waitingBulkhead.getAvailableConcurrentCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldStopWaitingAfterMaxWaitTime() {
+        Bulkhead waitingBulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).maxWaitTime(50).build());
+        waitingBulkhead.tryAcquirePermission();
+
+        long start = System.nanoTime();
+        assertThat(waitingBulkhead.tryAcquirePermission()).isFalse();
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(50_000_000L);
+    }
+
+    @Test
+    public void registryShouldReturnTheSameBulkhead() {
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead("testName");
+
+        assertThat(bulkheadRegistry.bulkhead("testName")).isSameAs(bulkhead);
+        assertThat(bulkheadRegistry.bulkhead("otherName")).isNotSameAs(bulkhead);
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(25);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaxConcurrentCallsShouldFail() {
+        BulkheadConfig.custom().maxConcurrentCalls(0).build();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.cache;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class CacheTest {
+
+    private VirtualClock clock;
+    private Cache<String, String> cache;
+    private AtomicInteger calls;
+    private AtomicBoolean failing;
+    private Function<String, String> backend;
+
+    @Before
+    public void setUp() {
+        clock = Clock.virtual();
+        cache = Cache.of("test", CacheConfig.custom()
+                .maximumSize(10)
+                .timeToLive(1000)
+                .maxStaleness(5000)
+                .clock(clock)
+                .build());
+        calls = new AtomicInteger();
+        failing = new AtomicBoolean();
+        backend = (name) -> {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                throw new IllegalStateException("BAM!");
+            }
+            return "Hello " + name;
+        };
+    }
+
+    @Test
+    public void shouldServeFreshEntryWithoutCallingBackend() {
+        Function<String, String> function = Cache.decorateFunction(backend, cache);
+
+        assertThat(function.apply("world")).isEqualTo("Hello world");
+        clock.advance(Duration.ofMillis(999));
+        assertThat(function.apply("world")).isEqualTo("Hello world");
+
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCallBackendIfEntryIsStale() {
+        Function<String, String> function = Cache.decorateFunction(backend, cache);
+        function.apply("world");
+
+        clock.advance(Duration.ofSeconds(1));
+        function.apply("world");
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldServeStaleEntryIfCallFails() {
+        Function<String, String> function = Cache.decorateFunction(backend, cache);
+        function.apply("world");
+        failing.set(true);
+
+        clock.advance(Duration.ofSeconds(5));
+        assertThat(function.apply("world")).isEqualTo("Hello world");
+        assertThat(calls.get()).isEqualTo(2);
+
+        clock.advance(Duration.ofSeconds(1));
+        try {
+            function.apply("world");
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // the entry is older than the time to live and the max staleness
+        }
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldServeStaleEntryWhileCircuitBreakerIsOpen() {
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("test",
+                CircuitBreakerConfig.custom().maxFailures(1).waitInterval(60000).clock(clock).build());
+        Function<String, String> function = Cache.decorateFunction(
+                CircuitBreaker.decorateFunction(backend, circuitBreaker), cache);
+        function.apply("world");
+        clock.advance(Duration.ofSeconds(1));
+        circuitBreaker.recordFailure(new IllegalStateException("BAM!"));
+        circuitBreaker.recordFailure(new IllegalStateException("BAM!"));
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThat(function.apply("world")).isEqualTo("Hello world");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheNullResult() {
+        Function<String, String> function = Cache.decorateFunction((name) -> {
+            calls.incrementAndGet();
+            return null;
+        }, cache);
+
+        assertThat(function.apply("world")).isNull();
+        assertThat(function.apply("world")).isNull();
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotExceedMaximumSize() {
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+            clock.advance(Duration.ofMillis(1));
+        }
+
+        assertThat(cache.size()).isEqualTo(10);
+        assertThat(cache.getIfFresh("key99")).isEqualTo("value99");
+    }
+
+    @Test
+    public void shouldEvictExpiredEntriesOnWrites() {
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        clock.advance(Duration.ofSeconds(6));
+
+        cache.put("key3", "value3");
+        cache.put("key4", "value4");
+
+        assertThat(cache.getIfPresent("key1")).isNull();
+        assertThat(cache.getIfPresent("key2")).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaximumSizeShouldFail() {
+        CacheConfig.custom().maximumSize(0).build();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class BoundedCircuitBreakerRegistryTest {
+
+    private VirtualClock clock;
+    private BoundedCircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Before
+    public void setUp(){
+        clock = Clock.virtual();
+        circuitBreakerRegistry = new BoundedCircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .maxFailures(1).clock(clock).build(), 2, Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void shouldBeTheSameCircuitBreaker() {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        clock.advance(Duration.ofSeconds(5));
+        CircuitBreaker circuitBreaker2 = circuitBreakerRegistry.circuitBreaker("testName");
+        assertThat(circuitBreaker).isSameAs(circuitBreaker2);
+        assertThat(circuitBreaker.getName()).isEqualTo("testName");
+    }
+
+    @Test
+    public void shouldEvictIdleCircuitBreaker() {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("idle");
+        clock.advance(Duration.ofSeconds(10));
+
+        circuitBreakerRegistry.circuitBreaker("other");
+
+        assertThat(circuitBreakerRegistry.size()).isEqualTo(1);
+        assertThat(circuitBreakerRegistry.circuitBreaker("idle")).isNotSameAs(circuitBreaker);
+    }
+
+    @Test
+    public void shouldNotEvictRecentlyUsedCircuitBreaker() {
+        circuitBreakerRegistry.circuitBreaker("testName");
+        clock.advance(Duration.ofSeconds(9));
+        circuitBreakerRegistry.circuitBreaker("testName");
+        clock.advance(Duration.ofSeconds(9));
+
+        circuitBreakerRegistry.circuitBreaker("other");
+
+        assertThat(circuitBreakerRegistry.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotEvictOpenCircuitBreaker() {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("open");
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofSeconds(10));
+
+        circuitBreakerRegistry.circuitBreaker("other");
+        clock.advance(Duration.ofMillis(1));
+        circuitBreakerRegistry.circuitBreaker("other");
+
+        assertThat(circuitBreakerRegistry.circuitBreaker("open")).isSameAs(circuitBreaker);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedCircuitBreakerIfFull() {
+        CircuitBreaker first = circuitBreakerRegistry.circuitBreaker("first");
+        clock.advance(Duration.ofMillis(1));
+        CircuitBreaker second = circuitBreakerRegistry.circuitBreaker("second");
+        clock.advance(Duration.ofMillis(1));
+
+        circuitBreakerRegistry.circuitBreaker("third");
+
+        assertThat(circuitBreakerRegistry.size()).isEqualTo(2);
+        clock.advance(Duration.ofMillis(1));
+        assertThat(circuitBreakerRegistry.circuitBreaker("second")).isSameAs(second);
+        assertThat(circuitBreakerRegistry.circuitBreaker("first")).isNotSameAs(first);
+    }
+
+    @Test
+    public void shouldExceedMaximumSizeWhileCircuitBreakersAreOpen() {
+        for (String name : new String[]{"first", "second", "third"}) {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+            circuitBreaker.recordFailure(new RuntimeException());
+            circuitBreaker.recordFailure(new RuntimeException());
+            clock.advance(Duration.ofMillis(1));
+        }
+
+        circuitBreakerRegistry.circuitBreaker("first");
+
+        assertThat(circuitBreakerRegistry.size()).isEqualTo(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithInvalidMaximumSize() {
+        CircuitBreakerRegistry.ofBounded(CircuitBreakerConfig.custom().build(), 0, Duration.ofSeconds(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithInvalidIdleTimeout() {
+        CircuitBreakerRegistry.ofBounded(CircuitBreakerConfig.custom().build(), 1, Duration.ZERO);
+    }
+}
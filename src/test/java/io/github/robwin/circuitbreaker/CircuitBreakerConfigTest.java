@@ -31,4 +31,69 @@ public class CircuitBreakerConfigTest {
     public void zeroWaitIntervalShouldFail() {
         CircuitBreakerConfig.custom().waitInterval(0).build();
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullWaitIntervalFunctionShouldFail() {
+        CircuitBreakerConfig.custom().waitIntervalFunction(null).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroFailureRateThresholdShouldFail() {
+        CircuitBreakerConfig.custom().failureRateThreshold(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failureRateThresholdAboveHundredShouldFail() {
+        CircuitBreakerConfig.custom().failureRateThreshold(101).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroRingBufferSizeShouldFail() {
+        CircuitBreakerConfig.custom().ringBufferSize(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroTimeWindowSizeShouldFail() {
+        CircuitBreakerConfig.custom().timeWindowSize(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMinimumNumberOfCallsShouldFail() {
+        CircuitBreakerConfig.custom().minimumNumberOfCalls(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroHalfClosedTrialCallsShouldFail() {
+        CircuitBreakerConfig.custom().halfClosedTrialCalls(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroProbeTimeoutShouldFail() {
+        CircuitBreakerConfig.custom().probeTimeout(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroSlowCallDurationThresholdShouldFail() {
+        CircuitBreakerConfig.custom().slowCallDurationThreshold(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slowCallRateThresholdAboveHundredShouldFail() {
+        CircuitBreakerConfig.custom().slowCallRateThreshold(101).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroEventBufferSizeShouldFail() {
+        CircuitBreakerConfig.custom().eventBufferSize(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullClockShouldFail() {
+        CircuitBreakerConfig.custom().clock(null).build();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedDefaultConfigShouldBeImmutable() {
+        CircuitBreakerConfig.ofDefaults().getIgnoredExceptions().add(RuntimeException.class);
+    }
 }
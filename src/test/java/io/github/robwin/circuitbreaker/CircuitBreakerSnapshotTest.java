@@ -0,0 +1,168 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class CircuitBreakerSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private VirtualClock clock;
+    private CircuitBreakerConfig circuitBreakerConfig;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        clock = Clock.virtual();
+        circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(1000).clock(clock).build();
+        file = temporaryFolder.getRoot().toPath().resolve("circuitbreakers.snapshot");
+    }
+
+    @Test
+    public void shouldRestoreOpenCircuitBreaker() throws IOException {
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            CircuitBreaker circuitBreaker = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot).circuitBreaker("testName");
+            circuitBreaker.recordFailure(new RuntimeException());
+            circuitBreaker.recordFailure(new RuntimeException());
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        }
+        clock.advance(Duration.ofMillis(500));
+
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot);
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            assertThat(circuitBreaker.isCallPermitted()).isFalse();
+
+            clock.advance(Duration.ofMillis(500));
+            assertThat(circuitBreaker.isCallPermitted()).isTrue();
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+            assertThat(circuitBreakerRegistry.circuitBreaker("otherName").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        }
+    }
+
+    @Test
+    public void shouldRestoreHalfClosedCircuitBreakerAsOpenWhichPermitsATrialCall() throws IOException {
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            CircuitBreaker circuitBreaker = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot).circuitBreaker("testName");
+            circuitBreaker.recordFailure(new RuntimeException());
+            circuitBreaker.recordFailure(new RuntimeException());
+            clock.advance(Duration.ofMillis(1000));
+            assertThat(circuitBreaker.isCallPermitted()).isTrue();
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        }
+
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            CircuitBreaker circuitBreaker = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot).circuitBreaker("testName");
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            assertThat(circuitBreaker.isCallPermitted()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldRestoreClosedCircuitBreaker() throws IOException {
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            CircuitBreaker circuitBreaker = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot).circuitBreaker("testName");
+            circuitBreaker.recordFailure(new RuntimeException());
+            circuitBreaker.recordFailure(new RuntimeException());
+            clock.advance(Duration.ofMillis(1000));
+            circuitBreaker.isCallPermitted();
+            circuitBreaker.recordSuccess();
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        }
+
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            CircuitBreaker circuitBreaker = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot).circuitBreaker("testName");
+            assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        }
+    }
+
+    @Test
+    public void shouldNotPersistStateIfAllSlotsAreClaimed() throws IOException {
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 1)) {
+            CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot);
+            for (String name : new String[]{"first", "second"}) {
+                CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+                circuitBreaker.recordFailure(new RuntimeException());
+                circuitBreaker.recordFailure(new RuntimeException());
+            }
+        }
+
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 16)) {
+            assertThat(snapshot.getCapacity()).isEqualTo(1);
+            CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot);
+            assertThat(circuitBreakerRegistry.circuitBreaker("first").getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            assertThat(circuitBreakerRegistry.circuitBreaker("second").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        }
+    }
+
+    @Test
+    public void shouldRememberThatAllSlotsAreClaimed() throws IOException {
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 1)) {
+            CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot);
+            CircuitBreaker first = circuitBreakerRegistry.circuitBreaker("first");
+            first.recordFailure(new RuntimeException());
+            first.recordFailure(new RuntimeException());
+            assertThat(snapshot.isFull()).isFalse();
+
+            CircuitBreaker second = circuitBreakerRegistry.circuitBreaker("second");
+            second.recordFailure(new RuntimeException());
+            second.recordFailure(new RuntimeException());
+            assertThat(snapshot.isFull()).isTrue();
+
+            // the claimed slot is still written after the snapshot is full
+            clock.advance(Duration.ofMillis(1000));
+            first.isCallPermitted();
+            first.recordSuccess();
+        }
+
+        try (CircuitBreakerSnapshot snapshot = CircuitBreakerSnapshot.open(file, 1)) {
+            CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig, snapshot);
+            assertThat(circuitBreakerRegistry.circuitBreaker("first").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+            assertThat(circuitBreakerRegistry.circuitBreaker("second").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+            assertThat(snapshot.isFull()).isTrue();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailToOpenOtherFile() throws IOException {
+        Files.write(file, "no snapshot at all".getBytes("UTF-8"));
+        CircuitBreakerSnapshot.open(file, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithInvalidCapacity() throws IOException {
+        CircuitBreakerSnapshot.open(file, 0);
+    }
+}
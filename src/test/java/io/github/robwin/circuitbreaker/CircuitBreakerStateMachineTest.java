@@ -18,9 +18,18 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import io.github.robwin.circuitbreaker.event.CircuitBreakerEvent;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static java.lang.Thread.sleep;
 import static org.assertj.core.api.BDDAssertions.assertThat;
 
@@ -71,4 +80,360 @@ public class CircuitBreakerStateMachineTest {
         assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);
         assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);  // closed because failure count was reset
     }
+
+    @Test
+    public void shouldTripWhenFailureRateThresholdIsReached() {
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).ringBufferSize(4).waitInterval(1000).build());
+
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure(new RuntimeException());
+        // the ring buffer is not full yet
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.recordSuccess();
+        // 2 of 4 calls failed, but the success did not reset the failures
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.recordFailure(new RuntimeException()); // displaces the first failure
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldStayClosedWhenFailureRateIsBelowThreshold() {
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).ringBufferSize(10).waitInterval(1000).build());
+
+        for (int i = 0; i < 100; i++) {
+            if (i % 5 < 2) {
+                circuitBreaker.recordFailure(new RuntimeException());
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+        }
+        // 40% of the calls failed
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldTripWhenFailureRateOfTimeWindowIsReached() {
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).timeWindowSize(10).minimumNumberOfCalls(4).waitInterval(1000).build());
+
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        // not enough calls in the time window yet
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldTripWhenSlowCallRateThresholdIsReached() {
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .slowCallDurationThreshold(1000).slowCallRateThreshold(50).ringBufferSize(4).build());
+
+        circuitBreaker.recordSuccess(10, TimeUnit.MILLISECONDS);
+        circuitBreaker.recordSuccess(2, TimeUnit.SECONDS);
+        circuitBreaker.recordSuccess(10, TimeUnit.MILLISECONDS);
+        // the ring buffer is not full yet
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.recordSuccess(1000, TimeUnit.MILLISECONDS);
+        // 50% of the calls were slow, although none of them has failed
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldStillCountConsecutiveFailuresWhenSlowCallDetectionIsEnabled() {
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).slowCallDurationThreshold(1000).build());
+
+        circuitBreaker.recordFailure(10, TimeUnit.MILLISECONDS, new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.recordFailure(10, TimeUnit.MILLISECONDS, new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldReopenWhenTrialCallIsSlow() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .slowCallDurationThreshold(1000).ringBufferSize(1).waitInterval(1000).clock(clock).build());
+        circuitBreaker.recordSuccess(1, TimeUnit.SECONDS);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofMillis(1000));
+
+        assertThat(circuitBreaker.isCallPermitted()).isTrue();
+        circuitBreaker.recordSuccess(1, TimeUnit.SECONDS);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldPublishTransitionsRejectionsAndErrors() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(1000).clock(clock).eventExecutor(Runnable::run).build());
+        List<CircuitBreakerEvent> events = new ArrayList<>();
+        circuitBreaker.getEventPublisher().subscribe(events::add);
+
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.isCallPermitted();
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.isCallPermitted();
+
+        assertThat(events).extracting("type").containsExactly(CircuitBreakerEvent.Type.ERROR, CircuitBreakerEvent.Type.ERROR,
+                CircuitBreakerEvent.Type.STATE_TRANSITION, CircuitBreakerEvent.Type.CALL_NOT_PERMITTED,
+                CircuitBreakerEvent.Type.STATE_TRANSITION);
+        assertThat(events.get(2).getToState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(events.get(4).getFromState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(events.get(4).getToState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+    }
+
+    @Test
+    public void shouldCountCallsInTheMetrics() {
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).ringBufferSize(4).slowCallDurationThreshold(1000)
+                .ignoredException(IllegalArgumentException.class).build());
+        CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+
+        circuitBreaker.recordSuccess(2, TimeUnit.SECONDS);
+        circuitBreaker.recordFailure(new IllegalArgumentException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(metrics.getFailureRate()).isEqualTo(-1f);
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.isCallPermitted();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(metrics.getNumberOfBufferedCalls()).isEqualTo(4);
+        assertThat(metrics.getFailureRate()).isEqualTo(50f);
+        assertThat(metrics.getSlowCallRate()).isEqualTo(25f);
+        assertThat(metrics.getNumberOfSuccessfulCalls()).isEqualTo(2);
+        assertThat(metrics.getNumberOfFailedCalls()).isEqualTo(2);
+        assertThat(metrics.getNumberOfSlowCalls()).isEqualTo(1);
+        assertThat(metrics.getNumberOfNotPermittedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void metricsShouldNotCalculateRatesWithoutSlidingWindow() {
+        CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+
+        circuitBreaker.recordFailure(new RuntimeException());
+
+        assertThat(metrics.getFailureRate()).isEqualTo(-1f);
+        assertThat(metrics.getNumberOfBufferedCalls()).isEqualTo(0);
+        assertThat(metrics.getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void successOfHealthyCircuitBreakerShouldNotChangeTheStateWord() {
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom().build());
+        long stateWord = circuitBreaker.getStateWord();
+
+        circuitBreaker.recordSuccess();
+
+        assertThat(circuitBreaker.getStateWord()).isEqualTo(stateWord);
+    }
+
+    @Test
+    public void successShouldResetConsecutiveFailuresInPlace() {
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom().build());
+
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(1);
+        circuitBreaker.recordSuccess();
+
+        assertThat(circuitBreaker.getStateWord()).isEqualTo(StateWord.INITIAL);
+    }
+
+    @Test
+    public void shouldPermitOnlyTrialCallsWhenHalfClosed() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(100).halfClosedTrialCalls(2).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofMillis(150));
+
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);  // trial call 1
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);  // trial call 2
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(false); // rejected
+        circuitBreaker.recordSuccess();
+        // 1 of 2 trial calls has succeeded
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(false); // still rejected
+        circuitBreaker.recordSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldReopenWhenOneTrialCallFails() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(100).halfClosedTrialCalls(3).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(150));
+
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        // the late success of the other trial call does not close the CircuitBreaker
+        circuitBreaker.recordSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldReopenWhenTrialCallsDoNotReportWithinProbeTimeout() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(100).probeTimeout(100).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(150));
+
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true); // the trial call hangs
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        clock.advance(Duration.ofMillis(150));
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofMillis(150));
+        // a new round with a new trial call
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+    }
+
+    @Test
+    public void shouldPermitCallIfTrialCallClosesBeforeProbeTimeoutReopens() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(100).probeTimeout(100).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(150));
+        assertThat(circuitBreaker.isCallPermitted()).isEqualTo(true);
+        clock.advance(Duration.ofMillis(150));
+        long halfClosedStateWord = circuitBreaker.getStateWord();
+
+        // the trial call succeeds while a caller, who has read the HALF_CLOSED state word, finds the probe deadline elapsed
+        circuitBreaker.recordSuccess();
+
+        assertThat(circuitBreaker.isCallPermitted(halfClosedStateWord)).isEqualTo(true);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldPermitExactlyTheTrialCallsToConcurrentCallers() throws InterruptedException {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(100).halfClosedTrialCalls(5).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        clock.advance(Duration.ofMillis(150));
+
+        AtomicInteger permittedCalls = new AtomicInteger();
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    if (circuitBreaker.isCallPermitted()) {
+                        permittedCalls.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(permittedCalls.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void waitIntervalShouldGrowWithReopeningsAndResetWhenClosed() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitIntervalFunction(IntervalFunction.ofExponential(100, 2, 300)).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(100);
+
+        clock.advance(Duration.ofMillis(100));
+        circuitBreaker.isCallPermitted();
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(100 + 200);
+
+        clock.advance(Duration.ofMillis(200));
+        circuitBreaker.isCallPermitted();
+        circuitBreaker.recordFailure(new RuntimeException());
+        // capped at the maximum interval
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(300 + 300);
+
+        clock.advance(Duration.ofMillis(300));
+        circuitBreaker.isCallPermitted();
+        circuitBreaker.recordSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(600 + 100);
+    }
+
+    @Test
+    public void shouldClampWaitIntervalOfUserDefinedFunction() {
+        VirtualClock clock = Clock.virtual();
+        clock.advance(Duration.ofMillis(1000));
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitIntervalFunction((numberOfOpenings, previousInterval) ->
+                        numberOfOpenings == 1 ? 0 : Long.MAX_VALUE).clock(clock).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        // a wait interval of 0 must not let the calls through at once
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(1000 + 1);
+        assertThat(circuitBreaker.isCallPermitted()).isFalse();
+
+        clock.advance(Duration.ofMillis(1));
+        assertThat(circuitBreaker.isCallPermitted()).isTrue();
+        circuitBreaker.recordFailure(new RuntimeException());
+        // a wait interval beyond the payload must not be masked to an earlier time
+        assertThat(StateWord.payload(circuitBreaker.getStateWord())).isEqualTo(StateWord.MAX_PAYLOAD);
+        assertThat(circuitBreaker.isCallPermitted()).isFalse();
+    }
+
+    @Test
+    public void shouldDropOutcomesOfEarlierRoundsFromTheWindow() {
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).ringBufferSize(10).waitInterval(1000).build());
+        ClosedState closedState = new ClosedState(circuitBreaker);
+        long firstRound = circuitBreaker.getStateWord();
+        closedState.recordFailure(firstRound, false);
+        assertThat(closedState.getSlidingWindow().getNumberOfBufferedCalls()).isEqualTo(1);
+
+        circuitBreaker.reset();
+        long secondRound = circuitBreaker.getStateWord();
+
+        // the first outcome of the new round clears the window, the late outcome of the first round is dropped
+        closedState.recordSuccess(secondRound, false);
+        closedState.recordFailure(firstRound, false);
+        assertThat(closedState.getSlidingWindow().getNumberOfBufferedCalls()).isEqualTo(1);
+        assertThat(closedState.getSlidingWindow().getFailureRate()).isEqualTo(-1f);
+    }
+
+    @Test
+    public void shouldClearTheWindowWhenClosedAgain() {
+        CircuitBreakerStateMachine circuitBreaker = new CircuitBreakerStateMachine("testName", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).ringBufferSize(10).waitInterval(1000).build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordSuccess();
+
+        circuitBreaker.reset();
+
+        assertThat(circuitBreaker.getMetrics().getNumberOfBufferedCalls()).isEqualTo(0);
+    }
 }
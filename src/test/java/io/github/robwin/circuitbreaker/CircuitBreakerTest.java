@@ -18,15 +18,22 @@
  */
 package io.github.robwin.circuitbreaker;
 
+import io.github.robwin.circuitbreaker.event.CircuitBreakerEventPublisher;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -97,6 +104,52 @@ public class CircuitBreakerTest {
         assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
     }
 
+    @Test
+    public void shouldOnlyTriggerCircuitBreakerOnRecordedExceptions() {
+        // Given
+        CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig.Builder()
+                .maxFailures(1)
+                .waitInterval(1000)
+                .recordedException(IOException.class)
+                .build();
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName", circuitBreakerConfig);
+
+        // When
+        circuitBreaker.recordFailure(new IllegalStateException());
+        circuitBreaker.recordFailure(new IllegalStateException());
+        // Then the CircuitBreaker is still CLOSED, because IllegalStateException is not recorded
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // When
+        circuitBreaker.recordFailure(new SocketTimeoutException());
+        circuitBreaker.recordFailure(new SocketTimeoutException());
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldMeasureTheDurationOfDecoratedCalls() {
+        // Given
+        VirtualClock clock = Clock.virtual();
+        CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig.Builder()
+                .slowCallDurationThreshold(1000)
+                .ringBufferSize(2)
+                .clock(clock)
+                .build();
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName", circuitBreakerConfig);
+        Supplier<String> slowSupplier = CircuitBreaker.decorateSupplier(() -> {
+            clock.advance(Duration.ofSeconds(20));
+            return "Hello world";
+        }, circuitBreaker);
+
+        // When
+        assertThat(slowSupplier.get()).isEqualTo("Hello world");
+        assertThat(slowSupplier.get()).isEqualTo("Hello world");
+
+        // Then the CircuitBreaker is OPEN, because all calls were slow
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
     @Test
     public void shouldReturnSuccess() {
         // Given
@@ -144,4 +197,292 @@ public class CircuitBreakerTest {
     }
 
 
+    @Test
+    public void shouldRecordTheOutcomeOfACompletionStageWhenItCompletes() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Supplier<CompletionStage<String>> decoratedSupplier = CircuitBreaker.decorateCompletionStage(() -> future, circuitBreaker);
+
+        // When
+        CompletionStage<String> first = decoratedSupplier.get();
+        CompletionStage<String> second = decoratedSupplier.get();
+        // Then nothing is recorded before the futures complete
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // When
+        future.completeExceptionally(new IOException("BAM!"));
+
+        // Then both failures are recorded
+        assertThat(first.toCompletableFuture().isCompletedExceptionally()).isTrue();
+        assertThat(second.toCompletableFuture().isCompletedExceptionally()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldReturnAFailedCompletionStageWhenTheCircuitBreakerIsOpen() throws InterruptedException {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        Supplier<CompletionStage<String>> decoratedSupplier = CircuitBreaker
+                .decorateCompletionStage(() -> CompletableFuture.completedFuture("Hello world"), circuitBreaker);
+
+        // When
+        CompletableFuture<String> future = decoratedSupplier.get().toCompletableFuture();
+
+        // Then
+        assertThat(future.isCompletedExceptionally()).isTrue();
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(CircuitBreakerOpenException.class);
+        }
+    }
+
+    @Test
+    public void shouldReturnSuccessOfACompletionStage() throws ExecutionException, InterruptedException {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        circuitBreaker.recordFailure(new RuntimeException());
+
+        // When
+        CompletionStage<String> stage = CircuitBreaker.decorateCompletionStage(
+                () -> CompletableFuture.supplyAsync(() -> "Hello world"), circuitBreaker).get();
+
+        // Then the success resets the consecutive failure
+        assertThat(stage.toCompletableFuture().get()).isEqualTo("Hello world");
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldAnswerRejectedCallWithFallbackWithoutException() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        //When
+        Supplier<String> supplier = CircuitBreaker.decorateSupplier(() -> {
+            throw new IllegalStateException("The backend must not be called");
+        }, circuitBreaker, () -> "Fallback");
+
+        //Then
+        assertThat(supplier.get()).isEqualTo("Fallback");
+        assertThat(circuitBreaker.getMetrics().getNumberOfNotPermittedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordFailureAndAnswerWithFallback() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+
+        //When
+        Function<String, String> function = CircuitBreaker.decorateFunction((name) -> {
+            throw new IllegalStateException("BAM!");
+        }, circuitBreaker, (name) -> "Hello " + name);
+
+        //Then
+        assertThat(function.apply("fallback")).isEqualTo("Hello fallback");
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAnswerFailedCompletionStageWithFallback() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("BAM!"));
+
+        //When
+        Supplier<CompletionStage<String>> supplier = CircuitBreaker.decorateCompletionStage(() -> future, circuitBreaker,
+                () -> CompletableFuture.completedFuture("Fallback"));
+
+        //Then
+        assertThat(supplier.get().toCompletableFuture().join()).isEqualTo("Fallback");
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotAnswerErrorOfCompletionStageWithFallback() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new AssertionError("BAM!"));
+
+        //When
+        Supplier<CompletionStage<String>> supplier = CircuitBreaker.decorateCompletionStage(() -> future, circuitBreaker,
+                () -> CompletableFuture.completedFuture("Fallback"));
+
+        //Then
+        try {
+            supplier.get().toCompletableFuture().join();
+            Assert.fail("Expected a CompletionException");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).isInstanceOf(AssertionError.class);
+        }
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldThrowCachedStacklessExceptionIfStackTraceIsDisabled() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName", CircuitBreakerConfig.custom()
+                .maxFailures(1)
+                .writableStackTraceEnabled(false)
+                .build());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+
+        //When
+        CircuitBreakerOpenException exception1 = CircuitBreakerUtils.callNotPermitted(circuitBreaker);
+        CircuitBreakerOpenException exception2 = CircuitBreakerUtils.callNotPermitted(circuitBreaker);
+
+        //Then
+        assertThat(exception1).isSameAs(exception2);
+        assertThat(exception1.getMessage()).isEqualTo("CircuitBreaker 'testName' is open");
+        assertThat(exception1.getStackTrace()).isEmpty();
+        exception1.addSuppressed(new RuntimeException());
+        assertThat(exception1.getSuppressed()).isEmpty();
+    }
+
+    @Test
+    public void shouldCreateExceptionWithStackTraceByDefault() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+
+        //When
+        CircuitBreakerOpenException exception1 = CircuitBreakerUtils.callNotPermitted(circuitBreaker);
+        CircuitBreakerOpenException exception2 = CircuitBreakerUtils.callNotPermitted(circuitBreaker);
+
+        //Then
+        assertThat(exception1).isNotSameAs(exception2);
+        assertThat(exception1.getStackTrace()).isNotEmpty();
+    }
+
+    @Test
+    public void shouldDecorateCircuitBreakerWhichOnlyImplementsTheAbstractMethods() {
+        // Given
+        StringBuilder outcomes = new StringBuilder();
+        CircuitBreaker circuitBreaker = circuitBreakerWhichOnlyImplementsTheAbstractMethods(outcomes);
+
+        //When
+        Supplier<String> supplier = CircuitBreaker.decorateSupplier(() -> "Hello world", circuitBreaker);
+
+        //Then
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(outcomes.toString()).isEqualTo("success");
+    }
+
+    @Test
+    public void shouldReturnNoOpEventPublisherByDefault() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerWhichOnlyImplementsTheAbstractMethods(new StringBuilder());
+
+        //When
+        CircuitBreakerEventPublisher eventPublisher = circuitBreaker.getEventPublisher();
+        eventPublisher.subscribe(event -> Assert.fail("No event should be published"));
+
+        //Then
+        assertThat(eventPublisher).isSameAs(CircuitBreakerEventPublisher.noOp());
+        assertThat(eventPublisher.getNumberOfDroppedEvents()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnSharedDefaultConfigByDefault() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerWhichOnlyImplementsTheAbstractMethods(new StringBuilder());
+
+        //When
+        CircuitBreakerConfig circuitBreakerConfig = circuitBreaker.getCircuitBreakerConfig();
+
+        //Then
+        assertThat(circuitBreakerConfig).isSameAs(circuitBreaker.getCircuitBreakerConfig());
+        assertThat(circuitBreakerConfig).isSameAs(CircuitBreakerConfig.ofDefaults());
+    }
+
+    @Test
+    public void shouldReturnEmptyMetricsByDefault() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerWhichOnlyImplementsTheAbstractMethods(new StringBuilder());
+        CircuitBreaker.decorateSupplier(() -> "Hello world", circuitBreaker).get();
+
+        //When
+        CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+
+        //Then
+        assertThat(metrics.getFailureRate()).isEqualTo(-1);
+        assertThat(metrics.getSlowCallRate()).isEqualTo(-1);
+        assertThat(metrics.getNumberOfBufferedCalls()).isEqualTo(0);
+        assertThat(metrics.getNumberOfSuccessfulCalls()).isEqualTo(0);
+        assertThat(metrics.getNumberOfFailedCalls()).isEqualTo(0);
+        assertThat(metrics.getNumberOfSlowCalls()).isEqualTo(0);
+        assertThat(metrics.getNumberOfNotPermittedCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRecordFailureIfSupplierReturnsNoCompletionStage() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        Supplier<CompletionStage<String>> supplier = CircuitBreaker.decorateCompletionStage(() -> null, circuitBreaker);
+
+        //When
+        CompletionStage<String> stage = supplier.get();
+
+        //Then
+        try {
+            stage.toCompletableFuture().join();
+            Assert.fail("The CompletionStage should have failed");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).isInstanceOf(NullPointerException.class);
+        }
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAnswerMissingCompletionStageWithFallback() {
+        // Given
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        Supplier<CompletionStage<String>> supplier = CircuitBreaker.decorateCompletionStage(() -> null, circuitBreaker,
+                () -> CompletableFuture.completedFuture("Fallback"));
+
+        //When
+        String result = supplier.get().toCompletableFuture().join();
+
+        //Then
+        assertThat(result).isEqualTo("Fallback");
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    private static CircuitBreaker circuitBreakerWhichOnlyImplementsTheAbstractMethods(StringBuilder outcomes) {
+        return new CircuitBreaker() {
+            @Override
+            public boolean isCallPermitted() {
+                return true;
+            }
+
+            @Override
+            public void recordFailure(Exception exception) {
+                outcomes.append("failure");
+            }
+
+            @Override
+            public void recordSuccess() {
+                outcomes.append("success");
+            }
+
+            @Override
+            public String getName() {
+                return "external";
+            }
+
+            @Override
+            public State getState() {
+                return State.CLOSED;
+            }
+        };
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.circuitbreaker.gossip.GossipConfig;
+import io.github.robwin.circuitbreaker.gossip.GossipTransport;
+import io.github.robwin.circuitbreaker.gossip.LoopbackGossipNetwork;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class GossipCircuitBreakerRegistryTest {
+
+    private VirtualClock clock;
+    private LoopbackGossipNetwork network;
+    private GossipConfig gossipConfig;
+    private CircuitBreakerConfig circuitBreakerConfig;
+
+    @Before
+    public void setUp() {
+        clock = Clock.virtual();
+        network = new LoopbackGossipNetwork();
+        gossipConfig = GossipConfig.custom().gossipInterval(100).memberTimeout(1000).clock(clock).build();
+        circuitBreakerConfig = CircuitBreakerConfig.custom().maxFailures(1).clock(clock).build();
+    }
+
+    @Test
+    public void shouldOpenCircuitBreakerWhichTheMajorityHasOpened() {
+        GossipCircuitBreakerRegistry first = member();
+        GossipCircuitBreakerRegistry second = member();
+        GossipCircuitBreakerRegistry third = member();
+        gossip(first, second, third);
+        assertThat(third.getNumberOfMembers()).isEqualTo(3);
+
+        trip(first.circuitBreaker("backend"));
+        first.gossip();
+        assertThat(third.circuitBreaker("backend").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        trip(second.circuitBreaker("backend"));
+        second.gossip();
+        assertThat(third.circuitBreaker("backend").getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(third.circuitBreaker("otherBackend").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldNotOpenCircuitBreakerWhichOnlyHalfOfTheMembersHaveOpened() {
+        GossipCircuitBreakerRegistry first = member();
+        GossipCircuitBreakerRegistry second = member();
+        gossip(first, second);
+
+        trip(first.circuitBreaker("backend"));
+        first.gossip();
+
+        assertThat(second.circuitBreaker("backend").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldOnlySendChangedDigests() {
+        GossipCircuitBreakerRegistry first = member();
+        GossipCircuitBreakerRegistry second = member();
+        int[] messages = new int[1];
+        network.join().setReceiver(message -> messages[0]++);
+        gossip(first, second);
+        assertThat(messages[0]).isEqualTo(2);
+
+        first.gossip();
+        second.gossip();
+        assertThat(messages[0]).isEqualTo(2);
+
+        trip(first.circuitBreaker("backend"));
+        first.gossip();
+        assertThat(messages[0]).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldRemoveMembersWhichHaveTimedOut() {
+        GossipCircuitBreakerRegistry first = member();
+        GossipCircuitBreakerRegistry second = member();
+        GossipCircuitBreakerRegistry third = member();
+        gossip(first, second, third);
+        assertThat(first.getNumberOfMembers()).isEqualTo(3);
+
+        clock.advance(Duration.ofMillis(1000));
+        first.gossip();
+
+        assertThat(first.getNumberOfMembers()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldIgnoreMalformedMessage() {
+        GossipCircuitBreakerRegistry first = member();
+
+        first.receive(new byte[]{StateDigestCodec.VERSION, 1, 2});
+
+        assertThat(first.getNumberOfMembers()).isEqualTo(1);
+        assertThat(first.getNumberOfErrors()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepGossipingAfterTransportHasFailed() {
+        AtomicInteger broadcasts = new AtomicInteger();
+        GossipTransport failingTransport = new GossipTransport() {
+            @Override
+            public void broadcast(byte[] message) {
+                if (broadcasts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("BAM!");
+                }
+            }
+
+            @Override
+            public void setReceiver(Consumer<byte[]> receiver) {
+            }
+        };
+        GossipCircuitBreakerRegistry registry = GossipCircuitBreakerRegistry.of(CircuitBreakerRegistry.of(circuitBreakerConfig),
+                failingTransport, GossipConfig.custom().gossipInterval(10).build());
+        try {
+            registry.circuitBreaker("backend");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (broadcasts.get() < 2 && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+
+            // the digest which could not be sent is sent again
+            assertThat(broadcasts.get()).isGreaterThanOrEqualTo(2);
+            assertThat(registry.getNumberOfErrors()).isEqualTo(1);
+        } finally {
+            registry.close();
+        }
+    }
+
+    private GossipCircuitBreakerRegistry member() {
+        GossipCircuitBreakerRegistry registry = new GossipCircuitBreakerRegistry(
+                CircuitBreakerRegistry.of(circuitBreakerConfig), network.join(), gossipConfig);
+        registry.circuitBreaker("backend");
+        return registry;
+    }
+
+    private static void gossip(GossipCircuitBreakerRegistry... registries) {
+        for (GossipCircuitBreakerRegistry registry : registries) {
+            registry.gossip();
+        }
+    }
+
+    private static void trip(CircuitBreaker circuitBreaker) {
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class IntervalFunctionTest {
+
+    @Test
+    public void fixedIntervalShouldNotGrow() {
+        IntervalFunction intervalFunction = IntervalFunction.ofFixed(1000);
+
+        assertThat(intervalFunction.apply(1, 0)).isEqualTo(1000);
+        assertThat(intervalFunction.apply(10, 1000)).isEqualTo(1000);
+    }
+
+    @Test
+    public void exponentialIntervalShouldGrowUpToMaximum() {
+        IntervalFunction intervalFunction = IntervalFunction.ofExponential(1000, 2, 10000);
+
+        assertThat(intervalFunction.apply(1, 0)).isEqualTo(1000);
+        assertThat(intervalFunction.apply(2, 1000)).isEqualTo(2000);
+        assertThat(intervalFunction.apply(4, 4000)).isEqualTo(8000);
+        assertThat(intervalFunction.apply(5, 8000)).isEqualTo(10000);
+        assertThat(intervalFunction.apply(1000, 10000)).isEqualTo(10000);
+    }
+
+    @Test
+    public void decorrelatedJitterShouldStayBetweenBaseAndThreeTimesThePreviousInterval() {
+        IntervalFunction intervalFunction = IntervalFunction.ofDecorrelatedJitter(1000, 60000);
+
+        long previousInterval = 0;
+        for (int openings = 1; openings < 1000; openings++) {
+            long interval = intervalFunction.apply(openings, previousInterval);
+            assertThat(interval).isBetween(1000L, Math.min(60000L, Math.max(1000L, previousInterval) * 3));
+            previousInterval = interval;
+        }
+    }
+
+    @Test
+    public void decorrelatedJitterShouldSpreadIntervals() {
+        IntervalFunction intervalFunction = IntervalFunction.ofDecorrelatedJitter(1000, 60000);
+
+        long first = intervalFunction.apply(2, 10000);
+        boolean spread = false;
+        for (int i = 0; i < 100 && !spread; i++) {
+            spread = intervalFunction.apply(2, 10000) != first;
+        }
+
+        assertThat(spread).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithMaximumBelowInitialInterval() {
+        IntervalFunction.ofExponential(1000, 2, 500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithMultiplierBelowOne() {
+        IntervalFunction.ofExponential(1000, 0.5, 5000);
+    }
+}
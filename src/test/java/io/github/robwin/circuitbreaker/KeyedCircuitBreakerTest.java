@@ -0,0 +1,177 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Function;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class KeyedCircuitBreakerTest {
+
+    private VirtualClock clock;
+    private KeyedCircuitBreaker keyedCircuitBreaker;
+
+    @Before
+    public void setUp() {
+        clock = Clock.virtual();
+        keyedCircuitBreaker = KeyedCircuitBreaker.of("tenants", CircuitBreakerConfig.custom()
+                .maxFailures(1).waitInterval(1000).clock(clock).build());
+    }
+
+    @Test
+    public void shouldOpenOnlyTheCircuitBreakerOfTheFailingKey() {
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+
+        assertThat(keyedCircuitBreaker.getState(1L)).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(keyedCircuitBreaker.isCallPermitted(1L)).isFalse();
+        assertThat(keyedCircuitBreaker.getState(2L)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(keyedCircuitBreaker.isCallPermitted(2L)).isTrue();
+    }
+
+    @Test
+    public void shouldNotStoreHealthyKeys() {
+        for (long key = 0; key < 1000; key++) {
+            keyedCircuitBreaker.isCallPermitted(key);
+            keyedCircuitBreaker.recordSuccess(key);
+        }
+        keyedCircuitBreaker.recordFailure(7L, new RuntimeException());
+
+        assertThat(((KeyedCircuitBreakerStateMachine) keyedCircuitBreaker).getNumberOfKeys()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDropRecoveredKeys() {
+        for (long key = 0; key < 10000; key++) {
+            keyedCircuitBreaker.recordFailure(key, new RuntimeException());
+            keyedCircuitBreaker.recordFailure(key, new RuntimeException());
+            clock.advance(Duration.ofMillis(1000));
+            keyedCircuitBreaker.isCallPermitted(key);
+            keyedCircuitBreaker.recordSuccess(key);
+            assertThat(keyedCircuitBreaker.getState(key)).isEqualTo(CircuitBreaker.State.CLOSED);
+        }
+
+        assertThat(((KeyedCircuitBreakerStateMachine) keyedCircuitBreaker).getNumberOfKeys()).isLessThanOrEqualTo(64 * 8);
+    }
+
+    @Test
+    public void shouldResetConsecutiveFailuresOnSuccess() {
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+        keyedCircuitBreaker.recordSuccess(1L);
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+
+        assertThat(keyedCircuitBreaker.getState(1L)).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldPermitOneTrialCallAfterWaitInterval() {
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+        clock.advance(Duration.ofMillis(1000));
+
+        assertThat(keyedCircuitBreaker.isCallPermitted(1L)).isTrue();
+        assertThat(keyedCircuitBreaker.getState(1L)).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        assertThat(keyedCircuitBreaker.isCallPermitted(1L)).isFalse();
+
+        keyedCircuitBreaker.recordSuccess(1L);
+        assertThat(keyedCircuitBreaker.getState(1L)).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldOpenAgainIfTrialCallFails() {
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+        clock.advance(Duration.ofMillis(1000));
+        keyedCircuitBreaker.isCallPermitted(1L);
+
+        keyedCircuitBreaker.recordFailure(1L, new RuntimeException());
+
+        assertThat(keyedCircuitBreaker.getState(1L)).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldDecorateKeyedFunction() {
+        Function<Long, String> function = CircuitBreaker.decorateKeyedFunction(tenant -> tenant, tenant -> {
+            if (tenant == 1L) {
+                throw new IllegalStateException("BAM!");
+            }
+            return "Hello tenant " + tenant;
+        }, keyedCircuitBreaker);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                function.apply(1L);
+                fail("Expected an IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        try {
+            function.apply(1L);
+            fail("Expected a CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException e) {
+            assertThat(e.getMessage()).isEqualTo("CircuitBreaker 'tenants' is open for key 1");
+        }
+        assertThat(function.apply(2L)).isEqualTo("Hello tenant 2");
+    }
+
+    @Test
+    public void shouldNotRecordIgnoredException() {
+        KeyedCircuitBreaker circuitBreaker = KeyedCircuitBreaker.of("tenants", CircuitBreakerConfig.custom()
+                .maxFailures(1).ignoredException(IOException.class).build());
+
+        circuitBreaker.recordFailure(1L, new IOException());
+        circuitBreaker.recordFailure(1L, new IOException());
+
+        assertThat(circuitBreaker.getState(1L)).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithFailureRateThreshold() {
+        KeyedCircuitBreaker.of("tenants", CircuitBreakerConfig.custom().failureRateThreshold(50).build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithMoreThanOneHalfClosedTrialCall() {
+        KeyedCircuitBreaker.of("tenants", CircuitBreakerConfig.custom().halfClosedTrialCalls(2).build());
+    }
+
+    @Test
+    public void shouldShareExceptionOfRejectedCallsWithoutStackTrace() {
+        KeyedCircuitBreaker circuitBreaker = KeyedCircuitBreaker.of("tenants", CircuitBreakerConfig.custom()
+                .maxFailures(1).writableStackTraceEnabled(false).build());
+        circuitBreaker.recordFailure(1L, new IllegalStateException("BAM!"));
+        circuitBreaker.recordFailure(1L, new IllegalStateException("BAM!"));
+
+        CircuitBreakerOpenException exception = CircuitBreakerUtils.callNotPermitted(circuitBreaker, 1L);
+
+        assertThat(exception.getMessage()).isEqualTo("CircuitBreaker 'tenants' is open for the key of the call");
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(CircuitBreakerUtils.callNotPermitted(circuitBreaker, 2L)).isSameAs(exception);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class LongStateWordMapTest {
+
+    private final LongStateWordMap map = new LongStateWordMap();
+
+    @Test
+    public void shouldReturnInitialStateWordOfUnknownKey() {
+        assertThat(map.get(42L)).isEqualTo(StateWord.INITIAL);
+        assertThat(map.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldInsertKeyOnFirstChange() {
+        assertThat(map.compareAndSet(0L, StateWord.INITIAL, 1L)).isTrue();
+        assertThat(map.compareAndSet(-1L, 1L, 2L)).isFalse();
+
+        assertThat(map.get(0L)).isEqualTo(1L);
+        assertThat(map.get(-1L)).isEqualTo(StateWord.INITIAL);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepStateWordsWhileGrowing() {
+        for (long key = 0; key < 100000; key++) {
+            assertThat(map.compareAndSet(key * 31, StateWord.INITIAL, key + 1)).isTrue();
+        }
+
+        assertThat(map.size()).isEqualTo(100000);
+        for (long key = 0; key < 100000; key++) {
+            assertThat(map.get(key * 31)).isEqualTo(key + 1);
+        }
+        assertThat(map.compareAndSet(31L, 1L, 3L)).isFalse();
+        assertThat(map.compareAndSet(31L, 2L, 3L)).isTrue();
+    }
+
+    @Test
+    public void shouldNotLoseChangesWhileGrowingConcurrently() throws InterruptedException {
+        int threads = 4;
+        int keysPerThread = 20000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long firstKey = (long) t * keysPerThread;
+            workers.add(new Thread(() -> {
+                // every thread increments a shared key while inserting its own keys
+                for (long key = firstKey; key < firstKey + keysPerThread; key++) {
+                    map.compareAndSet(key + 1, StateWord.INITIAL, key);
+                    long stateWord;
+                    do {
+                        stateWord = map.get(0L);
+                    } while (!map.compareAndSet(0L, stateWord, stateWord + 1));
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(map.get(0L)).isEqualTo((long) threads * keysPerThread);
+        for (long key = 0; key < threads * keysPerThread; key++) {
+            assertThat(map.get(key + 1)).isEqualTo(key);
+        }
+    }
+
+    @Test
+    public void shouldDropKeysWhichHaveReturnedToTheInitialStateWord() {
+        map.compareAndSet(-1L, StateWord.INITIAL, 7L);
+        for (long key = 0; key < 100000; key++) {
+            assertThat(map.compareAndSet(key, StateWord.INITIAL, 1L)).isTrue();
+            assertThat(map.compareAndSet(key, 1L, StateWord.INITIAL)).isTrue();
+        }
+
+        // every segment keeps at most the keys of a half full initial table
+        assertThat(map.size()).isLessThanOrEqualTo(64 * 8);
+        assertThat(map.get(-1L)).isEqualTo(7L);
+        assertThat(map.get(99999L)).isEqualTo(StateWord.INITIAL);
+        assertThat(map.compareAndSet(99999L, StateWord.INITIAL, 2L)).isTrue();
+        assertThat(map.get(99999L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldResetAllKeys() {
+        map.compareAndSet(1L, StateWord.INITIAL, 5L);
+
+        map.reset();
+
+        assertThat(map.get(1L)).isEqualTo(StateWord.INITIAL);
+    }
+}
@@ -54,4 +54,18 @@ public class MonitorRegistryTest {
 
         assertThat(circuitBreaker).isNotSameAs(circuitBreaker2);
     }
+
+    @Test
+    public void shouldResetOpenCircuitBreakers() {
+        InMemoryCircuitBreakerRegistry circuitBreakerRegistry = new InMemoryCircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .maxFailures(1).build());
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        circuitBreakerRegistry.resetMonitorStates();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
 }
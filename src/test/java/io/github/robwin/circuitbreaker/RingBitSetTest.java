@@ -0,0 +1,99 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class RingBitSetTest {
+
+    @Test
+    public void shouldCountSetBitsUntilTheRingIsFull() {
+        RingBitSet ringBitSet = new RingBitSet(4);
+        ringBitSet.setNextBit(true);
+        ringBitSet.setNextBit(false);
+        ringBitSet.setNextBit(true);
+        assertThat(ringBitSet.cardinality()).isEqualTo(2);
+        assertThat(ringBitSet.length()).isEqualTo(3);
+        ringBitSet.setNextBit(true);
+        assertThat(ringBitSet.cardinality()).isEqualTo(3);
+        assertThat(ringBitSet.length()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldOverwriteTheOldestBit() {
+        RingBitSet ringBitSet = new RingBitSet(3);
+        ringBitSet.setNextBit(true);
+        ringBitSet.setNextBit(true);
+        ringBitSet.setNextBit(false);
+        // overwrites the first bit
+        ringBitSet.setNextBit(false);
+        assertThat(ringBitSet.cardinality()).isEqualTo(1);
+        // overwrites the second bit
+        ringBitSet.setNextBit(false);
+        assertThat(ringBitSet.length()).isEqualTo(3);
+        assertThat(ringBitSet.cardinality()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldSpanMultipleWords() {
+        RingBitSet ringBitSet = new RingBitSet(130);
+        for (int i = 0; i < 130; i++) {
+            ringBitSet.setNextBit(i % 2 == 0);
+        }
+        assertThat(ringBitSet.cardinality()).isEqualTo(65);
+        for (int i = 0; i < 130; i++) {
+            ringBitSet.setNextBit(true);
+        }
+        assertThat(ringBitSet.cardinality()).isEqualTo(130);
+    }
+
+    @Test
+    public void shouldClearAllBitsOnReset() {
+        RingBitSet ringBitSet = new RingBitSet(70);
+        for (int i = 0; i < 70; i++) {
+            ringBitSet.setNextBit(true);
+        }
+        ringBitSet.reset();
+        assertThat(ringBitSet.cardinality()).isEqualTo(0);
+        assertThat(ringBitSet.length()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldKeepCardinalityConsistentUnderConcurrentWrites() throws InterruptedException {
+        RingBitSet ringBitSet = new RingBitSet(1000);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    ringBitSet.setNextBit(j % 4 == 0);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 1000; i++) {
+            ringBitSet.setNextBit(true);
+        }
+        assertThat(ringBitSet.cardinality()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class SharedMemoryCircuitBreakerRegistryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private CircuitBreakerConfig circuitBreakerConfig;
+    private Path file;
+
+    @Before
+    public void setUp() {
+        circuitBreakerConfig = CircuitBreakerConfig.custom().maxFailures(1).clock(Clock.system()).build();
+        file = temporaryFolder.getRoot().toPath().resolve("circuitbreakers.shared");
+    }
+
+    @Test
+    public void shouldShareStateBetweenRegistries() throws IOException {
+        // Both registries map the same file, like two processes on the same host
+        CircuitBreakerRegistry firstRegistry = CircuitBreakerRegistry.ofSharedMemory(circuitBreakerConfig, file, 16);
+        CircuitBreakerRegistry secondRegistry = CircuitBreakerRegistry.ofSharedMemory(circuitBreakerConfig, file, 16);
+        CircuitBreaker circuitBreaker = firstRegistry.circuitBreaker("testName");
+        CircuitBreaker sharedCircuitBreaker = secondRegistry.circuitBreaker("testName");
+        assertThat(sharedCircuitBreaker).isNotSameAs(circuitBreaker);
+
+        circuitBreaker.recordFailure(new RuntimeException());
+        sharedCircuitBreaker.recordFailure(new RuntimeException());
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(sharedCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(sharedCircuitBreaker.isCallPermitted()).isFalse();
+        assertThat(secondRegistry.circuitBreaker("otherName").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldShareTrialCallsOfHalfClosedState() throws Exception {
+        CircuitBreakerConfig trialCallConfig = CircuitBreakerConfig.custom().maxFailures(1).waitInterval(100)
+                .clock(Clock.system()).build();
+        CircuitBreakerRegistry firstRegistry = CircuitBreakerRegistry.ofSharedMemory(trialCallConfig, file, 16);
+        CircuitBreakerRegistry secondRegistry = CircuitBreakerRegistry.ofSharedMemory(trialCallConfig, file, 16);
+        CircuitBreaker circuitBreaker = firstRegistry.circuitBreaker("testName");
+        CircuitBreaker sharedCircuitBreaker = secondRegistry.circuitBreaker("testName");
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        Thread.sleep(150);
+
+        // the single trial call is permitted to one process only
+        assertThat(circuitBreaker.isCallPermitted()).isTrue();
+        assertThat(sharedCircuitBreaker.isCallPermitted()).isFalse();
+        assertThat(sharedCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+
+        circuitBreaker.recordSuccess();
+        assertThat(sharedCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldShareReset() throws IOException {
+        SharedMemoryCircuitBreakerRegistry firstRegistry = new SharedMemoryCircuitBreakerRegistry(circuitBreakerConfig,
+                SharedStateWordFile.open(file, 16));
+        CircuitBreakerRegistry secondRegistry = CircuitBreakerRegistry.ofSharedMemory(circuitBreakerConfig, file, 16);
+        firstRegistry.circuitBreaker("testName");
+        CircuitBreaker sharedCircuitBreaker = secondRegistry.circuitBreaker("testName");
+        sharedCircuitBreaker.recordFailure(new RuntimeException());
+        sharedCircuitBreaker.recordFailure(new RuntimeException());
+        assertThat(sharedCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        firstRegistry.resetMonitorStates();
+
+        assertThat(sharedCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldKeepStateLocallyIfAllSlotsAreClaimed() throws IOException {
+        CircuitBreakerRegistry firstRegistry = CircuitBreakerRegistry.ofSharedMemory(circuitBreakerConfig, file, 1);
+        CircuitBreakerRegistry secondRegistry = CircuitBreakerRegistry.ofSharedMemory(circuitBreakerConfig, file, 16);
+        firstRegistry.circuitBreaker("first");
+        CircuitBreaker circuitBreaker = firstRegistry.circuitBreaker("second");
+
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(secondRegistry.circuitBreaker("second").getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldAgreeOnSlotOfName() throws IOException {
+        SharedStateWordFile firstFile = SharedStateWordFile.open(file, 4);
+        SharedStateWordFile secondFile = SharedStateWordFile.open(file, 16);
+        assertThat(secondFile.getCapacity()).isEqualTo(4);
+
+        StateWordCell stateWord = firstFile.stateWord("testName");
+        StateWordCell sharedStateWord = secondFile.stateWord("testName");
+
+        assertThat(stateWord.compareAndSet(StateWord.INITIAL, 42L)).isTrue();
+        assertThat(sharedStateWord.get()).isEqualTo(42L);
+        assertThat(sharedStateWord.compareAndSet(StateWord.INITIAL, 43L)).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectClockWhichIsNotAWallClock() throws IOException {
+        CircuitBreakerRegistry.ofSharedMemory(CircuitBreakerConfig.ofDefaults(), file, 16);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailToOpenOtherFile() throws IOException {
+        Files.write(file, "no shared file at all".getBytes("UTF-8"));
+        SharedStateWordFile.open(file, 16);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class SlidingWindowTest {
+
+    @Test
+    public void shouldCreateTimeBasedWindowIfTimeWindowSizeIsConfigured() {
+        SlidingWindow slidingWindow = SlidingWindow.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).timeWindowSize(10).build());
+        assertThat(slidingWindow).isInstanceOf(TimeBasedSlidingWindow.class);
+    }
+
+    @Test
+    public void shouldCreateCountBasedWindowByDefault() {
+        SlidingWindow slidingWindow = SlidingWindow.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(50).build());
+        assertThat(slidingWindow).isInstanceOf(CountBasedSlidingWindow.class);
+    }
+
+    @Test
+    public void countBasedWindowShouldNotCalculateFailureRateBeforeItIsFull() {
+        SlidingWindow slidingWindow = new CountBasedSlidingWindow(4, false);
+        slidingWindow.record(true, false);
+        slidingWindow.record(true, false);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(-1f);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(50f);
+    }
+
+    @Test
+    public void countBasedWindowShouldCalculateSlowCallRate() {
+        SlidingWindow slidingWindow = new CountBasedSlidingWindow(4, true);
+        slidingWindow.record(false, true);
+        slidingWindow.record(true, true);
+        slidingWindow.record(false, true);
+        assertThat(slidingWindow.getSlowCallRate()).isEqualTo(-1f);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getSlowCallRate()).isEqualTo(75f);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(25f);
+        assertThat(slidingWindow.getNumberOfBufferedCalls()).isEqualTo(4);
+    }
+
+    @Test
+    public void countBasedWindowShouldNotCalculateSlowCallRateIfSlowCallDetectionIsDisabled() {
+        SlidingWindow slidingWindow = new CountBasedSlidingWindow(1, false);
+        slidingWindow.record(false, true);
+        assertThat(slidingWindow.getSlowCallRate()).isEqualTo(-1f);
+    }
+
+    @Test
+    public void timeBasedWindowShouldCalculateSlowCallRate() {
+        SlidingWindow slidingWindow = new TimeBasedSlidingWindow(10, 2, Clock.virtual());
+        slidingWindow.record(false, true);
+        assertThat(slidingWindow.getSlowCallRate()).isEqualTo(-1f);
+        slidingWindow.record(true, false);
+        assertThat(slidingWindow.getSlowCallRate()).isEqualTo(50f);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(50f);
+        assertThat(slidingWindow.getNumberOfBufferedCalls()).isEqualTo(2);
+    }
+
+    @Test
+    public void timeBasedWindowShouldNotCalculateFailureRateBelowMinimumNumberOfCalls() {
+        SlidingWindow slidingWindow = new TimeBasedSlidingWindow(10, 4, Clock.monotonic());
+        slidingWindow.record(true, false);
+        slidingWindow.record(false, false);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(-1f);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(25f);
+    }
+
+    @Test
+    public void timeBasedWindowShouldDropOutdatedBuckets() {
+        VirtualClock clock = Clock.virtual();
+        SlidingWindow slidingWindow = new TimeBasedSlidingWindow(2, 1, clock);
+        slidingWindow.record(true, false);
+        slidingWindow.record(true, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(100f);
+        clock.advance(Duration.ofSeconds(1));
+        slidingWindow.record(false, false);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(50f);
+        clock.advance(Duration.ofSeconds(1));
+        // the bucket of the first second is outdated
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(0f);
+        clock.advance(Duration.ofSeconds(1));
+        // the bucket of the second second is outdated
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(-1f);
+        slidingWindow.record(false, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(0f);
+    }
+
+    @Test
+    public void timeBasedWindowShouldStartAtTimeZero() {
+        SlidingWindow slidingWindow = new TimeBasedSlidingWindow(10, 1, Clock.virtual());
+        slidingWindow.record(true, false);
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(100f);
+        slidingWindow.reset();
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(-1f);
+    }
+
+    @Test
+    public void timeBasedWindowShouldCountConcurrentOutcomes() throws InterruptedException {
+        SlidingWindow slidingWindow = new TimeBasedSlidingWindow(60, 1, Clock.monotonic());
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    slidingWindow.record(j % 2 == 0, false);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(slidingWindow.getFailureRate()).isEqualTo(50f);
+    }
+}
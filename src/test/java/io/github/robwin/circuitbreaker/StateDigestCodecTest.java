@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class StateDigestCodecTest {
+
+    @Test
+    public void shouldDecodeEncodedDigests() {
+        SortedMap<Long, Integer> digests = new TreeMap<>(Long::compareUnsigned);
+        digests.put(1L, StateDigestCodec.digest(CircuitBreaker.State.CLOSED, 0));
+        digests.put(Long.MAX_VALUE, StateDigestCodec.digest(CircuitBreaker.State.OPEN, 0x3FFF));
+        digests.put(-1L, StateDigestCodec.digest(CircuitBreaker.State.HALF_CLOSED, 7));
+
+        List<byte[]> messages = StateDigestCodec.encode(-42L, digests, 1400);
+
+        assertThat(messages).hasSize(1);
+        List<String> decoded = new ArrayList<>();
+        StateDigestCodec.decode(messages.get(0), (nodeId, hash, state, epoch) ->
+                decoded.add(nodeId + " " + hash + " " + state + " " + epoch));
+        assertThat(decoded).containsExactly(
+                "-42 1 CLOSED 0",
+                "-42 " + Long.MAX_VALUE + " OPEN 16383",
+                "-42 -1 HALF_CLOSED 7");
+    }
+
+    @Test
+    public void shouldEncodeCloseHashesCompactly() {
+        SortedMap<Long, Integer> digests = new TreeMap<>(Long::compareUnsigned);
+        for (long hash = 1000; hash < 1100; hash++) {
+            digests.put(hash, StateDigestCodec.digest(CircuitBreaker.State.OPEN, 1));
+        }
+
+        List<byte[]> messages = StateDigestCodec.encode(1L, digests, 1400);
+
+        // header + count + first hash delta + 99 deltas of 1 byte + 100 digests of 1 byte
+        assertThat(messages.get(0).length).isEqualTo(9 + 1 + 2 + 99 + 100);
+    }
+
+    @Test
+    public void shouldSplitDigestsIntoMessagesOfMaximumSize() {
+        SortedMap<Long, Integer> digests = new TreeMap<>(Long::compareUnsigned);
+        for (long i = 0; i < 100; i++) {
+            digests.put(i * 0x0100000000000000L + 1, StateDigestCodec.digest(CircuitBreaker.State.CLOSED, 3));
+        }
+
+        List<byte[]> messages = StateDigestCodec.encode(1L, digests, 64);
+
+        assertThat(messages.size()).isGreaterThan(1);
+        int[] count = new int[1];
+        for (byte[] message : messages) {
+            assertThat(message.length).isLessThanOrEqualTo(64);
+            StateDigestCodec.decode(message, (nodeId, hash, state, epoch) -> count[0]++);
+        }
+        assertThat(count[0]).isEqualTo(100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToDecodeTruncatedMessage() {
+        SortedMap<Long, Integer> digests = new TreeMap<>(Long::compareUnsigned);
+        digests.put(-1L, StateDigestCodec.digest(CircuitBreaker.State.OPEN, 1));
+        byte[] message = StateDigestCodec.encode(1L, digests, 1400).get(0);
+        byte[] truncated = new byte[message.length - 2];
+        System.arraycopy(message, 0, truncated, 0, truncated.length);
+
+        StateDigestCodec.decode(truncated, (nodeId, hash, state, epoch) -> {});
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class StateWordTest {
+
+    @Test
+    public void initialStateWordShouldBeClosedWithoutFailures() {
+        assertThat(StateWord.state(StateWord.INITIAL)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(StateWord.payload(StateWord.INITIAL)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldPackStateEpochAndPayload() {
+        long retryAfter = System.currentTimeMillis() + 60000;
+        long stateWord = StateWord.of(CircuitBreaker.State.HALF_CLOSED, 42, retryAfter);
+
+        assertThat(StateWord.state(stateWord)).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        assertThat(StateWord.epoch(stateWord)).isEqualTo(42);
+        assertThat(StateWord.payload(stateWord)).isEqualTo(retryAfter);
+    }
+
+    @Test
+    public void withPayloadShouldKeepStateAndEpoch() {
+        long stateWord = StateWord.withPayload(StateWord.of(CircuitBreaker.State.CLOSED, 7, 1), 2);
+
+        assertThat(StateWord.state(stateWord)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(StateWord.epoch(stateWord)).isEqualTo(7);
+        assertThat(StateWord.payload(stateWord)).isEqualTo(2);
+    }
+
+    @Test
+    public void transitionShouldIncrementTheEpoch() {
+        long stateWord = StateWord.transition(StateWord.INITIAL, CircuitBreaker.State.OPEN, 1000);
+        long nextStateWord = StateWord.transition(StateWord.transition(stateWord, CircuitBreaker.State.HALF_CLOSED, 0),
+                CircuitBreaker.State.OPEN, 1000);
+
+        assertThat(StateWord.state(stateWord)).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(StateWord.epoch(stateWord)).isEqualTo(1);
+        // the same state and payload in another round is a different state word
+        assertThat(nextStateWord).isNotEqualTo(stateWord);
+        assertThat(StateWord.epoch(nextStateWord)).isEqualTo(3);
+    }
+
+    @Test
+    public void epochShouldWrapAround() {
+        long stateWord = StateWord.of(CircuitBreaker.State.OPEN, (1 << 14) - 1, 5);
+        long nextStateWord = StateWord.transition(stateWord, CircuitBreaker.State.HALF_CLOSED, 0);
+
+        assertThat(StateWord.state(nextStateWord)).isEqualTo(CircuitBreaker.State.HALF_CLOSED);
+        assertThat(StateWord.epoch(nextStateWord)).isEqualTo(0);
+    }
+
+    @Test
+    public void laterEpochShouldTakeWrapAroundIntoAccount() {
+        assertThat(StateWord.isLaterEpoch(2, 1)).isTrue();
+        assertThat(StateWord.isLaterEpoch(1, 2)).isFalse();
+        assertThat(StateWord.isLaterEpoch(1, 1)).isFalse();
+        assertThat(StateWord.isLaterEpoch(0, (1 << 14) - 1)).isTrue();
+        assertThat(StateWord.isLaterEpoch((1 << 14) - 1, 0)).isFalse();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.circuitbreaker.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class RingBufferEventPublisherTest {
+
+    @Test
+    public void shouldNotBufferEventsWithoutSubscribers() {
+        RingBufferEventPublisher eventPublisher = new RingBufferEventPublisher(1, Runnable::run);
+
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+
+        assertThat(eventPublisher.hasSubscribers()).isFalse();
+        assertThat(eventPublisher.getNumberOfDroppedEvents()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDispatchEventsInOrder() {
+        RingBufferEventPublisher eventPublisher = new RingBufferEventPublisher(4, Runnable::run);
+        List<CircuitBreakerEvent> events = new ArrayList<>();
+        eventPublisher.subscribe(events::add);
+
+        for (int i = 0; i < 10; i++) {
+            eventPublisher.publish(CircuitBreakerEvent.ofError("testName", new RuntimeException(String.valueOf(i))));
+        }
+
+        assertThat(events).hasSize(10);
+        assertThat(events.get(9).getThrowable()).hasMessage("9");
+    }
+
+    @Test
+    public void shouldDropEventsIfTheBufferIsFull() {
+        List<Runnable> drainTasks = new ArrayList<>();
+        RingBufferEventPublisher eventPublisher = new RingBufferEventPublisher(2, drainTasks::add);
+        List<CircuitBreakerEvent> events = new ArrayList<>();
+        eventPublisher.subscribe(events::add);
+
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+
+        assertThat(drainTasks).hasSize(1);
+        assertThat(eventPublisher.getNumberOfDroppedEvents()).isEqualTo(1);
+        drainTasks.get(0).run();
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    public void shouldStopDispatchingToUnsubscribedConsumers() {
+        RingBufferEventPublisher eventPublisher = new RingBufferEventPublisher(4, Runnable::run);
+        List<CircuitBreakerEvent> events = new ArrayList<>();
+        Consumer<CircuitBreakerEvent> consumer = events::add;
+        eventPublisher.subscribe(consumer);
+        eventPublisher.subscribe(event -> {
+            throw new IllegalStateException("a failing consumer");
+        });
+
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+        eventPublisher.unsubscribe(consumer);
+        eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    public void shouldDispatchEventsOfConcurrentPublishers() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RingBufferEventPublisher eventPublisher = new RingBufferEventPublisher(1 << 16, executor);
+        ConcurrentLinkedQueue<CircuitBreakerEvent> events = new ConcurrentLinkedQueue<>();
+        CountDownLatch allDispatched = new CountDownLatch(8 * 1000);
+        eventPublisher.subscribe(event -> {
+            events.add(event);
+            allDispatched.countDown();
+        });
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    eventPublisher.publish(CircuitBreakerEvent.ofCallNotPermitted("testName"));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(allDispatched.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).hasSize(8 * 1000);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.clock;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static java.lang.Thread.sleep;
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class ClockTest {
+
+    @Test
+    public void monotonicClockShouldStartAtWallClockTime() {
+        long wallClockTime = System.currentTimeMillis();
+        assertThat(Math.abs(Clock.monotonic().currentTimeMillis() - wallClockTime)).isLessThan(1000);
+    }
+
+    @Test
+    public void onlySystemClockShouldBeAWallClock() {
+        long wallClockTime = System.currentTimeMillis();
+        assertThat(Clock.system().currentTimeMillis()).isGreaterThanOrEqualTo(wallClockTime);
+        assertThat(Clock.system().isWallClock()).isTrue();
+        assertThat(Clock.monotonic().isWallClock()).isFalse();
+        assertThat(Clock.virtual().isWallClock()).isFalse();
+    }
+
+    @Test
+    public void monotonicClockShouldNotGoBackwards() {
+        Clock clock = Clock.monotonic();
+        long previousTime = clock.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            long currentTime = clock.currentTimeMillis();
+            assertThat(currentTime).isGreaterThanOrEqualTo(previousTime);
+            previousTime = currentTime;
+        }
+    }
+
+    @Test
+    public void coarseClockShouldBeUpdatedByTheTicker() throws InterruptedException {
+        Clock clock = Clock.coarse();
+        long startNanos = clock.nanoTime();
+        long startMillis = clock.currentTimeMillis();
+        sleep(50);
+        assertThat(clock.nanoTime()).isGreaterThan(startNanos);
+        assertThat(clock.currentTimeMillis() - startMillis).isBetween(20L, 1000L);
+    }
+
+    @Test
+    public void virtualClockShouldOnlyAdvanceManually() throws InterruptedException {
+        VirtualClock clock = Clock.virtual();
+        assertThat(clock.currentTimeMillis()).isEqualTo(0);
+        sleep(5);
+        assertThat(clock.nanoTime()).isEqualTo(0);
+
+        clock.advance(Duration.ofMillis(1500));
+
+        assertThat(clock.currentTimeMillis()).isEqualTo(1500);
+        assertThat(clock.nanoTime()).isEqualTo(1500000000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void virtualClockShouldNotGoBackwards() {
+        Clock.virtual().advance(Duration.ofMillis(-1));
+    }
+}
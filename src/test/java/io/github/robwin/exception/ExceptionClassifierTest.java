@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.exception;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+
+public class ExceptionClassifierTest {
+
+    @Test
+    public void shouldRecordAllExceptionsByDefault() {
+        ExceptionClassifier exceptionClassifier = ExceptionClassifier.ofIgnoredExceptions(Collections.emptyList());
+
+        assertThat(exceptionClassifier.isRecorded(new RuntimeException())).isTrue();
+        assertThat(exceptionClassifier.isRecorded(new IOException())).isTrue();
+    }
+
+    @Test
+    public void shouldIgnoreSubclassesOfIgnoredExceptions() {
+        ExceptionClassifier exceptionClassifier = ExceptionClassifier.ofIgnoredExceptions(
+                Collections.singletonList(IOException.class));
+
+        assertThat(exceptionClassifier.isIgnored(new SocketTimeoutException())).isTrue();
+        assertThat(exceptionClassifier.isIgnored(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    public void shouldOnlyRecordRecordedExceptions() {
+        ExceptionClassifier exceptionClassifier = ExceptionClassifier.of(
+                Collections.singletonList(IOException.class), Collections.emptyList());
+
+        assertThat(exceptionClassifier.isRecorded(new SocketTimeoutException())).isTrue();
+        assertThat(exceptionClassifier.isRecorded(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    public void ignoredExceptionsShouldTakePrecedence() {
+        ExceptionClassifier exceptionClassifier = ExceptionClassifier.of(
+                Collections.singletonList(IOException.class), Collections.singletonList(SocketTimeoutException.class));
+
+        assertThat(exceptionClassifier.isRecorded(new IOException())).isTrue();
+        assertThat(exceptionClassifier.isRecorded(new SocketTimeoutException())).isFalse();
+    }
+
+    @Test
+    public void shouldReturnTheSameVerdictForRepeatedClassifications() {
+        ExceptionClassifier exceptionClassifier = ExceptionClassifier.of(
+                Arrays.asList(IOException.class, IllegalArgumentException.class), Collections.emptyList());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(exceptionClassifier.isRecorded(new NumberFormatException())).isTrue();
+            assertThat(exceptionClassifier.isRecorded(new IllegalStateException())).isFalse();
+        }
+    }
+
+    @Test
+    public void classifiersShouldNotShareVerdicts() {
+        ExceptionClassifier recordAll = ExceptionClassifier.ofIgnoredExceptions(Collections.emptyList());
+        ExceptionClassifier ignoreIOException = ExceptionClassifier.ofIgnoredExceptions(
+                Collections.singletonList(IOException.class));
+
+        assertThat(recordAll.isRecorded(new IOException())).isTrue();
+        assertThat(ignoreIOException.isRecorded(new IOException())).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullIgnoredExceptionsShouldFail() {
+        ExceptionClassifier.of(Collections.emptyList(), null);
+    }
+}
@@ -2,12 +2,27 @@ package io.github.robwin.failsafe;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import io.github.robwin.bulkhead.Bulkhead;
+import io.github.robwin.bulkhead.BulkheadConfig;
+import io.github.robwin.cache.Cache;
 import io.github.robwin.circuitbreaker.CircuitBreaker;
 import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.hedge.Hedge;
+import io.github.robwin.ratelimiter.RateLimiter;
+import io.github.robwin.ratelimiter.RateLimiterConfig;
+import io.github.robwin.ratelimiter.RequestNotPermittedException;
 import io.github.robwin.retry.Retry;
+import io.github.robwin.timeout.CallTimeoutException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -63,4 +78,143 @@ public class FailSafeTest {
 
         assertThat(decoratedRunnable).isNotNull();
     }
+
+    @Test
+    public void shouldCreateAFailSafeCompletionStage() throws ExecutionException, InterruptedException {
+        Supplier<CompletionStage<String>> supplier = () -> CompletableFuture.supplyAsync(() -> "Hello World");
+        Supplier<CompletionStage<String>> decoratedSupplier = FailSafe.ofCompletionStage(supplier)
+                .withCircuitBreaker(circuitBreaker)
+                .withMetrics(timer)
+                .decorate();
+
+        assertThat(decoratedSupplier.get().toCompletableFuture().get()).isEqualTo("Hello World");
+        assertThat(timer.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReleaseBulkheadPermitOfFailSafeSupplier() {
+        Bulkhead bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build());
+        Supplier<String> decoratedSupplier = FailSafe.ofSupplier(() -> "Hello World")
+                .withCircuitBreaker(circuitBreaker)
+                .withBulkhead(bulkhead)
+                .decorate();
+
+        assertThat(decoratedSupplier.get()).isEqualTo("Hello World");
+        assertThat(decoratedSupplier.get()).isEqualTo("Hello World");
+        assertThat(bulkhead.getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test(expected = RequestNotPermittedException.class)
+    public void shouldRejectCallOfFailSafeFunctionIfRateLimitIsExceeded() {
+        RateLimiter rateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+                .limitForPeriod(1)
+                .clock(Clock.virtual())
+                .build());
+        Function<String, String> decoratedFunction = FailSafe.ofFuction((String name) -> "Hello " + name)
+                .withCircuitBreaker(circuitBreaker)
+                .withRateLimiter(rateLimiter)
+                .decorate();
+
+        assertThat(decoratedFunction.apply("World")).isEqualTo("Hello World");
+        decoratedFunction.apply("World");
+    }
+
+    @Test
+    public void shouldRecordTimeoutOfFailSafeSupplierAsFailure() {
+        Supplier<String> decoratedSupplier = FailSafe.ofSupplier(() -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "Hello World";
+                })
+                .withTimeout(Duration.ofMillis(20))
+                .withCircuitBreaker(circuitBreaker)
+                .decorate();
+
+        try {
+            decoratedSupplier.get();
+        } catch (CallTimeoutException e) {
+            // expected
+        }
+
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void shouldRecordHedgedCallOfFailSafeSupplier() {
+        Supplier<String> decoratedSupplier = FailSafe.ofSupplier(() -> "Hello World")
+                .withHedging(Hedge.ofDefaults("test"), circuitBreaker)
+                .decorate();
+
+        assertThat(decoratedSupplier.get()).isEqualTo("Hello World");
+        assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldServeCachedResultOfFailSafeFunction() {
+        Function<String, String> decoratedFunction = FailSafe.ofFuction((String name) -> "Hello " + name)
+                .withCircuitBreaker(circuitBreaker)
+                .withCache(Cache.ofDefaults("test"))
+                .decorate();
+
+        assertThat(decoratedFunction.apply("World")).isEqualTo("Hello World");
+        assertThat(decoratedFunction.apply("World")).isEqualTo("Hello World");
+        assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAnswerRejectedCallOfFailSafeSupplierWithFallback() {
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        Supplier<String> decoratedSupplier = FailSafe.ofSupplier(() -> "Hello World")
+                .withCircuitBreaker(circuitBreaker)
+                .withFallback(() -> "Fallback")
+                .decorate();
+
+        assertThat(decoratedSupplier.get()).isEqualTo("Fallback");
+    }
+
+    @Test
+    public void shouldAnswerFailureOfFailSafeRunnableWithFallback() {
+        StringBuilder result = new StringBuilder();
+        Runnable decoratedRunnable = FailSafe.ofRunnable(() -> {
+                    throw new IllegalStateException("BAM!");
+                })
+                .withCircuitBreaker(circuitBreaker)
+                .withMetrics(timer)
+                .withFallback(() -> result.append("Fallback"))
+                .decorate();
+
+        decoratedRunnable.run();
+
+        assertThat(result.toString()).isEqualTo("Fallback");
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAnswerExceptionButNotErrorOfCompletionStageWithFallback() {
+        CompletableFuture<String> failedFuture = new CompletableFuture<>();
+        failedFuture.completeExceptionally(new IllegalStateException("BAM!"));
+        CompletableFuture<String> erroneousFuture = new CompletableFuture<>();
+        erroneousFuture.completeExceptionally(new AssertionError("BAM!"));
+
+        Supplier<CompletionStage<String>> failedSupplier = Fallback.decorateCompletionStage(() -> failedFuture,
+                () -> CompletableFuture.completedFuture("Fallback"));
+        Supplier<CompletionStage<String>> erroneousSupplier = Fallback.decorateCompletionStage(() -> erroneousFuture,
+                () -> CompletableFuture.completedFuture("Fallback"));
+
+        assertThat(failedSupplier.get().toCompletableFuture().join()).isEqualTo("Fallback");
+        try {
+            erroneousSupplier.get().toCompletableFuture().join();
+            Assert.fail("Expected a CompletionException");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).isInstanceOf(AssertionError.class);
+        }
+    }
 }
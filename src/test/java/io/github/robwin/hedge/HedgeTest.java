@@ -0,0 +1,257 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.hedge;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class HedgeTest {
+
+    private Hedge hedge;
+    private AtomicInteger attempts;
+
+    @Before
+    public void setUp() {
+        hedge = Hedge.of("test", HedgeConfig.custom().initialDelay(20).build());
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldNotHedgeFastCall() {
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            attempts.incrementAndGet();
+            return "Hello world";
+        }, hedge);
+
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnResultOfHedgedAttemptAndCancelStraggler() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Function<String, String> function = Hedge.decorateFunction((name) -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                }
+                return "Hello straggler";
+            }
+            return "Hello " + name;
+        }, hedge);
+
+        assertThat(function.apply("world")).isEqualTo("Hello world");
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        // the interrupt of the hedged attempt must not leak to the caller
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void shouldReturnResultOfHedgedAttemptWithoutWaitingForUninterruptibleStraggler() {
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleepUninterruptibly(2000);
+                return "Hello straggler";
+            }
+            return "Hello world";
+        }, hedge);
+
+        long start = System.nanoTime();
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRunCallOnCallingThreadIfExecutorRejectsIt() {
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("test");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        Hedge rejectingHedge = Hedge.of("test", HedgeConfig.custom().initialDelay(20).executor(executor).build());
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            attempts.incrementAndGet();
+            sleepUninterruptibly(100);
+            return "Hello world";
+        }, rejectingHedge, circuitBreaker);
+
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldThrowFirstFailureIfAllAttemptsFail() {
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            int attempt = attempts.incrementAndGet();
+            if (attempt == 1) {
+                sleepUninterruptibly(100);
+            }
+            throw new IllegalStateException("BAM! " + attempt);
+        }, hedge);
+
+        try {
+            supplier.get();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // the hedged attempt fails first
+            assertThat(e.getMessage()).isEqualTo("BAM! 2");
+        }
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotHedgeFailureOfFirstAttempt() {
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("BAM!");
+        }, hedge);
+
+        try {
+            supplier.get();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordAttemptsButNotFailureOfCancelledStraggler() throws InterruptedException {
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("test");
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                    throw new IllegalStateException("Interrupted");
+                }
+            }
+            return "Hello world";
+        }, hedge, circuitBreaker);
+
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotCallBackendIfCircuitBreakerIsOpen() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("test",
+                CircuitBreakerConfig.custom().maxFailures(1).waitInterval(1000).clock(clock).build());
+        circuitBreaker.recordFailure(new IllegalStateException("BAM!"));
+        circuitBreaker.recordFailure(new IllegalStateException("BAM!"));
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            attempts.incrementAndGet();
+            return "Hello world";
+        }, hedge, circuitBreaker);
+
+        try {
+            supplier.get();
+            fail("Expected a CircuitBreakerOpenException");
+        } catch (CircuitBreakerOpenException e) {
+            // expected
+        }
+        assertThat(attempts.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotHedgeTrialCallOfHalfClosedCircuitBreaker() {
+        VirtualClock clock = Clock.virtual();
+        CircuitBreaker circuitBreaker = CircuitBreakerRegistry.ofDefaults().circuitBreaker("test",
+                CircuitBreakerConfig.custom().maxFailures(1).waitInterval(1000).clock(clock).build());
+        circuitBreaker.recordFailure(new IllegalStateException("BAM!"));
+        circuitBreaker.recordFailure(new IllegalStateException("BAM!"));
+        clock.advance(Duration.ofSeconds(1));
+        Supplier<String> supplier = Hedge.decorateSupplier(() -> {
+            attempts.incrementAndGet();
+            sleepUninterruptibly(100);
+            return "Hello world";
+        }, hedge, circuitBreaker);
+
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAdaptDelayToPercentileOfLatencies() {
+        assertThat(hedge.getDelay(TimeUnit.MILLISECONDS)).isEqualTo(20);
+
+        for (int i = 1; i <= 100; i++) {
+            hedge.recordLatency(i, TimeUnit.MILLISECONDS);
+        }
+
+        // the delay is recalculated every 16 latencies, the last time with the first 96 latencies
+        assertThat(hedge.getDelay(TimeUnit.MILLISECONDS)).isEqualTo(92);
+    }
+
+    @Test
+    public void shouldNotDelayLessThanMinDelay() {
+        Hedge fastHedge = Hedge.of("test", HedgeConfig.custom().minDelay(5).build());
+
+        for (int i = 0; i < 32; i++) {
+            fastHedge.recordLatency(100, TimeUnit.MICROSECONDS);
+        }
+
+        assertThat(fastHedge.getDelay(TimeUnit.MILLISECONDS)).isEqualTo(5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hundredDelayPercentileShouldFail() {
+        HedgeConfig.custom().delayPercentile(100).build();
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+            } catch (InterruptedException e) {
+                // keep sleeping
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.ratelimiter;
+
+import io.github.robwin.clock.Clock;
+import io.github.robwin.clock.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+
+    private VirtualClock clock;
+    private RateLimiter rateLimiter;
+
+    @Before
+    public void setUp() {
+        clock = Clock.virtual();
+        rateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+                .limitForPeriod(2)
+                .limitRefreshPeriod(100)
+                .clock(clock)
+                .build());
+    }
+
+    @Test
+    public void shouldPermitLimitForPeriod() {
+        assertThat(rateLimiter.tryAcquirePermission()).isTrue();
+        assertThat(rateLimiter.tryAcquirePermission()).isTrue();
+        assertThat(rateLimiter.tryAcquirePermission()).isFalse();
+        assertThat(rateLimiter.getAvailablePermissions()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRefillPermissionsLazily() {
+        rateLimiter.tryAcquirePermission();
+        rateLimiter.tryAcquirePermission();
+
+        clock.advance(Duration.ofMillis(99));
+        assertThat(rateLimiter.tryAcquirePermission()).isFalse();
+
+        clock.advance(Duration.ofMillis(1));
+        assertThat(rateLimiter.getAvailablePermissions()).isEqualTo(2);
+        assertThat(rateLimiter.tryAcquirePermission()).isTrue();
+        assertThat(rateLimiter.getAvailablePermissions()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotAccumulatePermissionsOfIdlePeriods() {
+        clock.advance(Duration.ofSeconds(10));
+
+        assertThat(rateLimiter.getAvailablePermissions()).isEqualTo(2);
+        assertThat(rateLimiter.tryAcquirePermission()).isTrue();
+        assertThat(rateLimiter.tryAcquirePermission()).isTrue();
+        assertThat(rateLimiter.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void shouldRejectCallIfNoPermissionIsLeft() {
+        rateLimiter.tryAcquirePermission();
+        rateLimiter.tryAcquirePermission();
+        AtomicBoolean called = new AtomicBoolean();
+        Supplier<String> supplier = RateLimiter.decorateSupplier(() -> {
+            called.set(true);
+            return "Hello world";
+        }, rateLimiter);
+
+        try {
+            supplier.get();
+            fail("Expected a RequestNotPermittedException");
+        } catch (RequestNotPermittedException e) {
+            assertThat(e.getMessage()).isEqualTo("RateLimiter 'test' does not permit further calls");
+            assertThat(e.getStackTrace()).isEmpty();
+        }
+        assertThat(called.get()).isFalse();
+    }
+
+    @Test
+    public void shouldWaitForPermissionOfNextPeriod() {
+        RateLimiter waitingRateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+                .limitForPeriod(1)
+                .limitRefreshPeriod(50)
+                .timeoutDuration(1000)
+                .build());
+        assertThat(waitingRateLimiter.acquirePermission()).isTrue();
+        assertThat(waitingRateLimiter.acquirePermission()).isTrue();
+        assertThat(waitingRateLimiter.getAvailablePermissions()).isLessThanOrEqualTo(0);
+    }
+
+    @Test
+    public void shouldWaitForPermissionOnTheClockOfTheRateLimiter() throws InterruptedException {
+        RateLimiter waitingRateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+                .limitForPeriod(1)
+                .limitRefreshPeriod(50)
+                .timeoutDuration(1000)
+                .clock(clock)
+                .build());
+        assertThat(waitingRateLimiter.acquirePermission()).isTrue();
+        AtomicBoolean permitted = new AtomicBoolean();
+        Thread waitingCall = new Thread(() -> permitted.set(waitingRateLimiter.acquirePermission()));
+        waitingCall.start();
+
+        // the next period has not started on the virtual clock
+        waitingCall.join(200);
+        assertThat(waitingCall.isAlive()).isTrue();
+
+        clock.advance(Duration.ofMillis(50));
+        waitingCall.join(5000);
+        assertThat(waitingCall.isAlive()).isFalse();
+        assertThat(permitted.get()).isTrue();
+    }
+
+    @Test
+    public void shouldNotWaitLongerThanTimeoutDuration() {
+        RateLimiter waitingRateLimiter = RateLimiter.of("test", RateLimiterConfig.custom()
+                .limitForPeriod(1)
+                .limitRefreshPeriod(100)
+                .timeoutDuration(100)
+                .clock(clock)
+                .build());
+        assertThat(waitingRateLimiter.tryAcquirePermission()).isTrue();
+        clock.advance(Duration.ofMillis(1));
+
+        // the next period starts in 99ms, the one after it in 199ms
+        Thread.currentThread().interrupt();
+        assertThat(waitingRateLimiter.acquirePermission()).isFalse();
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(waitingRateLimiter.getAvailablePermissions()).isEqualTo(-1);
+        assertThat(waitingRateLimiter.acquirePermission()).isFalse();
+        assertThat(waitingRateLimiter.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void shouldReturnTheSameRateLimiterFromRegistry() {
+        RateLimiterRegistry registry = RateLimiterRegistry.ofDefaults();
+
+        RateLimiter rateLimiter1 = registry.rateLimiter("test");
+        RateLimiter rateLimiter2 = registry.rateLimiter("test");
+
+        assertThat(rateLimiter1).isSameAs(rateLimiter2);
+        assertThat(rateLimiter1.getRateLimiterConfig().getLimitForPeriod()).isEqualTo(50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroLimitForPeriodShouldFail() {
+        RateLimiterConfig.custom().limitForPeriod(0).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeoutDurationShouldFail() {
+        RateLimiterConfig.custom().timeoutDuration(-1).build();
+    }
+}
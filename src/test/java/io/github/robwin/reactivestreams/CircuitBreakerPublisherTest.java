@@ -0,0 +1,153 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.reactivestreams;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.rx.Streams;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerPublisherTest {
+
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp(){
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(new CircuitBreakerConfig.Builder()
+                .maxFailures(1)
+                .waitInterval(1000)
+                .build());
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+    }
+
+    @Test
+    public void shouldEmitAllElementsAndRecordSuccess() {
+        circuitBreaker.recordFailure(new RuntimeException());
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+
+        CircuitBreakerPublisher.of(Streams.just("Hello", "world"), circuitBreaker).subscribe(subscriber);
+
+        assertThat(subscriber.elements).containsExactly("Hello", "world");
+        assertThat(subscriber.completed).isTrue();
+        // the success has reset the consecutive failure
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldRecordFailure() {
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        Publisher<String> publisher = CircuitBreakerPublisher.of(Streams.fail(new IOException("BAM!")), circuitBreaker);
+
+        publisher.subscribe(subscriber);
+        publisher.subscribe(new RecordingSubscriber<>(Long.MAX_VALUE));
+
+        assertThat(subscriber.error).isInstanceOf(IOException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldNotSubscribeUpstreamWhenCircuitBreakerIsOpen() {
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        AtomicInteger subscriptions = new AtomicInteger();
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+
+        CircuitBreakerPublisher.<String>of(s -> subscriptions.incrementAndGet(), circuitBreaker).subscribe(subscriber);
+
+        assertThat(subscriptions.get()).isEqualTo(0);
+        assertThat(subscriber.subscribed).isTrue();
+        assertThat(subscriber.error).isInstanceOf(CircuitBreakerOpenException.class);
+    }
+
+    @Test
+    public void shouldCancelUpstreamWhenCircuitBreakerOpensMidStream() {
+        RecordingSubscriber<Long> subscriber = new RecordingSubscriber<Long>(Long.MAX_VALUE) {
+            @Override
+            public void onNext(Long element) {
+                super.onNext(element);
+                // other calls open the CircuitBreaker after the first element
+                circuitBreaker.recordFailure(new RuntimeException());
+                circuitBreaker.recordFailure(new RuntimeException());
+            }
+        };
+
+        CircuitBreakerPublisher.of(Streams.range(1, 100), circuitBreaker).subscribe(subscriber);
+
+        assertThat(subscriber.elements).containsExactly(1L);
+        assertThat(subscriber.error).isInstanceOf(CircuitBreakerOpenException.class);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    @Test
+    public void shouldPassThroughBackpressure() {
+        RecordingSubscriber<Long> subscriber = new RecordingSubscriber<>(2);
+
+        CircuitBreakerPublisher.of(Streams.range(1, 100), circuitBreaker).subscribe(subscriber);
+
+        assertThat(subscriber.elements).containsExactly(1L, 2L);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    private static class RecordingSubscriber<T> implements Subscriber<T> {
+        private final long initialRequest;
+        private final List<T> elements = new ArrayList<>();
+        private boolean subscribed;
+        private boolean completed;
+        private Throwable error;
+
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscribed = true;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T element) {
+            elements.add(element);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
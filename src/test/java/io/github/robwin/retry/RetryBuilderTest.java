@@ -31,4 +31,9 @@ public class RetryBuilderTest {
     public void zeroWaitIntervalShouldFail() {
         Retry.custom().waitInterval(0).build();
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullRetryExceptionShouldFail() {
+        Retry.custom().retryException(null).build();
+    }
 }
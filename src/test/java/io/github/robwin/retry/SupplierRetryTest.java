@@ -117,4 +117,24 @@ public class SupplierRetryTest {
             BDDMockito.then(helloWorldService).should(times(1)).returnHelloWorld();
         }
     }
+
+    @Test
+    public void shouldOnlyRetryRetryExceptions() {
+        // Given the HelloWorldService throws an exception
+        given(helloWorldService.returnHelloWorld()).willThrow(new WebServiceException("BAM!"));
+
+        // Create a Retry which only retries IllegalStateExceptions
+        Retry retryContext = Retry.custom().retryException(IllegalStateException.class).build();
+        // Decorate the invocation of the HelloWorldService
+        Supplier<String> retryableSupplier = Retry.retryableSupplier(helloWorldService::returnHelloWorld, retryContext);
+
+        // When
+        try {
+            retryableSupplier.get();
+            Assert.fail();
+        }  catch (WebServiceException e){
+            // Then the helloWorldService should be invoked 1 time
+            BDDMockito.then(helloWorldService).should(times(1)).returnHelloWorld();
+        }
+    }
 }
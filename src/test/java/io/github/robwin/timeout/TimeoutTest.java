@@ -0,0 +1,199 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.timeout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.BDDAssertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class TimeoutTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer(1, 8, "test-timer");
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void shouldReturnResultOfCallWithinTimeout() {
+        Supplier<String> supplier = Timeout.decorateSupplier(() -> "Hello world", Duration.ofSeconds(1));
+
+        assertThat(supplier.get()).isEqualTo("Hello world");
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void shouldInterruptHungCall() {
+        Supplier<String> supplier = Timeout.decorateSupplier(() -> {
+            try {
+                Thread.sleep(10_000);
+                return "Hello world";
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, Duration.ofMillis(20));
+
+        try {
+            supplier.get();
+            fail("Expected a CallTimeoutException");
+        } catch (CallTimeoutException e) {
+            assertThat(e.getMessage()).isEqualTo("Call has not completed within 20 ms");
+            assertThat(e.getStackTrace()).isEmpty();
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+        // the interrupt of the timer must not leak to the caller
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void shouldKeepInterruptWhichHasNotBeenDeliveredByTheTimer() {
+        Supplier<String> supplier = Timeout.decorateSupplier(() -> {
+            Thread.currentThread().interrupt();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            while (System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            throw new IllegalStateException("BAM!");
+        }, Duration.ofMillis(20));
+
+        try {
+            supplier.get();
+            fail("Expected a CallTimeoutException");
+        } catch (CallTimeoutException e) {
+            assertThat(e.getCause()).hasMessage("BAM!");
+        } finally {
+            // the interrupt of the caller must not be swallowed by the timeout
+            assertThat(Thread.interrupted()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldPropagateExceptionOfCallWithinTimeout() {
+        Runnable runnable = Timeout.decorateRunnable(() -> {
+            throw new IllegalStateException("BAM!");
+        }, Duration.ofSeconds(1));
+
+        try {
+            runnable.run();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("BAM!");
+        }
+    }
+
+    @Test
+    public void shouldCompleteStageExceptionallyAfterTimeout() throws InterruptedException {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Supplier<CompletionStage<String>> supplier = Timeout.decorateCompletionStage(() -> future, Duration.ofMillis(20));
+
+        CompletableFuture<String> stage = supplier.get().toCompletableFuture();
+        try {
+            stage.get(5, TimeUnit.SECONDS);
+            fail("Expected a CallTimeoutException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(CallTimeoutException.class);
+        } catch (java.util.concurrent.TimeoutException e) {
+            fail("The stage has not timed out");
+        }
+        future.complete("Hello world");
+        assertThat(stage.isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void shouldCompleteStageWithResultWithinTimeout() {
+        Supplier<CompletionStage<String>> supplier = Timeout.decorateCompletionStage(
+                () -> CompletableFuture.completedFuture("Hello world"), Duration.ofSeconds(1));
+
+        assertThat(supplier.get().toCompletableFuture().join()).isEqualTo("Hello world");
+    }
+
+    @Test
+    public void shouldExpireTimeoutNotBeforeItsDeadline() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] expired = new long[1];
+        timer.schedule(() -> {
+            expired[0] = System.nanoTime();
+            latch.countDown();
+        }, TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(expired[0] - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void shouldExpireTimeoutsOfLaterRounds() throws InterruptedException {
+        // the wheel of 8 buckets with a tick of 1ms turns around every 8ms
+        CountDownLatch latch = new CountDownLatch(2);
+        timer.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(3));
+        timer.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldReclaimCancelledTimeouts() throws InterruptedException {
+        List<HashedWheelTimer.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(timer.schedule(() -> fail("A cancelled timeout must not expire"), TimeUnit.HOURS.toNanos(1)));
+        }
+        awaitNumberOfTimeouts(1000);
+
+        for (HashedWheelTimer.Entry entry : entries) {
+            assertThat(entry.cancel()).isTrue();
+        }
+
+        // the cancelled timeouts are unlinked long before their deadline
+        awaitNumberOfTimeouts(0);
+        assertThat(entries.get(0).cancel()).isFalse();
+        assertThat(entries.get(0).isExpired()).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroTimeoutShouldFail() {
+        Timeout.decorateSupplier(() -> "Hello world", Duration.ZERO);
+    }
+
+    private void awaitNumberOfTimeouts(int numberOfTimeouts) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (timer.getNumberOfTimeouts() != numberOfTimeouts && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(timer.getNumberOfTimeouts()).isEqualTo(numberOfTimeouts);
+    }
+}
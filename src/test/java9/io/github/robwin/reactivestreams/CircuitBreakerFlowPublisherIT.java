@@ -0,0 +1,182 @@
+/*
+ *
+ *  Copyright 2015 Robert Winkler
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ */
+package io.github.robwin.reactivestreams;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the Multi-Release JAR, because only the JAR contains the Java 9 release of
+ * {@link CircuitBreakerFlowPublisher}.
+ */
+public class CircuitBreakerFlowPublisherIT {
+
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp(){
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(new CircuitBreakerConfig.Builder()
+                .maxFailures(1)
+                .waitInterval(1000)
+                .build());
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("testName");
+    }
+
+    @Test
+    public void shouldEmitAllElementsAndRecordSuccess() {
+        circuitBreaker.recordFailure(new RuntimeException());
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+
+        Flow.Publisher<String> publisher = CircuitBreakerFlowPublisher.of(just("Hello", "world"), circuitBreaker);
+        publisher.subscribe(subscriber);
+
+        assertThat(subscriber.elements).containsExactly("Hello", "world");
+        assertThat(subscriber.completed).isTrue();
+        // the success has reset the consecutive failure
+        circuitBreaker.recordFailure(new RuntimeException());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldRecordFailure() {
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        Flow.Publisher<String> upstream = s -> {
+            s.onSubscribe(new NoSubscription());
+            s.onError(new IOException("BAM!"));
+        };
+        Flow.Publisher<String> publisher = CircuitBreakerFlowPublisher.of(upstream, circuitBreaker);
+
+        publisher.subscribe(subscriber);
+        publisher.subscribe(new RecordingSubscriber<>(Long.MAX_VALUE));
+
+        assertThat(subscriber.error).isInstanceOf(IOException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void shouldNotSubscribeUpstreamWhenCircuitBreakerIsOpen() {
+        circuitBreaker.recordFailure(new RuntimeException());
+        circuitBreaker.recordFailure(new RuntimeException());
+        AtomicInteger subscriptions = new AtomicInteger();
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        Flow.Publisher<String> upstream = s -> subscriptions.incrementAndGet();
+
+        CircuitBreakerFlowPublisher.of(upstream, circuitBreaker).subscribe(subscriber);
+
+        assertThat(subscriptions.get()).isEqualTo(0);
+        assertThat(subscriber.subscribed).isTrue();
+        assertThat(subscriber.error).isInstanceOf(CircuitBreakerOpenException.class);
+    }
+
+    @Test
+    public void shouldPassThroughBackpressure() {
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(2);
+
+        Flow.Publisher<String> publisher = CircuitBreakerFlowPublisher.of(just("a", "b", "c"), circuitBreaker);
+        publisher.subscribe(subscriber);
+
+        assertThat(subscriber.elements).containsExactly("a", "b");
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUpstreamWhichIsNotAFlowPublisher() {
+        CircuitBreakerFlowPublisher.of("Hello world", circuitBreaker);
+    }
+
+    /**
+     * A synchronous Publisher which emits the requested elements on the thread of the request.
+     */
+    @SafeVarargs
+    private static <T> Flow.Publisher<T> just(T... elements) {
+        List<T> remainingElements = new ArrayList<>(Arrays.asList(elements));
+        return s -> s.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                for (long i = 0; i < n && !remainingElements.isEmpty(); i++) {
+                    s.onNext(remainingElements.remove(0));
+                }
+                if (remainingElements.isEmpty()) {
+                    s.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                remainingElements.clear();
+            }
+        });
+    }
+
+    private static class NoSubscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final long initialRequest;
+        private final List<T> elements = new ArrayList<>();
+        private boolean subscribed;
+        private boolean completed;
+        private Throwable error;
+
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscribed = true;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T element) {
+            elements.add(element);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}